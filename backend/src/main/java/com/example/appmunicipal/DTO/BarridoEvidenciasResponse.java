@@ -0,0 +1,27 @@
+package com.example.appmunicipal.DTO;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resultado de una conciliación entre el directorio de uploads y la base de datos
+ */
+@Data
+@NoArgsConstructor
+public class BarridoEvidenciasResponse {
+
+    private LocalDateTime fecha;
+    private Long duracionMs;
+    private Long archivosRevisados;
+
+    // Archivos sin evidencia/blob que los referencie
+    private Long archivosHuerfanos;
+    private Long bytesHuerfanos;
+    private Boolean huerfanosEliminados;
+
+    // Filas que apuntan a un archivo que no existe
+    private Long evidenciasSinArchivo;
+    private Long blobsSinArchivo;
+}
@@ -0,0 +1,34 @@
+package com.example.appmunicipal.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filtros de GET /api/denuncias/buscar (todos opcionales y combinables)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BusquedaDenunciaRequest {
+
+    private String estado;
+    private Long categoriaId;
+    private String comuna;
+    private String sector;
+    private String patente;
+    private Long revisorId;
+
+    // Rango de fechaDenuncia, ambos extremos inclusive
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate desde;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate hasta;
+
+    private int page = 0;
+    private int size = 20;
+}
@@ -0,0 +1,28 @@
+package com.example.appmunicipal.DTO;
+
+import com.example.appmunicipal.domain.CargaEvidencia;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CargaEvidenciaResponse {
+
+    private String uploadId;
+    private Long denunciaId;
+    private Long tamanoTotal;
+    private Long offset;
+    private String estado;
+    private Long evidenciaId;
+
+    public CargaEvidenciaResponse(CargaEvidencia carga) {
+        this.uploadId = carga.getId();
+        this.denunciaId = carga.getDenuncia().getId();
+        this.tamanoTotal = carga.getTamanoTotal();
+        this.offset = carga.getBytesRecibidos();
+        this.estado = carga.getEstado().name();
+        this.evidenciaId = carga.getEvidenciaId();
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
 import java.util.Map;
 
 @Data
@@ -17,9 +18,19 @@ public class DashboardStatsResponse {
     private Double tasaValidacion;
     private Double tasaRechazo;
     private Double tiempoPromedioValidacion;
+    private Double tiempoMedianoValidacion;
+    private Double tiempoP90Validacion;
+    private Double tiempoP99Validacion;
     private Map<Integer, Long> denunciasPorHorario;
     private Map<String, Long> denunciasPorComuna;
     private Map<String, Long> denunciasPorSector;
     private Map<String, Long> topUsuarios;
     private Map<String, Long> reincidenciaPatentes;
+
+    // Metadatos de cálculo: true si alguna consulta no terminó a tiempo o falló
+    private Boolean parcial;
+    private List<String> consultasIncompletas;  // Con timeout o fallidas
+    private List<String> consultasConTimeout;
+    private List<String> consultasFallidas;
+    private Map<String, Long> tiemposConsultaMs;
 }
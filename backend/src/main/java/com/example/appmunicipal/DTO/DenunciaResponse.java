@@ -4,6 +4,7 @@ import com.example.appmunicipal.domain.Denuncia;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.http.MediaTypeFactory;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -31,9 +32,14 @@ public class DenunciaResponse {
     private String motivoRechazo;
     private Integer cantidadEvidencias;
     private List<String> evidenciasUrls;
+    // Misma evidencia en tamaño miniatura (para grillas y listados), en el mismo
+    // orden que evidenciasUrls; null para los videos, que no tienen miniatura
+    private List<String> miniaturasUrls;
 
-    // Constructor desde entidad Denuncia
-    public DenunciaResponse(Denuncia denuncia) {
+    // Constructor desde entidad Denuncia (ver DenunciaResponseMapper): los nombres de
+    // archivo y la categoría ya vienen resueltos, así que no se inicializa la colección
+    // lazy de evidencias ni la relación lazy con categorias
+    public DenunciaResponse(Denuncia denuncia, List<String> nombresArchivos, CategoriaSimpleDto categoria) {
         this.id = denuncia.getId();
 
         // Solo email y nombre del usuario (seguro, sin exponer más datos)
@@ -41,11 +47,7 @@ public class DenunciaResponse {
         this.nombreUsuario = denuncia.getUsuario().getNombre();
 
         // Categoría
-        this.categoria = new CategoriaSimpleDto(
-                denuncia.getCategoria().getId(),
-                denuncia.getCategoria().getNombre(),
-                denuncia.getCategoria().getCodigo(),
-                denuncia.getCategoria().getColorHex());
+        this.categoria = categoria;
 
         // Datos de la denuncia
         this.descripcion = denuncia.getDescripcion();
@@ -59,14 +61,23 @@ public class DenunciaResponse {
         this.fechaDenuncia = denuncia.getFechaDenuncia();
         this.fechaValidacion = denuncia.getFechaValidacion();
         this.motivoRechazo = denuncia.getMotivoRechazo();
-        this.cantidadEvidencias = denuncia.getEvidencias() != null ? denuncia.getEvidencias().size() : 0;
+        this.cantidadEvidencias = nombresArchivos.size();
 
         // Generar URLs de evidencias
-        this.evidenciasUrls = denuncia.getEvidencias() != null
-                ? denuncia.getEvidencias().stream()
-                        .map(evidencia -> "/api/denuncias/evidencia/" + evidencia.getNombreArchivo())
-                        .collect(Collectors.toList())
-                : List.of();
+        this.evidenciasUrls = nombresArchivos.stream()
+                .map(nombreArchivo -> "/api/denuncias/evidencia/" + nombreArchivo)
+                .collect(Collectors.toList());
+        this.miniaturasUrls = nombresArchivos.stream()
+                .map(DenunciaResponse::urlMiniatura)
+                .collect(Collectors.toList());
+    }
+
+    // MiniaturaService solo genera miniaturas de imágenes (el tipo sale de la extensión)
+    private static String urlMiniatura(String nombreArchivo) {
+        boolean esImagen = MediaTypeFactory.getMediaType(nombreArchivo)
+                .map(tipo -> "image".equals(tipo.getType()))
+                .orElse(false);
+        return esImagen ? "/api/denuncias/evidencia/" + nombreArchivo + "?size=thumb" : null;
     }
 
     // DTO interno para Categoría
@@ -17,6 +17,7 @@ public class EvidenciaResponse {
     private String tipo;
     private String nombreArchivo;
     private String url;
+    private String urlMiniatura;
     private String mimeType;
     private Long tamanoBytes;
     private LocalDateTime fechaSubida;
@@ -29,6 +30,10 @@ public class EvidenciaResponse {
         this.nombreArchivo = evidencia.getNombreArchivo();
         // Construir URL para acceder a la evidencia
         this.url = "/api/denuncias/evidencia/" + evidencia.getNombreArchivo();
+        // Solo las imágenes tienen miniatura
+        this.urlMiniatura = evidencia.getMimeType() != null && evidencia.getMimeType().startsWith("image/")
+                ? this.url + "?size=thumb"
+                : null;
         this.mimeType = evidencia.getMimeType();
         this.tamanoBytes = evidencia.getTamanoBytes();
         this.fechaSubida = evidencia.getFechaSubida();
@@ -0,0 +1,19 @@
+package com.example.appmunicipal.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Celda del mapa de calor: geohash, centro y cantidad de denuncias
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeatmapCeldaResponse {
+
+    private String geohash;
+    private Double lat;
+    private Double lon;
+    private Long cantidad;
+}
@@ -0,0 +1,15 @@
+package com.example.appmunicipal.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IniciarCargaRequest {
+
+    private String nombreArchivo;       // Nombre original (solo se usa la extensión)
+    private String mimeType;            // image/jpeg, video/mp4, ...
+    private Long tamanoBytes;           // Tamaño total del archivo
+}
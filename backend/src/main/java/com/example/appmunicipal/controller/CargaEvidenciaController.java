@@ -0,0 +1,174 @@
+package com.example.appmunicipal.controller;
+
+import com.example.appmunicipal.DTO.CargaEvidenciaResponse;
+import com.example.appmunicipal.DTO.EvidenciaResponse;
+import com.example.appmunicipal.DTO.IniciarCargaRequest;
+import com.example.appmunicipal.service.CargaEvidenciaService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Carga reanudable de evidencias (estilo tus):
+ * 1. POST  /api/denuncias/{id}/evidencias/cargas              -> uploadId
+ * 2. PATCH /api/denuncias/evidencias/cargas/{uploadId}        (header Upload-Offset, cuerpo binario)
+ *    GET   /api/denuncias/evidencias/cargas/{uploadId}        -> offset para reanudar tras un corte
+ * 3. POST  /api/denuncias/evidencias/cargas/{uploadId}/completar -> Evidencia
+ */
+@RestController
+@RequestMapping("/api/denuncias")
+@RequiredArgsConstructor
+@Slf4j
+public class CargaEvidenciaController {
+
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    private final CargaEvidenciaService cargaEvidenciaService;
+
+    /**
+     * Iniciar una carga reanudable
+     * POST /api/denuncias/{id}/evidencias/cargas
+     * Body: { "nombreArchivo": "video.mp4", "mimeType": "video/mp4", "tamanoBytes": 52428800 }
+     */
+    @PostMapping("/{id}/evidencias/cargas")
+    public ResponseEntity<?> iniciarCarga(@PathVariable Long id, @RequestBody IniciarCargaRequest request) {
+        try {
+            CargaEvidenciaResponse carga = cargaEvidenciaService.iniciarCarga(id, request);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Carga iniciada");
+            response.put("carga", carga);
+
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header(HttpHeaders.LOCATION, "/api/denuncias/evidencias/cargas/" + carga.getUploadId())
+                    .header(UPLOAD_OFFSET, String.valueOf(carga.getOffset()))
+                    .body(response);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error al iniciar carga: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    /**
+     * Consultar el offset confirmado de una carga
+     * GET /api/denuncias/evidencias/cargas/{uploadId}
+     */
+    @GetMapping("/evidencias/cargas/{uploadId}")
+    public ResponseEntity<?> obtenerCarga(@PathVariable String uploadId) {
+        try {
+            CargaEvidenciaResponse carga = cargaEvidenciaService.obtenerCarga(uploadId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("carga", carga);
+
+            return ResponseEntity.ok()
+                    .header(UPLOAD_OFFSET, String.valueOf(carga.getOffset()))
+                    .body(response);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error al obtener carga: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+
+    /**
+     * Enviar un fragmento. El cuerpo es binario (application/offset+octet-stream)
+     * y se escribe sin pasar por multipart.
+     * PATCH /api/denuncias/evidencias/cargas/{uploadId}
+     * Header: Upload-Offset: 5242880
+     */
+    @PatchMapping("/evidencias/cargas/{uploadId}")
+    public ResponseEntity<?> recibirFragmento(
+            @PathVariable String uploadId,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            HttpServletRequest request) {
+        try {
+            long nuevoOffset = cargaEvidenciaService.recibirFragmento(uploadId, offset, request.getInputStream());
+
+            return ResponseEntity.noContent()
+                    .header(UPLOAD_OFFSET, String.valueOf(nuevoOffset))
+                    .build();
+
+        } catch (CargaEvidenciaService.OffsetInvalidoException e) {
+            log.warn("⚠️ Fragmento rechazado para carga {}: {}", uploadId, e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            error.put("offset", e.getOffsetActual());
+
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(UPLOAD_OFFSET, String.valueOf(e.getOffsetActual()))
+                    .body(error);
+
+        } catch (RuntimeException | IOException e) {
+            log.error("❌ Error al recibir fragmento: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    /**
+     * Completar la carga y registrar la evidencia
+     * POST /api/denuncias/evidencias/cargas/{uploadId}/completar
+     */
+    @PostMapping("/evidencias/cargas/{uploadId}/completar")
+    public ResponseEntity<?> completarCarga(@PathVariable String uploadId) {
+        try {
+            EvidenciaResponse evidencia = cargaEvidenciaService.completarCarga(uploadId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Evidencia subida correctamente");
+            response.put("evidencia", evidencia);
+
+            return ResponseEntity.ok(response);
+
+        } catch (CargaEvidenciaService.OffsetInvalidoException e) {
+            log.warn("⚠️ Carga {} incompleta: {}", uploadId, e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+            error.put("offset", e.getOffsetActual());
+
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(UPLOAD_OFFSET, String.valueOf(e.getOffsetActual()))
+                    .body(error);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error al completar carga: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+}
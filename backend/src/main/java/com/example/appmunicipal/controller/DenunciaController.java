@@ -2,18 +2,35 @@ package com.example.appmunicipal.controller;
 
 import com.example.appmunicipal.DTO.*;
 import com.example.appmunicipal.security.RoleValidator;
+import com.example.appmunicipal.security.UsuarioAutenticado;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import com.example.appmunicipal.service.AdministracionDenunciaService;
+import com.example.appmunicipal.domain.Denuncia;
 import com.example.appmunicipal.service.DenunciaService;
+import com.example.appmunicipal.service.DescargaEvidenciaService;
+import com.example.appmunicipal.service.ExportacionDenunciaService;
+import com.example.appmunicipal.service.HeatmapService;
+import com.example.appmunicipal.service.MapaDenunciaService;
+import com.example.appmunicipal.service.StreamDenunciaService;
+import com.example.appmunicipal.util.GeoUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.http.MediaType;
 import org.springframework.http.HttpHeaders;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +44,12 @@ public class DenunciaController {
     private final DenunciaService denunciaService;
     private final RoleValidator roleValidator;
     private final AdministracionDenunciaService adminService;
+    private final MapaDenunciaService mapaDenunciaService;
+    private final HeatmapService heatmapService;
+    private final ExportacionDenunciaService exportacionDenunciaService;
+    private final ObjectMapper objectMapper;
+    private final DescargaEvidenciaService descargaEvidenciaService;
+    private final StreamDenunciaService streamDenunciaService;
 
     /**
      * Crear una nueva denuncia
@@ -90,12 +113,22 @@ public class DenunciaController {
     /**
      * Listar todas las denuncias con paginación opcional
      * GET /api/denuncias?page=0&size=20
+     *
+     * Paginación por cursor (recomendada para páginas profundas):
+     * GET /api/denuncias?cursor=&size=20 (primera página)
+     * GET /api/denuncias?cursor={nextCursor}&size=20&incluirTotal=true
      */
     @PreAuthorize("hasAnyRole('FUNCIONARIO')")
     @GetMapping
     public ResponseEntity<?> listarDenuncias(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean incluirTotal) {
+        if (cursor != null) {
+            return listarDenunciasPorCursor(cursor, size, incluirTotal);
+        }
+
         try {
             log.info("Solicitud de listar denuncias - Página: {}, Tamaño: {}", page, size);
 
@@ -125,6 +158,177 @@ public class DenunciaController {
         }
     }
 
+    private ResponseEntity<?> listarDenunciasPorCursor(String cursor, int size, boolean incluirTotal) {
+        try {
+            int tamano = Math.max(1, Math.min(size, 100));
+            log.info("Solicitud de listar denuncias por cursor - Tamaño: {}", tamano);
+
+            Map<String, Object> paginatedData = denunciaService.listarDenunciasPorCursor(cursor, tamano, incluirTotal);
+
+            Map<String, Object> pagination = new HashMap<>();
+            pagination.put("pageSize", paginatedData.get("pageSize"));
+            pagination.put("hasNext", paginatedData.get("hasNext"));
+            pagination.put("nextCursor", paginatedData.get("nextCursor"));
+            if (paginatedData.containsKey("totalElements")) {
+                pagination.put("totalElements", paginatedData.get("totalElements"));
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("denuncias", paginatedData.get("denuncias"));
+            response.put("pagination", pagination);
+
+            return ResponseEntity.ok(response);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error al listar denuncias por cursor: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    /**
+     * Buscar denuncias combinando filtros, paginado
+     * GET /api/denuncias/buscar?estado=PENDIENTE&categoriaId=1&comuna=Temuco&sector=Centro&patente=ABCD12&revisorId=2&desde=2025-01-01&hasta=2025-01-31&page=0&size=20
+     */
+    @PreAuthorize("hasAnyRole('FUNCIONARIO')")
+    @GetMapping("/buscar")
+    public ResponseEntity<?> buscarDenuncias(@ModelAttribute BusquedaDenunciaRequest filtros) {
+        try {
+            Map<String, Object> paginatedData = denunciaService.buscarDenuncias(filtros);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("denuncias", paginatedData.get("denuncias"));
+            response.put("pagination", Map.of(
+                    "currentPage", paginatedData.get("currentPage"),
+                    "totalPages", paginatedData.get("totalPages"),
+                    "totalElements", paginatedData.get("totalElements"),
+                    "pageSize", paginatedData.get("pageSize"),
+                    "hasNext", paginatedData.get("hasNext"),
+                    "hasPrevious", paginatedData.get("hasPrevious")));
+
+            return ResponseEntity.ok(response);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error al buscar denuncias: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    /**
+     * Exportar denuncias en CSV o NDJSON (mismos filtros que /buscar, sin paginar)
+     * La respuesta se escribe a medida que se leen las filas
+     * GET /api/denuncias/export?format=csv&estado=VALIDADA&comuna=Temuco&desde=2025-01-01
+     */
+    @PreAuthorize("hasAnyRole('FUNCIONARIO')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportarDenuncias(
+            @RequestParam(defaultValue = "csv") String format,
+            @ModelAttribute BusquedaDenunciaRequest filtros) {
+        try {
+            // Validar antes de empezar a escribir: después ya no se puede responder 400
+            ExportacionDenunciaService.Formato formato = ExportacionDenunciaService.Formato.desde(format);
+            Specification<Denuncia> filtro = denunciaService.construirFiltro(filtros);
+
+            log.info("Solicitud de exportar denuncias en formato {}", formato);
+
+            StreamingResponseBody cuerpo = salida -> exportacionDenunciaService.exportar(filtro, formato, salida);
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(formato.getContentType() + ";charset=UTF-8"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"denuncias." + formato.getExtension() + "\"")
+                    .body(cuerpo);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error al exportar denuncias: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            // El tipo de retorno debe ser StreamingResponseBody también en el error
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(salida -> objectMapper.writeValue(salida, error));
+        }
+    }
+
+    /**
+     * Feed en vivo (Server-Sent Events) de denuncias creadas, modificadas o eliminadas
+     * GET /api/denuncias/stream?estado=PENDIENTE,EN_REVISION&comuna=Temuco
+     *
+     * Cada evento "denuncia" trae {secuencia, denunciaId, tipo, estado, estadoAnterior, comuna};
+     * el detalle se obtiene con GET /api/denuncias/{id}. Un evento "resync" indica
+     * que se perdieron eventos (cliente lento o reconexión con Last-Event-ID) y el
+     * listado debe recargarse completo. La conexión se cierra cuando el token se
+     * revoca (logout, desactivación) o vence.
+     */
+    @PreAuthorize("hasAnyRole('FUNCIONARIO')")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamDenuncias(
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) String comuna,
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId,
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+        try {
+            SseEmitter emitter = streamDenunciaService.suscribir(usuarioAutenticado, estado, comuna, ultimoEventoId);
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                    .header("X-Accel-Buffering", "no") // nginx: entregar cada evento sin buffer
+                    .body(emitter);
+
+        } catch (StreamDenunciaService.CapacidadExcedidaException e) {
+            log.warn("⚠️ Feed de denuncias sin capacidad: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(error);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error al suscribirse al feed de denuncias: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(error);
+        }
+    }
+
+    /**
+     * Conexiones abiertas al feed y eventos enviados o descartados
+     * GET /api/denuncias/stream/metricas
+     */
+    @PreAuthorize("hasAnyRole('FUNCIONARIO')")
+    @GetMapping("/stream/metricas")
+    public ResponseEntity<?> metricasStream() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metricas", streamDenunciaService.metricas());
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Listar denuncias de un usuario por email
      * GET /api/denuncias/mis-denuncias?email=usuario@email.com
@@ -272,6 +476,115 @@ public class DenunciaController {
         }
     }
 
+    /**
+     * Listar denuncias dentro del área visible del mapa
+     * GET /api/denuncias/bbox?minLat=-38.76&maxLat=-38.71&minLon=-72.64&maxLon=-72.56&estado=PENDIENTE&categoriaId=1
+     */
+    @PreAuthorize("hasAnyRole('CIUDADANO', 'FUNCIONARIO')")
+    @GetMapping("/bbox")
+    public ResponseEntity<?> listarEnRectangulo(
+            @RequestParam double minLat,
+            @RequestParam double maxLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLon,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) Long categoriaId,
+            @RequestParam(defaultValue = "500") int limite) {
+        try {
+            List<DenunciaResponse> denuncias = mapaDenunciaService.buscarEnRectangulo(
+                    new GeoUtil.BoundingBox(minLat, maxLat, minLon, maxLon), estado, categoriaId, limite);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("count", denuncias.size());
+            response.put("denuncias", denuncias);
+
+            return ResponseEntity.ok(response);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error al listar denuncias por rectángulo: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    /**
+     * Listar denuncias cercanas a un punto, ordenadas por distancia
+     * GET /api/denuncias/cercanas?lat=-38.7359&lon=-72.5904&radioMetros=1000
+     */
+    @PreAuthorize("hasAnyRole('CIUDADANO', 'FUNCIONARIO')")
+    @GetMapping("/cercanas")
+    public ResponseEntity<?> listarCercanas(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "1000") double radioMetros,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) Long categoriaId,
+            @RequestParam(defaultValue = "500") int limite) {
+        try {
+            List<DenunciaResponse> denuncias = mapaDenunciaService.buscarEnRadio(
+                    lat, lon, radioMetros, estado, categoriaId, limite);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("radioMetros", radioMetros);
+            response.put("count", denuncias.size());
+            response.put("denuncias", denuncias);
+
+            return ResponseEntity.ok(response);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error al listar denuncias cercanas: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
+    /**
+     * Mapa de calor: cantidad de denuncias por celda geohash dentro de un prefijo
+     * GET /api/denuncias/heatmap?prefijo=62z&precision=5&categoriaId=1&estado=PENDIENTE&desde=2025-01-01&hasta=2025-12-31
+     */
+    @PreAuthorize("hasAnyRole('CIUDADANO', 'FUNCIONARIO')")
+    @GetMapping("/heatmap")
+    public ResponseEntity<?> obtenerHeatmap(
+            @RequestParam(required = false) String prefijo,
+            @RequestParam(defaultValue = "6") int precision,
+            @RequestParam(required = false) Long categoriaId,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            List<HeatmapCeldaResponse> celdas = heatmapService.obtenerHeatmap(
+                    prefijo, precision, categoriaId, estado, desde, hasta);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("precision", precision);
+            response.put("count", celdas.size());
+            response.put("total", celdas.stream().mapToLong(HeatmapCeldaResponse::getCantidad).sum());
+            response.put("celdas", celdas);
+
+            return ResponseEntity.ok(response);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error al obtener mapa de calor: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+    }
+
     /**
      * Obtener estadísticas de denuncias
      * GET /api/denuncias/estadisticas
@@ -287,12 +600,7 @@ public class DenunciaController {
             log.info("📊 Solicitud de estadísticas");
             log.info("🔑 Rol del usuario: {}", rol != null ? rol : "SIN TOKEN");
 
-            Map<String, Object> estadisticas = new HashMap<>();
-            estadisticas.put("total", denunciaService.listarTodasLasDenuncias().size());
-            estadisticas.put("pendientes", denunciaService.contarDenunciasPorEstado("PENDIENTE"));
-            estadisticas.put("validadas", denunciaService.contarDenunciasPorEstado("VALIDADA"));
-            estadisticas.put("rechazadas", denunciaService.contarDenunciasPorEstado("RECHAZADA"));
-            estadisticas.put("en_revision", denunciaService.contarDenunciasPorEstado("EN_REVISION"));
+            Map<String, Long> estadisticas = denunciaService.obtenerResumenEstadisticas();
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -403,26 +711,24 @@ public class DenunciaController {
     }
 
     /**
-     * Obtener imagen de evidencia
+     * Obtener evidencia (imagen o video) con soporte de Range, ETag y 304
      * GET /api/denuncias/evidencia/{filename}
+     * Headers opcionales: Range: bytes=0-1048575, If-None-Match, If-Range
+     * Query param opcional: size=thumb|preview (miniatura JPEG; mientras se genera
+     * se entrega el original)
      */
     @GetMapping("/evidencia/{filename:.+}")
-    public ResponseEntity<Resource> obtenerEvidencia(@PathVariable String filename) {
+    public void obtenerEvidencia(@PathVariable String filename,
+                                 @RequestParam(required = false) String size,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
         try {
-            Resource file = denunciaService.obtenerEvidencia(filename);
-
-            String contentType = "image/jpeg";
-            if (filename.toLowerCase().endsWith(".png")) {
-                contentType = "image/png";
-            }
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + file.getFilename() + "\"")
-                    .body(file);
+            descargaEvidenciaService.servir(filename, size, request, response);
         } catch (RuntimeException e) {
             log.error("❌ Error al obtener evidencia: {}", e.getMessage());
-            return ResponseEntity.notFound().build();
+            if (!response.isCommitted()) {
+                response.sendError(HttpStatus.NOT_FOUND.value());
+            }
         }
     }
 
@@ -0,0 +1,68 @@
+package com.example.appmunicipal.controller;
+
+import com.example.appmunicipal.DTO.BarridoEvidenciasResponse;
+import com.example.appmunicipal.service.BarridoHuerfanosService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mantenimiento del almacenamiento de evidencias: métricas de borrados y
+ * conciliación entre el directorio de uploads y la base de datos
+ */
+@RestController
+@RequestMapping("/api/denuncias/evidencias/mantenimiento")
+@RequiredArgsConstructor
+@Slf4j
+public class MantenimientoEvidenciaController {
+
+    private final BarridoHuerfanosService barridoHuerfanosService;
+
+    /**
+     * Métricas del último barrido y de la cola de borrados
+     * GET /api/denuncias/evidencias/mantenimiento
+     */
+    @PreAuthorize("hasAnyRole('FUNCIONARIO')")
+    @GetMapping
+    public ResponseEntity<?> obtenerMetricas() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metricas", barridoHuerfanosService.metricas());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Ejecutar el barrido de archivos huérfanos ahora
+     * POST /api/denuncias/evidencias/mantenimiento/barrido
+     */
+    @PreAuthorize("hasAnyRole('FUNCIONARIO')")
+    @PostMapping("/barrido")
+    public ResponseEntity<?> ejecutarBarrido() {
+        try {
+            BarridoEvidenciasResponse barrido = barridoHuerfanosService.barrer();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Barrido completado");
+            response.put("barrido", barrido);
+
+            return ResponseEntity.ok(response);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error en barrido de evidencias: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        }
+    }
+}
@@ -2,17 +2,26 @@ package com.example.appmunicipal.controller;
 
 import com.example.appmunicipal.DTO.*;
 import com.example.appmunicipal.domain.Rol;
+import com.example.appmunicipal.security.LimiteTasaFilter;
+import com.example.appmunicipal.security.TokenVerificadoCache;
+import com.example.appmunicipal.security.UsuarioAutenticado;
+import com.example.appmunicipal.security.VerificadorContrasenas;
+import com.example.appmunicipal.service.RevocacionTokenService;
 import com.example.appmunicipal.service.UsuarioService;
+import com.example.appmunicipal.service.UsuarioSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/usuarios")
@@ -21,6 +30,11 @@ import java.util.Map;
 public class UsuarioController {
 
     private final UsuarioService usuarioService;
+    private final TokenVerificadoCache tokenVerificadoCache;
+    private final RevocacionTokenService revocacionTokenService;
+    private final UsuarioSnapshotCache usuarioSnapshotCache;
+    private final VerificadorContrasenas verificadorContrasenas;
+    private final LimiteTasaFilter limiteTasaFilter;
 
     /**
      * Registrar un nuevo usuario
@@ -79,18 +93,56 @@ public class UsuarioController {
      * Retorna JWT Token en la respuesta
      */
     @PostMapping("/login")
-    public ResponseEntity<LoginResponse> login(@RequestBody LoginRequest request) {
+    public CompletableFuture<ResponseEntity<LoginResponse>> login(@RequestBody LoginRequest request) {
         log.info("🔐 Solicitud de login recibida para: {}", request.getEmail());
 
-        LoginResponse response = usuarioService.login(request);
-
-        if (response.isSuccess()) {
-            log.info("✅ Login exitoso - JWT Token generado para: {}", request.getEmail());
-            return ResponseEntity.ok(response);
-        } else {
-            log.warn("❌ Login fallido para: {} - Razón: {}", request.getEmail(), response.getMessage());
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        CompletableFuture<LoginResponse> login;
+        try {
+            login = usuarioService.login(request);
+        } catch (VerificadorContrasenas.SaturadoException e) {
+            // Cola de BCrypt llena: el cliente reintenta en vez de esperar un hilo
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getReintentarEnSegundos()))
+                    .body(new LoginResponse(false, e.getMessage(), null, null)));
         }
+
+        return login.thenApply(response -> {
+            if (response.isSuccess()) {
+                log.info("✅ Login exitoso - JWT Token generado para: {}", request.getEmail());
+                return ResponseEntity.ok(response);
+            } else {
+                log.warn("❌ Login fallido para: {} - Razón: {}", request.getEmail(), response.getMessage());
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+            }
+        });
+    }
+
+    /**
+     * Estado del pool de verificación de contraseñas y latencia de BCrypt
+     * GET /api/usuarios/login/metricas
+     */
+    @PreAuthorize("hasAnyRole('FUNCIONARIO')")
+    @GetMapping("/login/metricas")
+    public ResponseEntity<?> obtenerMetricasLogin() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metricas", verificadorContrasenas.metricas());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Peticiones permitidas y rechazadas por el límite de tasa (login, registro, denuncias)
+     * GET /api/usuarios/limites/metricas
+     */
+    @PreAuthorize("hasAnyRole('FUNCIONARIO')")
+    @GetMapping("/limites/metricas")
+    public ResponseEntity<?> obtenerMetricasLimites() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metricas", limiteTasaFilter.metricas());
+
+        return ResponseEntity.ok(response);
     }
 
     /**
@@ -123,20 +175,18 @@ public class UsuarioController {
      */
     @PreAuthorize("hasAnyRole('CIUDADANO', 'FUNCIONARIO')")
     @GetMapping("/token/info")
-    public ResponseEntity<?> obtenerInfoToken(
-            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+    public ResponseEntity<?> obtenerInfoToken(@AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
 
         try {
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            // Token ya verificado por JwtAuthenticationFilter
+            if (usuarioAutenticado == null) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("success", false);
                 error.put("message", "Token no proporcionado");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
             }
 
-            String token = authHeader.substring(7); // Remover "Bearer "
-
-            Map<String, Object> info = usuarioService.obtenerInfoToken(token);
+            Map<String, Object> info = usuarioService.obtenerInfoToken(usuarioAutenticado);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -157,6 +207,75 @@ public class UsuarioController {
         }
     }
 
+    /**
+     * Métricas del cache de tokens verificados (tasa de aciertos), de revocaciones en memoria
+     * y del cache de usuarios por email
+     * GET /api/usuarios/token/cache
+     */
+    @PreAuthorize("hasAnyRole('FUNCIONARIO')")
+    @GetMapping("/token/cache")
+    public ResponseEntity<?> obtenerMetricasTokenCache() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metricas", tokenVerificadoCache.metricas());
+        response.put("revocaciones", revocacionTokenService.metricas());
+        response.put("usuarios", usuarioSnapshotCache.metricas());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Cerrar sesión (revoca el token actual)
+     * POST /api/usuarios/logout
+     * Header: Authorization: Bearer {token}
+     */
+    @PreAuthorize("hasAnyRole('CIUDADANO', 'FUNCIONARIO')")
+    @PostMapping("/logout")
+    public ResponseEntity<?> cerrarSesion(@AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+        if (usuarioAutenticado == null) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", "Token no proporcionado");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+        }
+
+        usuarioService.cerrarSesion(usuarioAutenticado);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Sesión cerrada");
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Desactivar un usuario y revocar sus sesiones
+     * PUT /api/usuarios/{id}/desactivar
+     */
+    @PreAuthorize("hasAnyRole('FUNCIONARIO')")
+    @PutMapping("/{id}/desactivar")
+    public ResponseEntity<?> desactivarUsuario(@PathVariable Long id) {
+        try {
+            UsuarioResponse usuario = usuarioService.desactivarUsuario(id);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Usuario desactivado");
+            response.put("usuario", usuario);
+
+            return ResponseEntity.ok(response);
+
+        } catch (RuntimeException e) {
+            log.error("❌ Error al desactivar usuario: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+
     /**
      * Obtener perfil del usuario desde el token JWT
      * GET /api/usuarios/sesion/perfil
@@ -164,27 +283,25 @@ public class UsuarioController {
      */
     @PreAuthorize("hasAnyRole('CIUDADANO', 'FUNCIONARIO')")
     @GetMapping("/sesion/perfil")
-    public ResponseEntity<?> obtenerPerfilDesdeToken(
-            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+    public ResponseEntity<?> obtenerPerfilDesdeToken(@AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
 
         try {
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            // Token ya verificado por JwtAuthenticationFilter
+            if (usuarioAutenticado == null) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("success", false);
                 error.put("message", "Token no proporcionado");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
             }
 
-            String token = authHeader.substring(7); // Remover "Bearer "
-
-            if (!usuarioService.validarToken(token)) {
+            if (!usuarioService.validarSesion(usuarioAutenticado)) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("success", false);
                 error.put("message", "Token JWT inválido o expirado");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
             }
 
-            Long usuarioId = usuarioService.obtenerUsuarioIdDesdeToken(token);
+            Long usuarioId = usuarioAutenticado.usuarioId();
             UsuarioResponse usuario = usuarioService.buscarPorId(usuarioId);
 
             Map<String, Object> response = new HashMap<>();
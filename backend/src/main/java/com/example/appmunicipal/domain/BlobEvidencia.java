@@ -0,0 +1,30 @@
+package com.example.appmunicipal.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Contenido de evidencia almacenado por su SHA-256 (uploads/ab/cd/<sha256>).
+ * Varias evidencias con el mismo contenido comparten el archivo; referencias
+ * cuenta cuántas filas de evidencias apuntan a él y el archivo se borra recién
+ * cuando llega a cero.
+ */
+@Entity
+@Table(name = "blobs_evidencia")
+@Data
+public class BlobEvidencia {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(name = "tamano_bytes", nullable = false)
+    private Long tamanoBytes;
+
+    @Column(nullable = false)
+    private Integer referencias;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+}
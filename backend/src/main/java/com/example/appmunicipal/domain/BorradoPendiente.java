@@ -0,0 +1,46 @@
+package com.example.appmunicipal.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Archivo de evidencia que se debe borrar del almacén (outbox transaccional).
+ * La fila se inserta en la misma transacción que elimina la evidencia y el
+ * archivo se borra recién después del commit: si la transacción se revierte
+ * la fila desaparece y el archivo queda intacto.
+ */
+@Entity
+@Table(name = "borrados_pendientes")
+@Data
+public class BorradoPendiente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Clave en el EvidenceStore, o ruta relativa a uploads si es un archivo local
+    @Column(nullable = false, length = 500)
+    private String ruta;
+
+    // Archivo parcial de una carga reanudable: siempre está en el disco local,
+    // aunque el almacén de evidencias sea remoto
+    @Column(name = "archivo_local", nullable = false)
+    private Boolean archivoLocal = false;
+
+    // Hash del blob (null para archivos antiguos o parciales): si el contenido se
+    // volvió a subir antes del borrado, el archivo se conserva
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private Integer intentos = 0;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.appmunicipal.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Carga reanudable de una evidencia (protocolo estilo tus).
+ * El cliente inicia la carga, envía fragmentos indicando el offset y la completa;
+ * bytesRecibidos se persiste tras cada fragmento para poder reanudar después
+ * de un corte. La Evidencia recién se crea al completar.
+ */
+@Entity
+@Table(name = "cargas_evidencia", indexes = {
+        @Index(name = "idx_cargas_evidencia_estado_fecha", columnList = "estado, fecha_actualizacion")
+})
+@Data
+public class CargaEvidencia {
+
+    // UUID entregado al cliente; funciona como identificador y como permiso de escritura
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "denuncia_id", nullable = false)
+    private Denuncia denuncia;
+
+    // Nombre definitivo en el directorio de uploads (se escribe directo ahí)
+    @Column(name = "nombre_archivo", nullable = false, length = 200)
+    private String nombreArchivo;
+
+    @Column(name = "mime_type", length = 50)
+    private String mimeType;
+
+    @Column(name = "tamano_total", nullable = false)
+    private Long tamanoTotal;
+
+    @Column(name = "bytes_recibidos", nullable = false)
+    private Long bytesRecibidos = 0L;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoCarga estado = EstadoCarga.EN_CURSO;
+
+    @Column(name = "evidencia_id")
+    private Long evidenciaId;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+        fechaActualizacion = fechaCreacion;
+    }
+
+    public enum EstadoCarga {
+        EN_CURSO,
+        COMPLETADA
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.appmunicipal.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+
+/**
+ * Conteo pre-agregado de denuncias por (celda geohash, día, categoría, estado).
+ * La celda es el prefijo de 6 caracteres del geohash de la denuncia (~1.2 x 0.6 km),
+ * suficiente para un mapa de calor a nivel de barrio; precisiones menores se
+ * obtienen agrupando por un prefijo más corto.
+ */
+@Entity
+@Table(name = "celdas_mapa", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_celdas_mapa_clave",
+                columnNames = {"celda", "dia", "categoria_id", "estado"})
+})
+@Data
+public class CeldaMapa {
+
+    // Largo de la celda almacenada (precisión máxima del mapa de calor)
+    public static final int PRECISION_CELDA = 6;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = PRECISION_CELDA)
+    private String celda;
+
+    @Column(nullable = false)
+    private LocalDate dia;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "categoria_id", nullable = false)
+    private Categoria categoria;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Denuncia.EstadoDenuncia estado;
+
+    @Column(nullable = false)
+    private Long cantidad;
+}
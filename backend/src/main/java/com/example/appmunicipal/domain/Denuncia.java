@@ -9,7 +9,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "denuncias")
+@Table(name = "denuncias", indexes = {
+        // Paginación por cursor: ORDER BY fecha_denuncia DESC, id DESC
+        @Index(name = "idx_denuncias_fecha_id", columnList = "fecha_denuncia, id"),
+        // Promedio y percentiles de tiempo de validación
+        @Index(name = "idx_denuncias_duracion_validacion", columnList = "duracion_validacion_segundos"),
+        // Consultas por área del mapa: LIKE 'prefijo%' sobre geohash + filtros del mapa
+        @Index(name = "idx_denuncias_geohash", columnList = "geohash, estado, categoria_id"),
+        // Búsqueda combinada (/api/denuncias/buscar): filtro de igualdad + orden por fecha
+        @Index(name = "idx_denuncias_estado_fecha", columnList = "estado, fecha_denuncia"),
+        @Index(name = "idx_denuncias_categoria_fecha", columnList = "categoria_id, fecha_denuncia"),
+        @Index(name = "idx_denuncias_comuna_sector_fecha", columnList = "comuna, sector, fecha_denuncia"),
+        @Index(name = "idx_denuncias_revisor_fecha", columnList = "revisor_id, fecha_denuncia"),
+        @Index(name = "idx_denuncias_patente", columnList = "patente")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,7 +36,8 @@ public class Denuncia {
     @JoinColumn(name = "usuario_id", nullable = false)
     private Usuario usuario;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // LAZY: nombre, código y color se toman del CategoriaRegistry por id
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "categoria_id", nullable = false)
     private Categoria categoria;
 
@@ -39,6 +53,10 @@ public class Denuncia {
     @Column(nullable = false)
     private Double longitud;
 
+    // Geohash de (latitud, longitud), se calcula al crear la denuncia
+    @Column(length = 12)
+    private String geohash;
+
     @Column(length = 200)
     private String direccion;
 
@@ -58,6 +76,10 @@ public class Denuncia {
     @Column(name = "fecha_validacion")
     private LocalDateTime fechaValidacion;
 
+    // Segundos entre fechaDenuncia y fechaValidacion (se calcula al validar/rechazar)
+    @Column(name = "duracion_validacion_segundos")
+    private Long duracionValidacionSegundos;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "revisor_id")
     private Usuario revisor;
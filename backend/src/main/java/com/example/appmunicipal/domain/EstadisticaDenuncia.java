@@ -0,0 +1,47 @@
+package com.example.appmunicipal.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+
+/**
+ * Conteo pre-agregado de denuncias por (día, hora, categoría, comuna, sector, estado).
+ * Se mantiene de forma incremental desde los servicios y alimenta el dashboard.
+ * Comuna y sector se guardan en mayúsculas y con '' en lugar de NULL para que
+ * la clave única funcione igual en H2 y MySQL.
+ */
+@Entity
+@Table(name = "estadisticas_denuncias", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_estadisticas_denuncias_clave",
+                columnNames = {"dia", "hora", "categoria_id", "comuna", "sector", "estado"})
+})
+@Data
+public class EstadisticaDenuncia {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate dia;
+
+    @Column(nullable = false)
+    private Integer hora;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "categoria_id", nullable = false)
+    private Categoria categoria;
+
+    @Column(nullable = false, length = 100)
+    private String comuna;
+
+    @Column(nullable = false, length = 100)
+    private String sector;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Denuncia.EstadoDenuncia estado;
+
+    @Column(nullable = false)
+    private Long cantidad;
+}
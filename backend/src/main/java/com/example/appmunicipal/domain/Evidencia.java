@@ -5,7 +5,10 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "evidencias")
+@Table(name = "evidencias", indexes = {
+        // Descarga por nombre: GET /api/denuncias/evidencia/{filename}
+        @Index(name = "idx_evidencias_nombre_archivo", columnList = "nombre_archivo")
+})
 @Data
 public class Evidencia {
 
@@ -33,6 +36,10 @@ public class Evidencia {
     @Column
     private Long tamanoBytes;
 
+    // SHA-256 del contenido, se usa como ETag fuerte en la descarga
+    @Column(name = "hash_contenido", length = 64)
+    private String hashContenido;
+
     @Column(name = "fecha_subida", nullable = false, updatable = false)
     private LocalDateTime fechaSubida;
 
@@ -43,6 +50,10 @@ public class Evidencia {
 
     public enum TipoEvidencia {
         FOTO,
-        VIDEO
+        VIDEO;
+
+        public static TipoEvidencia desdeMimeType(String mimeType) {
+            return mimeType != null && mimeType.startsWith("video") ? VIDEO : FOTO;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.appmunicipal.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Revocación de tokens JWT:
+ * - jti != null: un token puntual (logout)
+ * - jti == null: todos los tokens del usuario emitidos hasta fechaRevocacion
+ *   (usuario desactivado)
+ *
+ * La fila sirve hasta que vence el último token afectado (expiracion); después
+ * se elimina.
+ */
+@Entity
+@Table(name = "tokens_revocados", indexes = {
+        @Index(name = "idx_tokens_revocados_expiracion", columnList = "expiracion")
+})
+@Data
+public class TokenRevocado {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 36)
+    private String jti;
+
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+
+    @Column(name = "fecha_revocacion", nullable = false)
+    private LocalDateTime fechaRevocacion;
+
+    @Column(nullable = false)
+    private LocalDateTime expiracion;
+
+    @Column(length = 50)
+    private String motivo;
+}
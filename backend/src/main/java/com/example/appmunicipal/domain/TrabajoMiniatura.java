@@ -0,0 +1,51 @@
+package com.example.appmunicipal.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Trabajo pendiente de generación de miniaturas para un blob de imagen.
+ * La cola vive en la base de datos: si el servidor se reinicia con trabajos
+ * pendientes (o a medio procesar) se retoman al arrancar.
+ */
+@Entity
+@Table(name = "trabajos_miniatura", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_trabajos_miniatura_hash", columnNames = "hash")
+}, indexes = {
+        @Index(name = "idx_trabajos_miniatura_estado_fecha", columnList = "estado, fecha_actualizacion")
+})
+@Data
+public class TrabajoMiniatura {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256 del blob original (uploads/ab/cd/<hash>)
+    @Column(nullable = false, length = 64)
+    private String hash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoTrabajo estado;
+
+    @Column(nullable = false)
+    private Integer intentos;
+
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+
+    public enum EstadoTrabajo {
+        PENDIENTE,
+        EN_PROCESO,
+        COMPLETADO,
+        FALLIDO
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.appmunicipal.repository;
+
+import com.example.appmunicipal.domain.BlobEvidencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BlobEvidenciaRepository extends JpaRepository<BlobEvidencia, String> {
+
+    // Upsert atómico: crea el blob con una referencia o suma una a la existente
+    @Modifying
+    @Query(value = "INSERT INTO blobs_evidencia (hash, tamano_bytes, referencias, fecha_creacion) " +
+            "VALUES (:hash, :tamanoBytes, 1, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE referencias = referencias + 1", nativeQuery = true)
+    int sumarReferencia(@Param("hash") String hash, @Param("tamanoBytes") long tamanoBytes);
+
+    @Modifying
+    @Query("UPDATE BlobEvidencia b SET b.referencias = b.referencias - 1 " +
+            "WHERE b.hash = :hash AND b.referencias > 0")
+    int restarReferencia(@Param("hash") String hash);
+
+    // Devuelve 1 solo si el blob quedó sin referencias: entonces se puede borrar el archivo
+    @Modifying
+    @Query("DELETE FROM BlobEvidencia b WHERE b.hash = :hash AND b.referencias = 0")
+    int eliminarSinReferencias(@Param("hash") String hash);
+
+    @Query("SELECT b.referencias FROM BlobEvidencia b WHERE b.hash = :hash")
+    Integer findReferencias(@Param("hash") String hash);
+
+    // Lápida (referencias = 0) que reserva el hash mientras se borra su archivo. Devuelve 0 si
+    // el blob tiene fila; una subida concurrente del mismo contenido espera al commit
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO blobs_evidencia (hash, tamano_bytes, referencias, fecha_creacion) " +
+            "VALUES (:hash, 0, 0, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int reservarParaBorrado(@Param("hash") String hash);
+
+    @Query("SELECT b.hash FROM BlobEvidencia b")
+    List<String> findHashes();
+}
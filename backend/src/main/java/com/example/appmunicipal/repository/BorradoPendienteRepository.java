@@ -0,0 +1,19 @@
+package com.example.appmunicipal.repository;
+
+import com.example.appmunicipal.domain.BorradoPendiente;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BorradoPendienteRepository extends JpaRepository<BorradoPendiente, Long> {
+
+    // Recorrido por id: los que fallan quedan atrás y no bloquean al resto
+    List<BorradoPendiente> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT b.ruta FROM BorradoPendiente b")
+    List<String> findRutas();
+}
@@ -0,0 +1,34 @@
+package com.example.appmunicipal.repository;
+
+import com.example.appmunicipal.domain.CargaEvidencia;
+import com.example.appmunicipal.domain.CargaEvidencia.EstadoCarga;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CargaEvidenciaRepository extends JpaRepository<CargaEvidencia, String> {
+
+    // Avanza el offset solo si nadie lo movió desde la lectura (0 filas = conflicto)
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE CargaEvidencia c SET c.bytesRecibidos = :nuevoOffset, c.fechaActualizacion = :ahora " +
+            "WHERE c.id = :id AND c.bytesRecibidos = :offsetAnterior AND c.estado = 'EN_CURSO'")
+    int avanzarOffset(@Param("id") String id,
+                      @Param("offsetAnterior") Long offsetAnterior,
+                      @Param("nuevoOffset") Long nuevoOffset,
+                      @Param("ahora") LocalDateTime ahora);
+
+    List<CargaEvidencia> findByEstadoAndFechaActualizacionBefore(EstadoCarga estado, LocalDateTime limite);
+
+    List<CargaEvidencia> findByDenunciaId(Long denunciaId);
+
+    @Query("SELECT c.nombreArchivo FROM CargaEvidencia c WHERE c.estado = 'EN_CURSO'")
+    List<String> findNombresArchivoEnCurso();
+}
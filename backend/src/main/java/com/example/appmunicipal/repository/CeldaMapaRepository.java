@@ -0,0 +1,76 @@
+package com.example.appmunicipal.repository;
+
+import com.example.appmunicipal.domain.CeldaMapa;
+import com.example.appmunicipal.domain.Denuncia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CeldaMapaRepository extends JpaRepository<CeldaMapa, Long> {
+
+    // ==========================================
+    // MANTENIMIENTO INCREMENTAL
+    // ==========================================
+
+    @Modifying
+    @Query(value = "INSERT INTO celdas_mapa (celda, dia, categoria_id, estado, cantidad) " +
+            "VALUES (:celda, :dia, :categoriaId, :estado, :delta) " +
+            "ON DUPLICATE KEY UPDATE cantidad = cantidad + :delta", nativeQuery = true)
+    int acumular(@Param("celda") String celda,
+                 @Param("dia") LocalDate dia,
+                 @Param("categoriaId") Long categoriaId,
+                 @Param("estado") String estado,
+                 @Param("delta") long delta);
+
+    // ==========================================
+    // RECONCILIACIÓN CON LA TABLA DENUNCIAS
+    // ==========================================
+
+    // Conteo esperado por clave para las denuncias de [desde, hasta) (requiere geohash completado)
+    @Query(value = "SELECT SUBSTRING(d.geohash, 1, 6), CAST(d.fecha_denuncia AS DATE), d.categoria_id, d.estado, COUNT(*) " +
+            "FROM denuncias d WHERE d.geohash IS NOT NULL " +
+            "AND d.fecha_denuncia >= :desde AND d.fecha_denuncia < :hasta " +
+            "GROUP BY SUBSTRING(d.geohash, 1, 6), CAST(d.fecha_denuncia AS DATE), d.categoria_id, d.estado",
+            nativeQuery = true)
+    List<Object[]> contarDenuncias(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
+    // Conteo guardado por clave para los días de [desde, hasta)
+    @Query(value = "SELECT celda, dia, categoria_id, estado, cantidad " +
+            "FROM celdas_mapa WHERE dia >= :desde AND dia < :hasta", nativeQuery = true)
+    List<Object[]> contarGuardadas(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Modifying
+    @Query(value = "DELETE FROM celdas_mapa WHERE dia >= :desde AND dia < :hasta AND cantidad = 0",
+            nativeQuery = true)
+    int eliminarVacias(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Query("SELECT MIN(c.dia) FROM CeldaMapa c")
+    LocalDate primerDia();
+
+    @Query("SELECT MAX(c.dia) FROM CeldaMapa c")
+    LocalDate ultimoDia();
+
+    // ==========================================
+    // LECTURA DEL MAPA DE CALOR
+    // ==========================================
+
+    // Conteo por celda almacenada dentro de :prefijo (el servicio agrupa a menor precisión)
+    @Query("SELECT c.celda, SUM(c.cantidad) FROM CeldaMapa c " +
+            "WHERE c.celda LIKE CONCAT(:prefijo, '%') " +
+            "AND c.dia BETWEEN :desde AND :hasta " +
+            "AND (:categoriaId IS NULL OR c.categoria.id = :categoriaId) " +
+            "AND (:estado IS NULL OR c.estado = :estado) " +
+            "GROUP BY c.celda HAVING SUM(c.cantidad) > 0")
+    List<Object[]> sumPorCelda(@Param("prefijo") String prefijo,
+                               @Param("desde") LocalDate desde,
+                               @Param("hasta") LocalDate hasta,
+                               @Param("categoriaId") Long categoriaId,
+                               @Param("estado") Denuncia.EstadoDenuncia estado);
+}
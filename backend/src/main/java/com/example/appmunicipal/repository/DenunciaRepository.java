@@ -4,7 +4,10 @@ import com.example.appmunicipal.domain.Denuncia;
 import com.example.appmunicipal.domain.Denuncia.EstadoDenuncia;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,28 +16,36 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface DenunciaRepository extends JpaRepository<Denuncia, Long> {
+public interface DenunciaRepository extends JpaRepository<Denuncia, Long>, JpaSpecificationExecutor<Denuncia> {
 
     // Búsquedas básicas
+    // Los listados cargan el usuario en el mismo SELECT (JOIN) para evitar N+1;
+    // la categoría se resuelve con CategoriaRegistry
     List<Denuncia> findByUsuarioId(Long usuarioId);
 
+    @EntityGraph(attributePaths = {"usuario"})
     List<Denuncia> findByEstado(EstadoDenuncia estado);
 
+    @EntityGraph(attributePaths = {"usuario"})
     List<Denuncia> findByCategoriaId(Long categoriaId);
 
     List<Denuncia> findByPatente(String patente);
 
+    @EntityGraph(attributePaths = {"usuario"})
     List<Denuncia> findByRevisorId(Long revisorId);
 
     // Ordenar por fecha descendente (más recientes primero)
+    @EntityGraph(attributePaths = {"usuario"})
     List<Denuncia> findAllByOrderByFechaDenunciaDesc();
 
+    @EntityGraph(attributePaths = {"usuario"})
     List<Denuncia> findByUsuarioIdOrderByFechaDenunciaDesc(Long usuarioId);
 
     // Filtros por fecha
     List<Denuncia> findByFechaDenunciaBetween(LocalDateTime inicio, LocalDateTime fin);
 
     // Denuncias por sector
+    @EntityGraph(attributePaths = {"usuario"})
     List<Denuncia> findBySector(String sector);
 
     // Denuncias por comuna
@@ -46,9 +57,28 @@ public interface DenunciaRepository extends JpaRepository<Denuncia, Long> {
     // Contar denuncias por estado
     Long countByEstado(EstadoDenuncia estado);
 
+    // Denuncias sin geohash (creadas antes de la columna o cargadas por data.sql)
+    List<Denuncia> findByGeohashIsNull(Pageable pageable);
+
     // Paginación - Listar todas las denuncias ordenadas por fecha descendente
+    @EntityGraph(attributePaths = {"usuario"})
     Page<Denuncia> findAllByOrderByFechaDenunciaDesc(Pageable pageable);
 
+    // Paginación por cursor (keyset) - Primera página, sin COUNT(*)
+    @EntityGraph(attributePaths = {"usuario"})
+    @Query("SELECT d FROM Denuncia d ORDER BY d.fechaDenuncia DESC, d.id DESC")
+    List<Denuncia> findPrimeraPaginaKeyset(Pageable pageable);
+
+    // Paginación por cursor (keyset) - Filas estrictamente posteriores al cursor
+    // Usa idx_denuncias_fecha_id, por lo que el costo no depende de la profundidad
+    @EntityGraph(attributePaths = {"usuario"})
+    @Query("SELECT d FROM Denuncia d " +
+            "WHERE d.fechaDenuncia < :fecha OR (d.fechaDenuncia = :fecha AND d.id < :id) " +
+            "ORDER BY d.fechaDenuncia DESC, d.id DESC")
+    List<Denuncia> findPaginaKeysetDespuesDe(@Param("fecha") LocalDateTime fecha,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
     // ==========================================
     // ESTADÍSTICAS OPTIMIZADAS (JPQL)
     // ==========================================
@@ -77,10 +107,31 @@ public interface DenunciaRepository extends JpaRepository<Denuncia, Long> {
     @Query("SELECT c.nombre, COUNT(d) FROM Denuncia d JOIN d.categoria c GROUP BY c.id, c.nombre ORDER BY COUNT(d) DESC")
     List<Object[]> countDenunciasByCategoria();
 
-    // Tiempo promedio de validación (en horas)
-    // Solo para denuncias que tienen fechaValidacion
-    @Query("SELECT d.fechaDenuncia, d.fechaValidacion FROM Denuncia d WHERE d.fechaValidacion IS NOT NULL")
-    List<Object[]> findFechasParaPromedioValidacion();
+    // Tiempo promedio de validación (en segundos)
+    // Solo para denuncias que tienen duración de validación
+    @Query("SELECT AVG(d.duracionValidacionSegundos) FROM Denuncia d WHERE d.duracionValidacionSegundos IS NOT NULL")
+    Double avgDuracionValidacionSegundos();
+
+    // Histograma de tiempos de validación por hora (bucket = horas completas)
+    // Se usa para calcular mediana, p90 y p99 sin traer filas a Java
+    @Query("SELECT FLOOR(d.duracionValidacionSegundos / 3600), COUNT(d) FROM Denuncia d " +
+            "WHERE d.duracionValidacionSegundos IS NOT NULL " +
+            "GROUP BY FLOOR(d.duracionValidacionSegundos / 3600)")
+    List<Object[]> histogramaDuracionValidacionPorHora();
+
+    // Completa la duración en denuncias validadas antes de existir la columna (o cargadas por data.sql)
+    @Modifying
+    @Query(value = "UPDATE denuncias SET duracion_validacion_segundos = " +
+            "TIMESTAMPDIFF(SECOND, fecha_denuncia, fecha_validacion) " +
+            "WHERE fecha_denuncia >= :desde AND fecha_denuncia < :hasta " +
+            "AND fecha_validacion IS NOT NULL AND duracion_validacion_segundos IS NULL", nativeQuery = true)
+    int completarDuracionValidacion(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
+    @Query("SELECT MIN(d.fechaDenuncia) FROM Denuncia d")
+    LocalDateTime primeraFechaDenuncia();
+
+    @Query("SELECT MAX(d.fechaDenuncia) FROM Denuncia d")
+    LocalDateTime ultimaFechaDenuncia();
 
     // Cantidad de denuncias por Sector (Solo Temuco)
 
@@ -0,0 +1,115 @@
+package com.example.appmunicipal.repository;
+
+import com.example.appmunicipal.domain.Denuncia;
+import com.example.appmunicipal.domain.Denuncia.EstadoDenuncia;
+import com.example.appmunicipal.util.GeoUtil;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Filtros combinables para DenunciaRepository (JpaSpecificationExecutor)
+ */
+public final class DenunciaSpecifications {
+
+    private DenunciaSpecifications() {
+    }
+
+    // Carga el usuario en el mismo SELECT (no aplica a consultas COUNT);
+    // la categoría se resuelve con CategoriaRegistry
+    public static Specification<Denuncia> conUsuario() {
+        return (root, query, cb) -> {
+            Class<?> resultado = query.getResultType();
+            if (resultado != Long.class && resultado != long.class) {
+                root.fetch("usuario", JoinType.INNER);
+            }
+            return null;
+        };
+    }
+
+    // Algún prefijo de geohash (cada uno se resuelve como rango sobre idx_denuncias_geohash)
+    public static Specification<Denuncia> geohashConPrefijo(Collection<String> prefijos) {
+        return (root, query, cb) -> cb.or(prefijos.stream()
+                .map(prefijo -> cb.like(root.get("geohash"), prefijo + "%"))
+                .toArray(Predicate[]::new));
+    }
+
+    public static Specification<Denuncia> dentroDe(double minLat, double maxLat, double minLon, double maxLon) {
+        return (root, query, cb) -> cb.and(
+                cb.between(root.get("latitud"), minLat, maxLat),
+                cb.between(root.get("longitud"), minLon, maxLon));
+    }
+
+    // Distancia plana (equirectangular) al centro en la base de datos, ordenada de menor a mayor.
+    // Con radios de hasta 50 km el error es < 1%: se usa ese margen y el llamador
+    // descarta con la distancia exacta lo que quede fuera del círculo.
+    public static Specification<Denuncia> cercaDe(double lat, double lon, double radioMetros) {
+        double limite = radioMetros * 1.01;
+        return (root, query, cb) -> {
+            Expression<Double> distancia = distanciaCuadrada(root, cb, lat, lon);
+            Class<?> resultado = query.getResultType();
+            if (resultado != Long.class && resultado != long.class) {
+                query.orderBy(cb.asc(distancia), cb.asc(root.get("id")));
+            }
+            return cb.lessThanOrEqualTo(distancia, limite * limite);
+        };
+    }
+
+    public static Specification<Denuncia> conEstado(EstadoDenuncia estado) {
+        return (root, query, cb) -> estado == null ? null : cb.equal(root.get("estado"), estado);
+    }
+
+    public static Specification<Denuncia> conCategoria(Long categoriaId) {
+        return (root, query, cb) -> categoriaId == null ? null : cb.equal(root.get("categoria").get("id"), categoriaId);
+    }
+
+    public static Specification<Denuncia> conComuna(String comuna) {
+        return (root, query, cb) -> comuna == null ? null : cb.equal(root.get("comuna"), comuna);
+    }
+
+    public static Specification<Denuncia> conSector(String sector) {
+        return (root, query, cb) -> sector == null ? null : cb.equal(root.get("sector"), sector);
+    }
+
+    // La patente se guarda normalizada en mayúsculas al crear la denuncia
+    public static Specification<Denuncia> conPatente(String patente) {
+        return (root, query, cb) -> patente == null ? null : cb.equal(root.get("patente"), patente);
+    }
+
+    public static Specification<Denuncia> conRevisor(Long revisorId) {
+        return (root, query, cb) -> revisorId == null ? null : cb.equal(root.get("revisor").get("id"), revisorId);
+    }
+
+    // Rango [desde, hasta) sobre fechaDenuncia; cualquiera de los extremos puede ser null
+    public static Specification<Denuncia> fechaEntre(LocalDateTime desde, LocalDateTime hasta) {
+        return (root, query, cb) -> {
+            if (desde == null && hasta == null) {
+                return null;
+            }
+            if (hasta == null) {
+                return cb.greaterThanOrEqualTo(root.get("fechaDenuncia"), desde);
+            }
+            if (desde == null) {
+                return cb.lessThan(root.get("fechaDenuncia"), hasta);
+            }
+            return cb.and(
+                    cb.greaterThanOrEqualTo(root.get("fechaDenuncia"), desde),
+                    cb.lessThan(root.get("fechaDenuncia"), hasta));
+        };
+    }
+
+    // (dx² + dy²) en metros² con la longitud escalada por cos(lat) del centro
+    private static Expression<Double> distanciaCuadrada(Root<Denuncia> root, CriteriaBuilder cb,
+                                                        double lat, double lon) {
+        double metrosPorGradoLon = GeoUtil.METROS_POR_GRADO_LAT * Math.cos(Math.toRadians(lat));
+        Expression<Double> dy = cb.prod(cb.diff(root.<Double>get("latitud"), lat), GeoUtil.METROS_POR_GRADO_LAT);
+        Expression<Double> dx = cb.prod(cb.diff(root.<Double>get("longitud"), lon), metrosPorGradoLon);
+        return cb.sum(cb.prod(dy, dy), cb.prod(dx, dx));
+    }
+}
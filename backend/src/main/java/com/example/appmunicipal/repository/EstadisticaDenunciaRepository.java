@@ -0,0 +1,95 @@
+package com.example.appmunicipal.repository;
+
+import com.example.appmunicipal.domain.EstadisticaDenuncia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EstadisticaDenunciaRepository extends JpaRepository<EstadisticaDenuncia, Long> {
+
+    // ==========================================
+    // MANTENIMIENTO INCREMENTAL
+    // ==========================================
+
+    // Suma delta (+1 / -1) a la fila de la clave, creándola si no existe
+    // ON DUPLICATE KEY UPDATE es soportado por MySQL y por H2 en MODE=MySQL
+    @Modifying
+    @Query(value = "INSERT INTO estadisticas_denuncias (dia, hora, categoria_id, comuna, sector, estado, cantidad) " +
+            "VALUES (:dia, :hora, :categoriaId, :comuna, :sector, :estado, :delta) " +
+            "ON DUPLICATE KEY UPDATE cantidad = cantidad + :delta", nativeQuery = true)
+    int acumular(@Param("dia") LocalDate dia,
+                 @Param("hora") Integer hora,
+                 @Param("categoriaId") Long categoriaId,
+                 @Param("comuna") String comuna,
+                 @Param("sector") String sector,
+                 @Param("estado") String estado,
+                 @Param("delta") long delta);
+
+    // ==========================================
+    // RECONCILIACIÓN CON LA TABLA DENUNCIAS
+    // ==========================================
+
+    // Conteo esperado por clave para las denuncias de [desde, hasta)
+    @Query(value = "SELECT CAST(d.fecha_denuncia AS DATE), HOUR(d.fecha_denuncia), d.categoria_id, " +
+            "COALESCE(UPPER(d.comuna), ''), COALESCE(UPPER(d.sector), ''), d.estado, COUNT(*) " +
+            "FROM denuncias d WHERE d.fecha_denuncia >= :desde AND d.fecha_denuncia < :hasta " +
+            "GROUP BY CAST(d.fecha_denuncia AS DATE), HOUR(d.fecha_denuncia), d.categoria_id, " +
+            "COALESCE(UPPER(d.comuna), ''), COALESCE(UPPER(d.sector), ''), d.estado", nativeQuery = true)
+    List<Object[]> contarDenuncias(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
+    // Conteo guardado por clave para los días de [desde, hasta)
+    @Query(value = "SELECT dia, hora, categoria_id, comuna, sector, estado, cantidad " +
+            "FROM estadisticas_denuncias WHERE dia >= :desde AND dia < :hasta", nativeQuery = true)
+    List<Object[]> contarGuardadas(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Modifying
+    @Query(value = "DELETE FROM estadisticas_denuncias WHERE dia >= :desde AND dia < :hasta AND cantidad = 0",
+            nativeQuery = true)
+    int eliminarVacias(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Query("SELECT MIN(e.dia) FROM EstadisticaDenuncia e")
+    LocalDate primerDia();
+
+    @Query("SELECT MAX(e.dia) FROM EstadisticaDenuncia e")
+    LocalDate ultimoDia();
+
+    // ==========================================
+    // LECTURAS PARA EL DASHBOARD
+    // ==========================================
+
+    @Query("SELECT COALESCE(SUM(e.cantidad), 0) FROM EstadisticaDenuncia e")
+    Long sumTotal();
+
+    @Query("SELECT FUNCTION('MONTH', e.dia), SUM(e.cantidad) FROM EstadisticaDenuncia e " +
+            "WHERE e.dia >= :desde " +
+            "GROUP BY FUNCTION('MONTH', e.dia) HAVING SUM(e.cantidad) > 0")
+    List<Object[]> sumByMes(@Param("desde") LocalDate desde);
+
+    @Query("SELECT e.estado, SUM(e.cantidad) FROM EstadisticaDenuncia e " +
+            "GROUP BY e.estado HAVING SUM(e.cantidad) > 0")
+    List<Object[]> sumByEstado();
+
+    @Query("SELECT e.comuna, SUM(e.cantidad) FROM EstadisticaDenuncia e " +
+            "WHERE e.comuna <> '' GROUP BY e.comuna HAVING SUM(e.cantidad) > 0")
+    List<Object[]> sumByComuna();
+
+    @Query("SELECT e.hora, SUM(e.cantidad) FROM EstadisticaDenuncia e " +
+            "GROUP BY e.hora HAVING SUM(e.cantidad) > 0")
+    List<Object[]> sumByHora();
+
+    @Query("SELECT c.nombre, SUM(e.cantidad) FROM EstadisticaDenuncia e JOIN e.categoria c " +
+            "GROUP BY c.id, c.nombre HAVING SUM(e.cantidad) > 0 ORDER BY SUM(e.cantidad) DESC")
+    List<Object[]> sumByCategoria();
+
+    @Query("SELECT e.sector, SUM(e.cantidad) FROM EstadisticaDenuncia e " +
+            "WHERE e.sector <> '' AND e.comuna LIKE '%TEMUCO%' " +
+            "GROUP BY e.sector HAVING SUM(e.cantidad) > 0")
+    List<Object[]> sumBySectorTemuco();
+}
@@ -3,9 +3,15 @@ package com.example.appmunicipal.repository;
 import com.example.appmunicipal.domain.Evidencia;
 import com.example.appmunicipal.domain.Evidencia.TipoEvidencia;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface EvidenciaRepository extends JpaRepository<Evidencia, Long> {
@@ -17,4 +23,20 @@ public interface EvidenciaRepository extends JpaRepository<Evidencia, Long> {
     List<Evidencia> findByDenunciaIdAndTipo(Long denunciaId, TipoEvidencia tipo);
 
     Long countByDenunciaId(Long denunciaId);
+
+    Optional<Evidencia> findFirstByNombreArchivo(String nombreArchivo);
+
+    @Query("SELECT DISTINCT e.nombreArchivo FROM Evidencia e WHERE e.nombreArchivo IS NOT NULL")
+    List<String> findNombresArchivo();
+
+    // Completar el hash de evidencias antiguas la primera vez que se descargan
+    @Modifying
+    @Transactional
+    @Query("UPDATE Evidencia e SET e.hashContenido = :hash WHERE e.id = :id AND e.hashContenido IS NULL")
+    int completarHash(@Param("id") Long id, @Param("hash") String hash);
+
+    // Nombres de archivo de varias denuncias en una sola consulta (listados sin N+1)
+    @Query("SELECT e.denuncia.id, e.nombreArchivo FROM Evidencia e " +
+            "WHERE e.denuncia.id IN :denunciaIds ORDER BY e.id")
+    List<Object[]> findNombresArchivoByDenunciaIds(@Param("denunciaIds") Collection<Long> denunciaIds);
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.example.appmunicipal.repository;
+
+import com.example.appmunicipal.domain.TokenRevocado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TokenRevocadoRepository extends JpaRepository<TokenRevocado, Long> {
+
+    // Revocaciones que todavía afectan a algún token vigente
+    List<TokenRevocado> findByExpiracionAfter(LocalDateTime ahora);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TokenRevocado t WHERE t.expiracion < :ahora")
+    int eliminarVencidas(@Param("ahora") LocalDateTime ahora);
+}
@@ -0,0 +1,58 @@
+package com.example.appmunicipal.repository;
+
+import com.example.appmunicipal.domain.TrabajoMiniatura;
+import com.example.appmunicipal.domain.TrabajoMiniatura.EstadoTrabajo;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TrabajoMiniaturaRepository extends JpaRepository<TrabajoMiniatura, Long> {
+
+    // Un trabajo por blob: si el contenido ya estaba encolado (o procesado) no se duplica
+    @Modifying
+    @Query(value = "INSERT INTO trabajos_miniatura (hash, estado, intentos, fecha_creacion, fecha_actualizacion) " +
+            "VALUES (:hash, 'PENDIENTE', 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE hash = hash", nativeQuery = true)
+    int encolar(@Param("hash") String hash);
+
+    Optional<TrabajoMiniatura> findByHash(String hash);
+
+    @Query("SELECT t.id FROM TrabajoMiniatura t WHERE t.estado = :estado ORDER BY t.fechaActualizacion")
+    List<Long> findIdsByEstado(@Param("estado") EstadoTrabajo estado, Pageable pageable);
+
+    // Solo un worker toma el trabajo (0 filas = otro ya lo tomó)
+    @Modifying
+    @Transactional
+    @Query("UPDATE TrabajoMiniatura t SET t.estado = 'EN_PROCESO', t.intentos = t.intentos + 1, " +
+            "t.fechaActualizacion = :ahora WHERE t.id = :id AND t.estado = 'PENDIENTE'")
+    int tomar(@Param("id") Long id, @Param("ahora") LocalDateTime ahora);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE TrabajoMiniatura t SET t.estado = :estado, t.ultimoError = :error, " +
+            "t.fechaActualizacion = :ahora WHERE t.id = :id")
+    int finalizar(@Param("id") Long id,
+                  @Param("estado") EstadoTrabajo estado,
+                  @Param("error") String error,
+                  @Param("ahora") LocalDateTime ahora);
+
+    // Trabajos que quedaron EN_PROCESO por un reinicio o una caída del worker
+    @Modifying
+    @Transactional
+    @Query("UPDATE TrabajoMiniatura t SET t.estado = 'PENDIENTE' " +
+            "WHERE t.estado = 'EN_PROCESO' AND t.fechaActualizacion < :limite")
+    int reiniciarAtascados(@Param("limite") LocalDateTime limite);
+
+    @Modifying
+    @Query("DELETE FROM TrabajoMiniatura t WHERE t.hash = :hash")
+    int eliminarPorHash(@Param("hash") String hash);
+}
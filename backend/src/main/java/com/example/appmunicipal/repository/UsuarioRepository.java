@@ -2,8 +2,14 @@ package com.example.appmunicipal.repository;
 
 import com.example.appmunicipal.domain.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,4 +31,17 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     boolean existsByEmail(String email);
 
     boolean existsByRut(String rut);  // ✅ Para validar RUT duplicado
+
+    // Última conexión en lote: un UPDATE por instante para todos los usuarios que entraron en él
+    @Modifying
+    @Transactional
+    @Query("UPDATE Usuario u SET u.ultimaConexion = :fecha WHERE u.id IN :ids")
+    int actualizarUltimaConexion(@Param("ids") Collection<Long> ids, @Param("fecha") LocalDateTime fecha);
+
+    // Rehash al iniciar sesión (costo BCrypt actualizado); no pisa una contraseña cambiada entretanto
+    @Modifying
+    @Transactional
+    @Query("UPDATE Usuario u SET u.password = :password WHERE u.id = :id AND u.password = :hashAnterior")
+    int actualizarPassword(@Param("id") Long id, @Param("hashAnterior") String hashAnterior,
+                           @Param("password") String password);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.appmunicipal.security;
 
-import com.example.appmunicipal.util.JwtUtil;
+import com.example.appmunicipal.service.RevocacionTokenService;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,14 +21,17 @@ import java.util.Collections;
 
 /**
  * Filtro que intercepta cada request HTTP para validar el token JWT
- * y establecer la autenticación en el contexto de Spring Security
+ * y establecer la autenticación en el contexto de Spring Security.
+ * El token se verifica una sola vez por request: el principal es un
+ * UsuarioAutenticado que el resto de la petición reutiliza.
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtUtil jwtUtil;
+    private final TokenVerificadoCache tokenVerificadoCache;
+    private final RevocacionTokenService revocacionTokenService;
 
     @Override
     protected void doFilterInternal(
@@ -49,18 +53,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // 3. Extraer el token (remover "Bearer " del inicio)
             final String jwt = authHeader.substring(7);
 
-            // 4. Validar el token
-            if (!jwtUtil.validarToken(jwt)) {
+            // 4. Validar el token y extraer su información (una sola verificación de la firma,
+            //    ninguna si el token ya está en el cache)
+            final UsuarioAutenticado usuario;
+            try {
+                usuario = tokenVerificadoCache.verificar(jwt);
+            } catch (JwtException e) {
                 log.warn("Token JWT inválido o expirado");
                 filterChain.doFilter(request, response);
                 return;
             }
 
-            // 5. Extraer información del token
-            final String email = jwtUtil.extraerEmail(jwt);
-            final String rol = jwtUtil.extraerRol(jwt);
+            // Logout o usuario desactivado (consulta en memoria, sin base de datos)
+            if (revocacionTokenService.estaRevocado(usuario)) {
+                log.warn("Token JWT revocado para usuario: {}", usuario.email());
+                filterChain.doFilter(request, response);
+                return;
+            }
+
+            final String email = usuario.email();
+            final String rol = usuario.rol();
 
-            // 6. Si no hay autenticación previa, establecerla
+            // 5. Si no hay autenticación previa, establecerla
             if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
                 // Crear la autoridad basada en el rol
@@ -68,8 +82,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
                 // Crear el objeto de autenticación
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        email, // Principal (identificador del usuario)
-                        null, // Credentials (no necesitamos la contraseña aquí)
+                        usuario, // Principal (getName() devuelve el email)
+                        jwt, // Credentials: RoleValidator reconoce el token ya verificado
                         Collections.singletonList(authority) // Authorities (roles)
                 );
 
@@ -86,7 +100,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             log.error("Error al procesar el token JWT: {}", e.getMessage());
         }
 
-        // 7. Continuar con la cadena de filtros
+        // 6. Continuar con la cadena de filtros
         filterChain.doFilter(request, response);
     }
 }
@@ -0,0 +1,176 @@
+package com.example.appmunicipal.security;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket por clave (IP o cuenta), sin locks.
+ * Cada clave tiene una cubeta de "capacidad" fichas que se recarga a ritmo
+ * constante; cada petición consume una y, si no hay, se rechaza indicando en
+ * cuántos segundos habrá otra. El estado de la cubeta se actualiza con CAS y el
+ * mapa concurrente reparte las claves en segmentos independientes.
+ *
+ * Memoria acotada: al pasar maxCubetas se desaloja, dentro de una muestra
+ * tomada desde una posición al azar, la cubeta con más fichas (una llena equivale a una nueva, así que se pierde lo
+ * mínimo). Las claves nuevas nunca comparten cubeta: muchas IPs o cuentas
+ * inventadas no pueden agotar el límite de las demás. limpiarInactivas()
+ * elimina las cubetas que ya se recargaron por completo.
+ */
+public class LimitadorTasa {
+
+    /**
+     * Resultado de consumir una ficha; reintentarEnSegundos solo aplica si no se permitió
+     */
+    public record Decision(boolean permitida, long reintentarEnSegundos) {
+    }
+
+    private record Estado(double fichas, long instanteNanos) {
+    }
+
+    // Cubetas revisadas para elegir cuál desalojar
+    private static final int MUESTRA_DESALOJO = 16;
+
+    private static final class Cubeta {
+        private final AtomicReference<Estado> estado;
+
+        private Cubeta(double fichas, long ahora) {
+            this.estado = new AtomicReference<>(new Estado(fichas, ahora));
+        }
+    }
+
+    private final String nombre;
+    private final int capacidad;
+    private final double fichasPorNano;
+    private final long nanosRecargaCompleta;
+    private final int maxCubetas;
+    private final Map<String, Cubeta> cubetas = new ConcurrentHashMap<>();
+    private final LongSupplier reloj;
+
+    private final AtomicLong permitidas = new AtomicLong();
+    private final AtomicLong rechazadas = new AtomicLong();
+    private final AtomicLong desalojadas = new AtomicLong();
+    private final AtomicLong eliminadas = new AtomicLong();
+
+    public LimitadorTasa(String nombre, int capacidad, double porMinuto, int maxCubetas) {
+        this(nombre, capacidad, porMinuto, maxCubetas, System::nanoTime);
+    }
+
+    // Reloj en nanosegundos reemplazable para los tests
+    LimitadorTasa(String nombre, int capacidad, double porMinuto, int maxCubetas, LongSupplier reloj) {
+        this.nombre = nombre;
+        this.capacidad = capacidad;
+        this.fichasPorNano = porMinuto / 60e9;
+        this.nanosRecargaCompleta = (long) Math.ceil(capacidad / fichasPorNano);
+        this.maxCubetas = maxCubetas;
+        this.reloj = reloj;
+    }
+
+    /**
+     * Consumir una ficha de la cubeta de la clave
+     */
+    public Decision consumir(String clave) {
+        long ahora = reloj.getAsLong();
+        Cubeta cubeta = cubetas.get(clave);
+        if (cubeta == null) {
+            cubeta = cubetas.computeIfAbsent(clave, k -> new Cubeta(capacidad, ahora));
+            desalojarExcedente(clave, ahora);
+        }
+
+        while (true) {
+            Estado actual = cubeta.estado.get();
+            double fichas = fichasDisponibles(actual, ahora);
+
+            if (fichas < 1) {
+                rechazadas.incrementAndGet();
+                long nanosFaltantes = (long) Math.ceil((1 - fichas) / fichasPorNano);
+                return new Decision(false, Math.max(1, (nanosFaltantes + 999_999_999L) / 1_000_000_000L));
+            }
+            if (cubeta.estado.compareAndSet(actual, new Estado(fichas - 1, Math.max(ahora, actual.instanteNanos())))) {
+                permitidas.incrementAndGet();
+                return new Decision(true, 0);
+            }
+        }
+    }
+
+    /**
+     * Eliminar las cubetas que ya están llenas otra vez (sin uso desde la recarga completa)
+     */
+    public int limpiarInactivas() {
+        long ahora = reloj.getAsLong();
+        int antes = cubetas.size();
+        cubetas.entrySet().removeIf(entrada ->
+                ahora - entrada.getValue().estado.get().instanteNanos() >= nanosRecargaCompleta);
+        int eliminadasAhora = antes - cubetas.size();
+        eliminadas.addAndGet(Math.max(0, eliminadasAhora));
+        return eliminadasAhora;
+    }
+
+    public Map<String, Object> metricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("regla", nombre);
+        metricas.put("capacidad", capacidad);
+        metricas.put("porMinuto", fichasPorNano * 60e9);
+        metricas.put("cubetas", cubetas.size());
+        metricas.put("maxCubetas", maxCubetas);
+        metricas.put("permitidas", permitidas.get());
+        metricas.put("rechazadas", rechazadas.get());
+        metricas.put("desalojadas", desalojadas.get());
+        metricas.put("eliminadas", eliminadas.get());
+        return metricas;
+    }
+
+    private double fichasDisponibles(Estado estado, long ahora) {
+        return Math.min(capacidad, estado.fichas() + Math.max(0, ahora - estado.instanteNanos()) * fichasPorNano);
+    }
+
+    // Sobre el máximo: se quita la cubeta más llena de una muestra (nunca la recién creada)
+    private void desalojarExcedente(String nueva, long ahora) {
+        while (cubetas.size() > maxCubetas) {
+            String candidata = null;
+            Cubeta masLlena = null;
+            double fichasCandidata = -1;
+
+            // La muestra empieza en una posición al azar: desde el principio siempre
+            // se revisarían los mismos primeros bins del ConcurrentHashMap
+            Iterator<Map.Entry<String, Cubeta>> iterador = cubetas.entrySet().iterator();
+            int saltar = ThreadLocalRandom.current().nextInt(Math.max(1, cubetas.size()));
+            for (int i = 0; i < saltar && iterador.hasNext(); i++) {
+                iterador.next();
+            }
+            for (int i = 0; i < MUESTRA_DESALOJO; i++) {
+                if (!iterador.hasNext()) {
+                    iterador = cubetas.entrySet().iterator();
+                    if (!iterador.hasNext()) {
+                        break;
+                    }
+                }
+                Map.Entry<String, Cubeta> entrada = iterador.next();
+                if (entrada.getKey().equals(nueva)) {
+                    continue;
+                }
+                double fichas = fichasDisponibles(entrada.getValue().estado.get(), ahora);
+                if (fichas > fichasCandidata) {
+                    candidata = entrada.getKey();
+                    masLlena = entrada.getValue();
+                    fichasCandidata = fichas;
+                    // Una cubeta llena equivale a una nueva: no hace falta seguir buscando
+                    if (fichas >= capacidad) {
+                        break;
+                    }
+                }
+            }
+            if (candidata == null) {
+                return;
+            }
+            if (cubetas.remove(candidata, masLlena)) {
+                desalojadas.incrementAndGet();
+            }
+        }
+    }
+}
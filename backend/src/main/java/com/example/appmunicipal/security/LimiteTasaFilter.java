@@ -0,0 +1,283 @@
+package com.example.appmunicipal.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Límite de peticiones para los endpoints públicos caros: login y registro
+ * (cada intento es un BCrypt) y la creación anónima de denuncias y evidencias.
+ * Un token bucket por IP en cada endpoint y, en el login, otro por cuenta para
+ * frenar el relleno de credenciales desde muchas IPs. Lo que excede el límite
+ * se responde con 429 + Retry-After sin llegar al controller.
+ *
+ * Detrás de nginx la IP del cliente viene en X-Real-IP (cabecera-ip); sin la
+ * cabecera se usa la dirección de la conexión.
+ */
+@Component
+@Slf4j
+public class LimiteTasaFilter extends OncePerRequestFilter {
+
+    private static final String LOGIN = "/api/usuarios/login";
+
+    // Un login válido ocupa unos cientos de bytes; más que esto no se lee a memoria
+    private static final int MAX_CUERPO_LOGIN = 4 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final boolean habilitado;
+    private final String cabeceraIp;
+
+    private final LimitadorTasa loginPorIp;
+    private final LimitadorTasa loginPorCuenta;
+    private final LimitadorTasa registroPorIp;
+    private final LimitadorTasa denunciaPorIp;
+    private final LimitadorTasa evidenciaPorIp;
+
+    public LimiteTasaFilter(ObjectMapper objectMapper,
+                            @Value("${app.seguridad.limites.habilitado:true}") boolean habilitado,
+                            @Value("${app.seguridad.limites.cabecera-ip:X-Real-IP}") String cabeceraIp,
+                            @Value("${app.seguridad.limites.max-cubetas:10000}") int maxCubetas,
+                            @Value("${app.seguridad.limites.login-ip.capacidad:20}") int loginIpCapacidad,
+                            @Value("${app.seguridad.limites.login-ip.por-minuto:10}") double loginIpPorMinuto,
+                            @Value("${app.seguridad.limites.login-cuenta.capacidad:10}") int loginCuentaCapacidad,
+                            @Value("${app.seguridad.limites.login-cuenta.por-minuto:5}") double loginCuentaPorMinuto,
+                            @Value("${app.seguridad.limites.registro-ip.capacidad:5}") int registroCapacidad,
+                            @Value("${app.seguridad.limites.registro-ip.por-minuto:2}") double registroPorMinuto,
+                            @Value("${app.seguridad.limites.denuncia-ip.capacidad:10}") int denunciaCapacidad,
+                            @Value("${app.seguridad.limites.denuncia-ip.por-minuto:5}") double denunciaPorMinuto,
+                            @Value("${app.seguridad.limites.evidencia-ip.capacidad:30}") int evidenciaCapacidad,
+                            @Value("${app.seguridad.limites.evidencia-ip.por-minuto:20}") double evidenciaPorMinuto) {
+        this.objectMapper = objectMapper;
+        this.habilitado = habilitado;
+        this.cabeceraIp = cabeceraIp;
+        this.loginPorIp = new LimitadorTasa("login-ip", loginIpCapacidad, loginIpPorMinuto, maxCubetas);
+        this.loginPorCuenta = new LimitadorTasa("login-cuenta", loginCuentaCapacidad, loginCuentaPorMinuto, maxCubetas);
+        this.registroPorIp = new LimitadorTasa("registro-ip", registroCapacidad, registroPorMinuto, maxCubetas);
+        this.denunciaPorIp = new LimitadorTasa("denuncia-ip", denunciaCapacidad, denunciaPorMinuto, maxCubetas);
+        this.evidenciaPorIp = new LimitadorTasa("evidencia-ip", evidenciaCapacidad, evidenciaPorMinuto, maxCubetas);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !habilitado || !"POST".equals(request.getMethod()) || limitadorPorIp(ruta(request)) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        String ruta = ruta(request);
+        String ip = ipCliente(request);
+
+        LimitadorTasa.Decision decision = limitadorPorIp(ruta).consumir(ip);
+        if (!decision.permitida()) {
+            rechazar(response, decision, ruta, "IP " + ip);
+            return;
+        }
+
+        if (LOGIN.equals(ruta)) {
+            // El cuerpo se lee aquí (con tope) para obtener el email y se vuelve a entregar al controller
+            if (request.getContentLengthLong() > MAX_CUERPO_LOGIN) {
+                rechazarCuerpo(response, ruta, ip);
+                return;
+            }
+            CuerpoReleible releible = new CuerpoReleible(request, MAX_CUERPO_LOGIN);
+            if (releible.excedido) {
+                rechazarCuerpo(response, ruta, ip);
+                return;
+            }
+            String cuenta = emailDelCuerpo(releible.cuerpo);
+            if (cuenta != null) {
+                decision = loginPorCuenta.consumir(cuenta);
+                if (!decision.permitida()) {
+                    rechazar(response, decision, ruta, "cuenta " + cuenta);
+                    return;
+                }
+            }
+            filterChain.doFilter(releible, response);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Eliminar cubetas sin uso (ya recargadas por completo)
+     */
+    @Scheduled(initialDelayString = "${app.seguridad.limites.limpieza-ms:60000}",
+            fixedDelayString = "${app.seguridad.limites.limpieza-ms:60000}")
+    public void limpiarInactivas() {
+        int eliminadas = 0;
+        for (LimitadorTasa limitador : limitadores()) {
+            eliminadas += limitador.limpiarInactivas();
+        }
+        if (eliminadas > 0) {
+            log.debug("🧹 {} cubetas de límite de tasa sin uso eliminadas", eliminadas);
+        }
+    }
+
+    /**
+     * Peticiones permitidas y rechazadas por regla
+     */
+    public Map<String, Object> metricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("habilitado", habilitado);
+        metricas.put("reglas", limitadores().stream().map(LimitadorTasa::metricas).toList());
+        return metricas;
+    }
+
+    private List<LimitadorTasa> limitadores() {
+        return List.of(loginPorIp, loginPorCuenta, registroPorIp, denunciaPorIp, evidenciaPorIp);
+    }
+
+    private LimitadorTasa limitadorPorIp(String ruta) {
+        if (LOGIN.equals(ruta)) {
+            return loginPorIp;
+        }
+        if ("/api/usuarios/registro".equals(ruta) || "/api/usuarios/registro-funcionario".equals(ruta)) {
+            return registroPorIp;
+        }
+        if ("/api/denuncias".equals(ruta)) {
+            return denunciaPorIp;
+        }
+        if (pathMatcher.match("/api/denuncias/*/evidencias", ruta)) {
+            return evidenciaPorIp;
+        }
+        return null;
+    }
+
+    private String ruta(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private String ipCliente(HttpServletRequest request) {
+        String ip = cabeceraIp.isBlank() ? null : request.getHeader(cabeceraIp);
+        return ip != null && !ip.isBlank() ? ip.trim() : request.getRemoteAddr();
+    }
+
+    private String emailDelCuerpo(byte[] cuerpo) {
+        try {
+            JsonNode email = objectMapper.readTree(cuerpo).path("email");
+            return email.isTextual() && !email.asText().isBlank()
+                    ? email.asText().trim().toLowerCase(Locale.ROOT)
+                    : null;
+        } catch (IOException e) {
+            return null; // JSON inválido: el controller responde el error
+        }
+    }
+
+    private void rechazar(HttpServletResponse response, LimitadorTasa.Decision decision, String ruta, String origen)
+            throws IOException {
+        log.warn("⚠️ Límite de tasa excedido en {} por {}", ruta, origen);
+
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.reintentarEnSegundos()));
+        responderError(response, HttpStatus.TOO_MANY_REQUESTS, "Demasiadas solicitudes, intenta nuevamente en "
+                + decision.reintentarEnSegundos() + " segundos");
+    }
+
+    private void rechazarCuerpo(HttpServletResponse response, String ruta, String ip) throws IOException {
+        log.warn("⚠️ Cuerpo demasiado grande en {} desde IP {}", ruta, ip);
+        responderError(response, HttpStatus.PAYLOAD_TOO_LARGE, "La solicitud es demasiado grande");
+    }
+
+    private void responderError(HttpServletResponse response, HttpStatus estado, String mensaje) throws IOException {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("success", false);
+        error.put("message", mensaje);
+
+        response.setStatus(estado.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    /**
+     * Request cuyo cuerpo ya se leyó en memoria y puede leerse de nuevo. Se leen a
+     * lo más maximo + 1 bytes: si hay más, excedido queda en true y el cuerpo no
+     * se debe entregar al controller.
+     */
+    private static class CuerpoReleible extends HttpServletRequestWrapper {
+
+        private final byte[] cuerpo;
+        private final boolean excedido;
+
+        CuerpoReleible(HttpServletRequest request, int maximo) throws IOException {
+            super(request);
+            this.cuerpo = request.getInputStream().readNBytes(maximo + 1);
+            this.excedido = cuerpo.length > maximo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(cuerpo);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // Todo el cuerpo ya está en memoria: se avisa de inmediato que hay datos y que terminaron
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return entrada.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String charset = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(charset)));
+        }
+    }
+}
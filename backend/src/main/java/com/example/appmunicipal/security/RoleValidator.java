@@ -1,17 +1,23 @@
 package com.example.appmunicipal.security;
 
+import com.example.appmunicipal.service.RevocacionTokenService;
 import com.example.appmunicipal.util.JwtUtil;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Utilidad para verificar roles de usuario desde el token JWT
+ * Utilidad para verificar roles de usuario desde el token JWT.
+ * Si el token del header es el que ya verificó JwtAuthenticationFilter se usa
+ * su UsuarioAutenticado; solo en otro caso se verifica (una vez) aquí.
  */
 @Component
 @RequiredArgsConstructor
@@ -19,6 +25,7 @@ import java.util.Map;
 public class RoleValidator {
 
     private final JwtUtil jwtUtil;
+    private final RevocacionTokenService revocacionTokenService;
 
     /**
      * Extrae el token del header Authorization
@@ -41,24 +48,47 @@ public class RoleValidator {
      *         token
      */
     public String obtenerRolDesdeToken(String authHeader) {
-        try {
-            String token = extraerToken(authHeader);
-            if (token == null) {
-                log.debug("No se encontró token en el header Authorization");
-                return null;
-            }
+        UsuarioAutenticado usuario = obtenerUsuario(authHeader);
+        if (usuario == null) {
+            return null;
+        }
 
-            if (!jwtUtil.validarToken(token)) {
-                log.warn("Token JWT inválido o expirado");
-                return null;
-            }
+        log.info("🔑 Rol extraído del token: {}", usuario.rol());
+        return usuario.rol();
+    }
+
+    /**
+     * Obtiene el usuario del token JWT, verificándolo como máximo una vez por request
+     *
+     * @param authHeader Header Authorization completo (Bearer xxx)
+     * @return Usuario autenticado o null si no hay token o es inválido
+     */
+    public UsuarioAutenticado obtenerUsuario(String authHeader) {
+        String token = extraerToken(authHeader);
+        if (token == null) {
+            log.debug("No se encontró token en el header Authorization");
+            return null;
+        }
 
-            String rol = jwtUtil.extraerRol(token);
-            log.info("🔑 Rol extraído del token: {}", rol);
-            return rol;
+        // Token ya verificado por JwtAuthenticationFilter en este request
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        if (autenticacion != null && autenticacion.getPrincipal() instanceof UsuarioAutenticado usuario
+                && token.equals(autenticacion.getCredentials())) {
+            return usuario;
+        }
 
+        try {
+            UsuarioAutenticado usuario = jwtUtil.verificar(token);
+            if (revocacionTokenService.estaRevocado(usuario)) {
+                log.warn("Token JWT revocado");
+                return null;
+            }
+            return usuario;
+        } catch (JwtException e) {
+            log.warn("Token JWT inválido o expirado");
+            return null;
         } catch (Exception e) {
-            log.error("❌ Error al extraer rol del token: {}", e.getMessage());
+            log.error("❌ Error al procesar el token: {}", e.getMessage());
             return null;
         }
     }
@@ -70,22 +100,8 @@ public class RoleValidator {
      * @return Email del usuario o null si no hay token
      */
     public String obtenerEmailDesdeToken(String authHeader) {
-        try {
-            String token = extraerToken(authHeader);
-            if (token == null) {
-                return null;
-            }
-
-            if (!jwtUtil.validarToken(token)) {
-                return null;
-            }
-
-            return jwtUtil.extraerEmail(token);
-
-        } catch (Exception e) {
-            log.error("❌ Error al extraer email del token: {}", e.getMessage());
-            return null;
-        }
+        UsuarioAutenticado usuario = obtenerUsuario(authHeader);
+        return usuario != null ? usuario.email() : null;
     }
 
     /**
@@ -95,22 +111,8 @@ public class RoleValidator {
      * @return ID del usuario o null si no hay token
      */
     public Long obtenerUsuarioIdDesdeToken(String authHeader) {
-        try {
-            String token = extraerToken(authHeader);
-            if (token == null) {
-                return null;
-            }
-
-            if (!jwtUtil.validarToken(token)) {
-                return null;
-            }
-
-            return jwtUtil.extraerUsuarioId(token);
-
-        } catch (Exception e) {
-            log.error("❌ Error al extraer usuario ID del token: {}", e.getMessage());
-            return null;
-        }
+        UsuarioAutenticado usuario = obtenerUsuario(authHeader);
+        return usuario != null ? usuario.usuarioId() : null;
     }
 
     /**
@@ -120,7 +122,11 @@ public class RoleValidator {
      * @return true si el usuario es FUNCIONARIO o ADMIN, false en caso contrario
      */
     public boolean esFuncionario(String authHeader) {
-        String rol = obtenerRolDesdeToken(authHeader);
+        return esFuncionario(obtenerUsuario(authHeader));
+    }
+
+    private boolean esFuncionario(UsuarioAutenticado usuario) {
+        String rol = usuario != null ? usuario.rol() : null;
         boolean resultado = "FUNCIONARIO".equals(rol) || "ADMIN".equals(rol);
 
         log.info("🔍 Verificación de rol FUNCIONARIO: {} (Rol actual: {})", resultado, rol);
@@ -135,7 +141,11 @@ public class RoleValidator {
      * @return true si el usuario es ADMIN, false en caso contrario
      */
     public boolean esAdmin(String authHeader) {
-        String rol = obtenerRolDesdeToken(authHeader);
+        return esAdmin(obtenerUsuario(authHeader));
+    }
+
+    private boolean esAdmin(UsuarioAutenticado usuario) {
+        String rol = usuario != null ? usuario.rol() : null;
         boolean resultado = "ADMIN".equals(rol);
 
         log.info("🔍 Verificación de rol ADMIN: {} (Rol actual: {})", resultado, rol);
@@ -166,17 +176,18 @@ public class RoleValidator {
      * @return true si el usuario tiene alguno de los roles, false en caso contrario
      */
     public boolean tieneAlgunRol(String authHeader, String... rolesPermitidos) {
-        String rolUsuario = obtenerRolDesdeToken(authHeader);
+        return tieneAlgunRol(obtenerUsuario(authHeader), rolesPermitidos);
+    }
 
-        if (rolUsuario == null) {
+    private boolean tieneAlgunRol(UsuarioAutenticado usuario, String... rolesPermitidos) {
+        if (usuario == null || usuario.rol() == null) {
             return false;
         }
 
-        for (String rolPermitido : rolesPermitidos) {
-            if (rolPermitido.equals(rolUsuario)) {
-                log.info("✅ Usuario tiene rol permitido: {}", rolUsuario);
-                return true;
-            }
+        String rolUsuario = usuario.rol();
+        if (usuario.tieneAlgunRol(rolesPermitidos)) {
+            log.info("✅ Usuario tiene rol permitido: {}", rolUsuario);
+            return true;
         }
 
         log.warn("❌ Usuario con rol {} no tiene permisos. Roles permitidos: {}",
@@ -193,10 +204,11 @@ public class RoleValidator {
      *         acceso
      */
     public ResponseEntity<?> verificarRolFuncionario(String authHeader) {
-        String rol = obtenerRolDesdeToken(authHeader);
-        String email = obtenerEmailDesdeToken(authHeader);
+        UsuarioAutenticado usuario = obtenerUsuario(authHeader);
+        String rol = usuario != null ? usuario.rol() : null;
+        String email = usuario != null ? usuario.email() : null;
 
-        if (!esFuncionario(authHeader)) {
+        if (!esFuncionario(usuario)) {
             log.warn("❌ Acceso denegado: El usuario no es FUNCIONARIO (Rol actual: {})", rol);
 
             Map<String, Object> error = new HashMap<>();
@@ -221,10 +233,11 @@ public class RoleValidator {
      * @return ResponseEntity con error 403 si no es ADMIN, o null si tiene acceso
      */
     public ResponseEntity<?> verificarRolAdmin(String authHeader) {
-        String rol = obtenerRolDesdeToken(authHeader);
-        String email = obtenerEmailDesdeToken(authHeader);
+        UsuarioAutenticado usuario = obtenerUsuario(authHeader);
+        String rol = usuario != null ? usuario.rol() : null;
+        String email = usuario != null ? usuario.email() : null;
 
-        if (!esAdmin(authHeader)) {
+        if (!esAdmin(usuario)) {
             log.warn("❌ Acceso denegado: El usuario no es ADMIN (Rol actual: {})", rol);
 
             Map<String, Object> error = new HashMap<>();
@@ -250,10 +263,11 @@ public class RoleValidator {
      *         si tiene acceso
      */
     public ResponseEntity<?> verificarRoles(String authHeader, String... rolesPermitidos) {
-        String rol = obtenerRolDesdeToken(authHeader);
-        String email = obtenerEmailDesdeToken(authHeader);
+        UsuarioAutenticado usuario = obtenerUsuario(authHeader);
+        String rol = usuario != null ? usuario.rol() : null;
+        String email = usuario != null ? usuario.email() : null;
 
-        if (!tieneAlgunRol(authHeader, rolesPermitidos)) {
+        if (!tieneAlgunRol(usuario, rolesPermitidos)) {
             log.warn("❌ Acceso denegado: El usuario no tiene los roles requeridos (Rol actual: {})", rol);
 
             Map<String, Object> error = new HashMap<>();
@@ -1,6 +1,9 @@
 package com.example.appmunicipal.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -28,9 +31,14 @@ import java.util.Arrays;
 @EnableWebSecurity
 @EnableMethodSecurity // Permite usar @PreAuthorize en los controllers
 @RequiredArgsConstructor
+@Slf4j
 public class SecurityConfig {
 
+        // Sobre 16 un login tarda segundos incluso en hardware actual
+        private static final int COSTO_MAXIMO = 16;
+
         private final JwtAuthenticationFilter jwtAuthenticationFilter;
+        private final LimiteTasaFilter limiteTasaFilter;
 
         /**
          * Configuración principal de seguridad
@@ -58,11 +66,17 @@ public class SecurityConfig {
                                                                                                // evidencias (público)
                                                                 "/api/denuncias/*/evidencias", // POST subir evidencia
                                                                                                // (anónimo)
+                                                                "/api/denuncias/*/evidencias/cargas", // Carga reanudable
+                                                                "/api/denuncias/evidencias/cargas/**", // (anónimo, uploadId)
                                                                 "/h2-console/**",
                                                                 "/",
                                                                 "/error")
                                                 .permitAll()
 
+                                                // Segundo despacho de respuestas asíncronas (StreamingResponseBody):
+                                                // la petición original ya fue autenticada y autorizada
+                                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                                                 // ============================================
                                                 // ENDPOINTS PROTEGIDOS
                                                 // ============================================
@@ -77,6 +91,8 @@ public class SecurityConfig {
 
                                 // Agregar el filtro JWT antes del filtro de autenticación estándar
                                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                                // Límite de tasa de login, registro y denuncias anónimas antes de todo lo demás
+                                .addFilterBefore(limiteTasaFilter, JwtAuthenticationFilter.class)
 
                                 // Permitir frames para H2 Console
                                 .headers(headers -> headers
@@ -121,7 +137,8 @@ public class SecurityConfig {
                                 "Access-Control-Request-Headers",
                                 "Cache-Control",
                                 "Pragma",
-                                "Expires"));
+                                "Expires",
+                                "Upload-Offset"));
 
                 // Headers expuestos (que el frontend puede leer)
                 configuration.setExposedHeaders(Arrays.asList(
@@ -129,7 +146,9 @@ public class SecurityConfig {
                                 "Content-Type",
                                 "Cache-Control",
                                 "Pragma",
-                                "Expires"));
+                                "Expires",
+                                "Location",
+                                "Upload-Offset"));
 
                 // Permitir credenciales (cookies, authorization headers)
                 configuration.setAllowCredentials(true);
@@ -145,9 +164,30 @@ public class SecurityConfig {
 
         /**
          * Bean para encriptar contraseñas
+         * Con objetivo-ms > 0 el costo se calibra al arrancar: el mayor costo (desde
+         * el configurado) cuyo hash tarda a lo más ese tiempo en este servidor. Los
+         * hashes con un costo menor se actualizan al iniciar sesión.
          */
         @Bean
-        public PasswordEncoder passwordEncoder() {
-                return new BCryptPasswordEncoder();
+        public PasswordEncoder passwordEncoder(@Value("${app.seguridad.bcrypt.costo:10}") int costo,
+                        @Value("${app.seguridad.bcrypt.objetivo-ms:0}") long objetivoMs) {
+                int costoFinal = objetivoMs > 0 ? calibrarCosto(costo, objetivoMs) : costo;
+                log.info("🔑 BCrypt con costo {}", costoFinal);
+                return new BCryptPasswordEncoder(costoFinal);
+        }
+
+        // Cada punto de costo duplica el tiempo: se mide el costo mínimo y se extrapola
+        private int calibrarCosto(int costoMinimo, long objetivoMs) {
+                BCryptPasswordEncoder prueba = new BCryptPasswordEncoder(costoMinimo);
+                prueba.encode("calibracion"); // Calentar
+                long inicio = System.nanoTime();
+                prueba.encode("calibracion");
+                double medidoMs = Math.max(1, (System.nanoTime() - inicio) / 1_000_000.0);
+
+                int extra = (int) Math.floor(Math.log(objetivoMs / medidoMs) / Math.log(2));
+                int costo = Math.min(COSTO_MAXIMO, costoMinimo + Math.max(0, extra));
+                log.info("🔑 BCrypt calibrado: costo {} tarda {} ms, objetivo {} ms -> costo {}",
+                                costoMinimo, Math.round(medidoMs), objetivoMs, costo);
+                return costo;
         }
 }
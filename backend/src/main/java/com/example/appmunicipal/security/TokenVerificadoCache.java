@@ -0,0 +1,77 @@
+package com.example.appmunicipal.security;
+
+import com.example.appmunicipal.util.CacheAcotado;
+import com.example.appmunicipal.util.JwtUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache acotado de tokens ya verificados (CacheAcotado, LRU aproximado).
+ * El frontend consulta la API cada pocos segundos con el mismo token de 24 horas:
+ * con el cache solo la primera petición paga la verificación HMAC y la lectura
+ * de los claims. Cada entrada vence junto con el "exp" del token.
+ *
+ * La clave es el segmento de firma del token: ya es un HMAC del encabezado y los
+ * claims, así que no hace falta volver a hashear el token completo. Solo se
+ * guardan tokens cuya firma ya se verificó, y un acierto devuelve los claims de
+ * ese token (nunca los de la petición), de modo que reutilizar la firma con otros
+ * claims no da más que el token original.
+ */
+@Component
+@Slf4j
+public class TokenVerificadoCache {
+
+    private final JwtUtil jwtUtil;
+    private final boolean habilitado;
+    private final CacheAcotado<String, UsuarioAutenticado> tokens;
+
+    public TokenVerificadoCache(JwtUtil jwtUtil,
+                                @Value("${app.seguridad.token-cache.habilitado:true}") boolean habilitado,
+                                @Value("${app.seguridad.token-cache.max-entradas:10000}") int maxEntradas) {
+        this.jwtUtil = jwtUtil;
+        this.habilitado = habilitado;
+        this.tokens = new CacheAcotado<>(maxEntradas);
+    }
+
+    /**
+     * Verificar el token usando el cache
+     *
+     * @param token Token JWT
+     * @return Usuario autenticado
+     * @throws io.jsonwebtoken.JwtException si el token es inválido o expiró
+     */
+    public UsuarioAutenticado verificar(String token) {
+        int ultimoPunto = token.lastIndexOf('.');
+        if (!habilitado || ultimoPunto < 0 || ultimoPunto == token.length() - 1) {
+            return jwtUtil.verificar(token);
+        }
+
+        String firma = token.substring(ultimoPunto + 1);
+        UsuarioAutenticado enCache = tokens.obtener(firma);
+        if (enCache != null) {
+            return enCache;
+        }
+
+        // Dos peticiones simultáneas con un token nuevo lo verifican las dos y la
+        // segunda reemplaza a la primera
+        UsuarioAutenticado usuario = jwtUtil.verificar(token);
+        if (usuario.expiracion() != null) {
+            tokens.guardar(firma, usuario, usuario.expiracion().toEpochMilli());
+        }
+        return usuario;
+    }
+
+    /**
+     * Aciertos, fallos y tasa de aciertos desde el arranque
+     */
+    public Map<String, Object> metricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("habilitado", habilitado);
+        metricas.putAll(tokens.metricas());
+        return metricas;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.appmunicipal.security;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Datos del usuario extraídos de un JWT ya verificado (firma y expiración).
+ * JwtAuthenticationFilter lo deja como principal de la autenticación: el resto de
+ * la petición (RoleValidator, controladores, UsuarioService) lo reutiliza sin
+ * volver a parsear ni verificar el token.
+ */
+public record UsuarioAutenticado(String jti, Long usuarioId, String email, String username, String nombre,
+                                 String apellido, String rol, Instant emitido, Instant expiracion) implements Principal {
+
+    /**
+     * Nombre del principal: el email, igual que el subject del token
+     */
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public boolean tieneAlgunRol(String... roles) {
+        return rol != null && Arrays.asList(roles).contains(rol);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.appmunicipal.security;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verificación de contraseñas (BCrypt) en un pool propio y acotado.
+ * BCrypt consume ~50-100 ms de CPU por intento: en un cambio de turno, con la
+ * verificación en los hilos de Tomcat, una ráfaga de logins dejaba sin hilos al
+ * resto de la API. Aquí los logins esperan en una cola limitada y, si se llena,
+ * se rechazan de inmediato para que el cliente reintente (503 + Retry-After).
+ *
+ * Si el hash guardado usa un costo menor al configurado, tras un login correcto
+ * se genera uno nuevo con el costo actual (rehash transparente).
+ */
+@Component
+@Slf4j
+public class VerificadorContrasenas {
+
+    /**
+     * El pool de verificación está lleno; el cliente debe reintentar más tarde
+     */
+    @Getter
+    public static class SaturadoException extends RuntimeException {
+
+        private final long reintentarEnSegundos;
+
+        public SaturadoException(String message, long reintentarEnSegundos) {
+            super(message);
+            this.reintentarEnSegundos = reintentarEnSegundos;
+        }
+    }
+
+    /**
+     * Resultado de una verificación: nuevoHash solo viene si la contraseña es
+     * correcta y el hash guardado debe actualizarse
+     */
+    public record Resultado(boolean valida, String nuevoHash) {
+    }
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final int hilos;
+
+    private final AtomicLong verificaciones = new AtomicLong();
+    private final AtomicLong nanosVerificando = new AtomicLong();
+    private final AtomicLong rechazadas = new AtomicLong();
+    private final AtomicLong rehashes = new AtomicLong();
+
+    public VerificadorContrasenas(PasswordEncoder passwordEncoder,
+                                  @Value("${app.seguridad.login.hilos:4}") int hilos,
+                                  @Value("${app.seguridad.login.cola:64}") int capacidadCola) {
+        this.passwordEncoder = passwordEncoder;
+        this.hilos = hilos;
+
+        // Trabajo de CPU: hilos de plataforma y cola acotada; lo que no cabe se rechaza
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                Thread.ofPlatform().name("bcrypt-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Verificar una contraseña en el pool de BCrypt
+     *
+     * @param contrasena Contraseña enviada
+     * @param hash       Hash guardado
+     * @return Resultado que se completa en un hilo del pool
+     * @throws SaturadoException si la cola está llena
+     */
+    public CompletableFuture<Resultado> verificar(String contrasena, String hash) {
+        try {
+            return CompletableFuture.supplyAsync(() -> verificarAhora(contrasena, hash), executor);
+        } catch (RejectedExecutionException e) {
+            rechazadas.incrementAndGet();
+            long segundos = estimarEspera();
+            log.warn("⚠️ Cola de login llena ({} en espera), reintentar en {}s", executor.getQueue().size(), segundos);
+            throw new SaturadoException("Demasiados inicios de sesión simultáneos, intenta nuevamente", segundos);
+        }
+    }
+
+    /**
+     * Estado del pool y latencia promedio de BCrypt (para ajustar el costo)
+     */
+    public Map<String, Object> metricas() {
+        long total = verificaciones.get();
+
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("hilos", hilos);
+        metricas.put("activos", executor.getActiveCount());
+        metricas.put("enCola", executor.getQueue().size());
+        metricas.put("capacidadCola", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        metricas.put("verificaciones", total);
+        metricas.put("latenciaPromedioMs", total > 0 ? nanosVerificando.get() / total / 1_000_000.0 : 0.0);
+        metricas.put("rechazadas", rechazadas.get());
+        metricas.put("rehashes", rehashes.get());
+        return metricas;
+    }
+
+    private Resultado verificarAhora(String contrasena, String hash) {
+        long inicio = System.nanoTime();
+        boolean valida = passwordEncoder.matches(contrasena, hash);
+        nanosVerificando.addAndGet(System.nanoTime() - inicio);
+        verificaciones.incrementAndGet();
+
+        if (valida && passwordEncoder.upgradeEncoding(hash)) {
+            rehashes.incrementAndGet();
+            return new Resultado(true, passwordEncoder.encode(contrasena));
+        }
+        return new Resultado(valida, null);
+    }
+
+    // Tiempo para vaciar la cola actual con la latencia medida (mínimo 1 segundo)
+    private long estimarEspera() {
+        long total = verificaciones.get();
+        double latenciaMs = total > 0 ? nanosVerificando.get() / (double) total / 1_000_000 : 100;
+        double esperaMs = (executor.getQueue().size() + hilos) * latenciaMs / hilos;
+        return Math.max(1, (long) Math.ceil(esperaMs / 1000));
+    }
+}
@@ -3,12 +3,15 @@ package com.example.appmunicipal.service;
 import com.example.appmunicipal.domain.*;
 import com.example.appmunicipal.DTO.*;
 import com.example.appmunicipal.repository.*;
+import com.example.appmunicipal.service.UsuarioSnapshotCache.UsuarioSnapshot;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,8 +22,12 @@ public class AdministracionDenunciaService {
 
     private final DenunciaRepository denunciaRepository;
     private final UsuarioRepository usuarioRepository;
+    private final UsuarioSnapshotCache usuarioSnapshotCache;
     private final ComentarioInternoRepository comentarioInternoRepository;
     private final HistorialAccionRepository historialAccionRepository;
+    private final DenunciaResponseMapper denunciaResponseMapper;
+    private final EstadisticaDenunciaService estadisticaDenunciaService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Validar o Rechazar una denuncia
@@ -40,12 +47,12 @@ public class AdministracionDenunciaService {
         }
 
         // Obtener funcionario
-        Usuario funcionario = usuarioRepository.findByEmail(request.getEmailRevisor())
+        UsuarioSnapshot funcionario = usuarioSnapshotCache.obtener(request.getEmailRevisor())
                 .orElseThrow(() -> new RuntimeException(
                         "Funcionario no encontrado con email: " + request.getEmailRevisor()));
 
         // Verificar que el usuario sea FUNCIONARIO
-        if (!funcionario.getRol().getNombre().equals(Rol.FUNCIONARIO)) {
+        if (!funcionario.esFuncionario()) {
             throw new RuntimeException("Solo usuarios con rol FUNCIONARIO pueden validar/rechazar denuncias");
         }
 
@@ -59,20 +66,21 @@ public class AdministracionDenunciaService {
             throw new RuntimeException("La denuncia ya ha sido " + denuncia.getEstado().name().toLowerCase());
         }
 
+        Denuncia.EstadoDenuncia estadoAnterior = denuncia.getEstado();
         String accion = request.getAccion().toUpperCase();
 
         if (accion.equals("VALIDAR")) {
             // Validar denuncia
             denuncia.setEstado(Denuncia.EstadoDenuncia.VALIDADA);
-            denuncia.setRevisor(funcionario);
+            denuncia.setRevisor(referencia(funcionario));
             denuncia.setFechaValidacion(LocalDateTime.now());
             denuncia.setMotivoRechazo(null);
 
-            log.info("✅ Denuncia {} VALIDADA por {}", denunciaId, funcionario.getUsername());
+            log.info("✅ Denuncia {} VALIDADA por {}", denunciaId, funcionario.username());
 
             // Registrar en historial
-            registrarAccion(denuncia, funcionario, HistorialAccion.TipoAccion.VALIDACION,
-                    "Denuncia validada por funcionario " + funcionario.getNombre() + " " + funcionario.getApellido());
+            registrarAccion(denuncia, referencia(funcionario), HistorialAccion.TipoAccion.VALIDACION,
+                    "Denuncia validada por funcionario " + funcionario.nombre() + " " + funcionario.apellido());
 
         } else if (accion.equals("RECHAZAR")) {
             // Validar que venga el motivo
@@ -82,25 +90,31 @@ public class AdministracionDenunciaService {
 
             // Rechazar denuncia
             denuncia.setEstado(Denuncia.EstadoDenuncia.RECHAZADA);
-            denuncia.setRevisor(funcionario);
+            denuncia.setRevisor(referencia(funcionario));
             denuncia.setFechaValidacion(LocalDateTime.now());
             denuncia.setMotivoRechazo(request.getMotivo());
 
             log.warn("❌ Denuncia {} RECHAZADA por {}. Motivo: {}",
-                    denunciaId, funcionario.getUsername(), request.getMotivo());
+                    denunciaId, funcionario.username(), request.getMotivo());
 
             // Registrar en historial
-            registrarAccion(denuncia, funcionario, HistorialAccion.TipoAccion.RECHAZO,
+            registrarAccion(denuncia, referencia(funcionario), HistorialAccion.TipoAccion.RECHAZO,
                     "Denuncia rechazada. Motivo: " + request.getMotivo());
 
         } else {
             throw new RuntimeException("Acción inválida. Use 'VALIDAR' o 'RECHAZAR'");
         }
 
+        denuncia.setDuracionValidacionSegundos(
+                ChronoUnit.SECONDS.between(denuncia.getFechaDenuncia(), denuncia.getFechaValidacion()));
+
         // Guardar cambios
         Denuncia denunciaActualizada = denunciaRepository.save(denuncia);
+        estadisticaDenunciaService.registrarCambioEstado(denunciaActualizada, estadoAnterior);
+        eventPublisher.publishEvent(DenunciaCambiadaEvent.de(denunciaActualizada,
+                DenunciaCambiadaEvent.TipoCambio.ACTUALIZADA, estadoAnterior));
 
-        return new DenunciaResponse(denunciaActualizada);
+        return denunciaResponseMapper.mapear(denunciaActualizada);
     }
 
     /**
@@ -116,11 +130,11 @@ public class AdministracionDenunciaService {
         }
 
         // Obtener funcionario
-        Usuario funcionario = usuarioRepository.findByEmail(emailFuncionario)
+        UsuarioSnapshot funcionario = usuarioSnapshotCache.obtener(emailFuncionario)
                 .orElseThrow(() -> new RuntimeException("Funcionario no encontrado"));
 
         // Verificar rol
-        if (!funcionario.getRol().getNombre().equals(Rol.FUNCIONARIO)) {
+        if (!funcionario.esFuncionario()) {
             throw new RuntimeException("Solo usuarios con rol FUNCIONARIO pueden cambiar el estado");
         }
 
@@ -144,25 +158,28 @@ public class AdministracionDenunciaService {
 
         // Si pasa a EN_REVISION y no tiene revisor, asignarlo
         if (nuevoEstado == Denuncia.EstadoDenuncia.EN_REVISION && denuncia.getRevisor() == null) {
-            denuncia.setRevisor(funcionario);
+            denuncia.setRevisor(referencia(funcionario));
         }
 
         log.info("✅ Estado cambiado de {} a {} por {}",
-                estadoAnterior, nuevoEstado, funcionario.getUsername());
+                estadoAnterior, nuevoEstado, funcionario.username());
 
         // Registrar en historial
         String descripcion = String.format("Estado cambiado de %s a %s por funcionario %s %s",
-                estadoAnterior.name(), nuevoEstado.name(), funcionario.getNombre(), funcionario.getApellido());
+                estadoAnterior.name(), nuevoEstado.name(), funcionario.nombre(), funcionario.apellido());
         if (request.getComentario() != null && !request.getComentario().trim().isEmpty()) {
             descripcion += ". Comentario: " + request.getComentario();
         }
 
-        registrarAccion(denuncia, funcionario, HistorialAccion.TipoAccion.CAMBIO_ESTADO, descripcion);
+        registrarAccion(denuncia, referencia(funcionario), HistorialAccion.TipoAccion.CAMBIO_ESTADO, descripcion);
 
         // Guardar
         Denuncia denunciaActualizada = denunciaRepository.save(denuncia);
+        estadisticaDenunciaService.registrarCambioEstado(denunciaActualizada, estadoAnterior);
+        eventPublisher.publishEvent(DenunciaCambiadaEvent.de(denunciaActualizada,
+                DenunciaCambiadaEvent.TipoCambio.ACTUALIZADA, estadoAnterior));
 
-        return new DenunciaResponse(denunciaActualizada);
+        return denunciaResponseMapper.mapear(denunciaActualizada);
     }
 
     /**
@@ -183,11 +200,11 @@ public class AdministracionDenunciaService {
         }
 
         // Obtener usuario
-        Usuario usuario = usuarioRepository.findByEmail(request.getEmailUsuario())
+        UsuarioSnapshot usuario = usuarioSnapshotCache.obtener(request.getEmailUsuario())
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
         // Verificar rol (solo FUNCIONARIO puede agregar comentarios internos)
-        if (!usuario.getRol().getNombre().equals(Rol.FUNCIONARIO)) {
+        if (!usuario.esFuncionario()) {
             throw new RuntimeException("Solo usuarios con rol FUNCIONARIO pueden agregar comentarios internos");
         }
 
@@ -198,18 +215,18 @@ public class AdministracionDenunciaService {
         // Crear comentario
         ComentarioInterno comentario = new ComentarioInterno();
         comentario.setDenuncia(denuncia);
-        comentario.setUsuario(usuario);
+        comentario.setUsuario(referencia(usuario));
         comentario.setComentario(request.getComentario());
         comentario.setFechaComentario(LocalDateTime.now());
 
         // Guardar
         ComentarioInterno comentarioGuardado = comentarioInternoRepository.save(comentario);
 
-        log.info("✅ Comentario interno agregado por {}", usuario.getUsername());
+        log.info("✅ Comentario interno agregado por {}", usuario.username());
 
         // Registrar en historial
-        registrarAccion(denuncia, usuario, HistorialAccion.TipoAccion.COMENTARIO,
-                "Comentario interno agregado por funcionario " + usuario.getNombre() + " " + usuario.getApellido());
+        registrarAccion(denuncia, referencia(usuario), HistorialAccion.TipoAccion.COMENTARIO,
+                "Comentario interno agregado por funcionario " + usuario.nombre() + " " + usuario.apellido());
 
         return new ComentarioInternoResponse(comentarioGuardado);
     }
@@ -226,11 +243,11 @@ public class AdministracionDenunciaService {
                 .orElseThrow(() -> new RuntimeException("Comentario no encontrado con ID: " + comentarioId));
 
         // Obtener funcionario
-        Usuario funcionario = usuarioRepository.findByEmail(emailFuncionario)
+        UsuarioSnapshot funcionario = usuarioSnapshotCache.obtener(emailFuncionario)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
         // Verificar que es funcionario
-        if (!funcionario.getRol().getNombre().equals(Rol.FUNCIONARIO)) {
+        if (!funcionario.esFuncionario()) {
             throw new RuntimeException("Solo usuarios con rol FUNCIONARIO pueden eliminar comentarios internos");
         }
 
@@ -239,12 +256,12 @@ public class AdministracionDenunciaService {
         // Eliminar comentario
         comentarioInternoRepository.delete(comentario);
 
-        log.info("✅ Comentario interno eliminado por {}", funcionario.getUsername());
+        log.info("✅ Comentario interno eliminado por {}", funcionario.username());
 
         // Registrar en historial
-        registrarAccion(denuncia, funcionario, HistorialAccion.TipoAccion.COMENTARIO,
-                "Comentario interno eliminado por funcionario " + funcionario.getNombre() + " "
-                        + funcionario.getApellido());
+        registrarAccion(denuncia, referencia(funcionario), HistorialAccion.TipoAccion.COMENTARIO,
+                "Comentario interno eliminado por funcionario " + funcionario.nombre() + " "
+                        + funcionario.apellido());
     }
 
     /**
@@ -289,6 +306,14 @@ public class AdministracionDenunciaService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Referencia a la entidad Usuario sin cargarla: basta con el id para las
+     * relaciones (revisor, historial, comentarios)
+     */
+    private Usuario referencia(UsuarioSnapshot usuario) {
+        return usuarioRepository.getReferenceById(usuario.id());
+    }
+
     /**
      * Registrar acción en el historial
      */
@@ -315,10 +340,10 @@ public class AdministracionDenunciaService {
         log.info("📋 Funcionario {} solicitando todas las denuncias", emailFuncionario);
 
         // Verificar que sea funcionario
-        Usuario funcionario = usuarioRepository.findByEmail(emailFuncionario)
+        UsuarioSnapshot funcionario = usuarioSnapshotCache.obtener(emailFuncionario)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        if (!funcionario.getRol().getNombre().equals(Rol.FUNCIONARIO)) {
+        if (!funcionario.esFuncionario()) {
             throw new RuntimeException("Solo usuarios con rol FUNCIONARIO pueden acceder a esta función");
         }
 
@@ -326,9 +351,7 @@ public class AdministracionDenunciaService {
 
         log.info("✅ {} denuncias disponibles para revisión", denuncias.size());
 
-        return denuncias.stream()
-                .map(DenunciaResponse::new)
-                .collect(Collectors.toList());
+        return denunciaResponseMapper.mapearListado(denuncias);
     }
 
     /**
@@ -338,15 +361,13 @@ public class AdministracionDenunciaService {
     public List<DenunciaResponse> listarDenunciasRevisadas(String emailFuncionario) {
         log.info("📋 Obteniendo denuncias revisadas por {}", emailFuncionario);
 
-        Usuario funcionario = usuarioRepository.findByEmail(emailFuncionario)
+        UsuarioSnapshot funcionario = usuarioSnapshotCache.obtener(emailFuncionario)
                 .orElseThrow(() -> new RuntimeException("Funcionario no encontrado"));
 
-        List<Denuncia> denuncias = denunciaRepository.findByRevisorId(funcionario.getId());
+        List<Denuncia> denuncias = denunciaRepository.findByRevisorId(funcionario.id());
 
         log.info("✅ {} denuncias revisadas", denuncias.size());
 
-        return denuncias.stream()
-                .map(DenunciaResponse::new)
-                .collect(Collectors.toList());
+        return denunciaResponseMapper.mapearListado(denuncias);
     }
 }
\ No newline at end of file
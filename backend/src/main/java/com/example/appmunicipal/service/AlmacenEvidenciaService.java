@@ -0,0 +1,199 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.domain.Evidencia;
+import com.example.appmunicipal.repository.BlobEvidenciaRepository;
+import com.example.appmunicipal.repository.TrabajoMiniaturaRepository;
+import com.example.appmunicipal.storage.EvidenceStore;
+import com.example.appmunicipal.util.HashUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Almacenamiento de evidencias direccionado por contenido.
+ * Cada archivo se guarda una sola vez con la clave ab/cd/<sha256> del EvidenceStore
+ * y la evidencia se publica como <sha256>.<ext>: el mismo contenido siempre tiene la
+ * misma URL, así que el "Cache-Control: immutable" de nginx es correcto y subir dos
+ * veces la misma foto no ocupa espacio de nuevo. blobs_evidencia lleva la cuenta de
+ * referencias.
+ *
+ * Las evidencias anteriores (evidencia-<timestamp>.<ext>) usan su nombre como clave.
+ */
+@Service
+@Slf4j
+public class AlmacenEvidenciaService {
+
+    private static final Pattern NOMBRE_BLOB = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,10})?");
+
+    /**
+     * Resultado de guardar un contenido: hash, tamaño y nombres para la Evidencia
+     */
+    public record BlobGuardado(String hash, long tamanoBytes, String nombreArchivo, String rutaArchivo) {
+    }
+
+    private final BlobEvidenciaRepository blobEvidenciaRepository;
+    private final TrabajoMiniaturaRepository trabajoMiniaturaRepository;
+    private final BorradoEvidenciaService borradoEvidenciaService;
+    private final EvidenceStore evidenceStore;
+    private final HashUtil hashUtil;
+
+    public AlmacenEvidenciaService(BlobEvidenciaRepository blobEvidenciaRepository,
+                                   TrabajoMiniaturaRepository trabajoMiniaturaRepository,
+                                   BorradoEvidenciaService borradoEvidenciaService,
+                                   EvidenceStore evidenceStore,
+                                   HashUtil hashUtil) {
+        this.blobEvidenciaRepository = blobEvidenciaRepository;
+        this.trabajoMiniaturaRepository = trabajoMiniaturaRepository;
+        this.borradoEvidenciaService = borradoEvidenciaService;
+        this.evidenceStore = evidenceStore;
+        this.hashUtil = hashUtil;
+    }
+
+    /**
+     * Guardar un archivo subido. Primero se lee solo para calcular el hash y se
+     * suma la referencia; si el blob ya existía no se escribe nada, si no se vuelve
+     * a leer y se envía por streaming al almacén.
+     *
+     * @param contenido      Contenido releíble (MultipartFile)
+     * @param nombreOriginal Nombre enviado por el cliente (solo se usa la extensión)
+     * @param contentType    Tipo MIME declarado
+     * @return Blob guardado con una referencia más
+     */
+    @Transactional
+    public BlobGuardado guardar(InputStreamSource contenido, String nombreOriginal, String contentType) throws IOException {
+        MessageDigest digest = hashUtil.nuevoSha256();
+        long tamano;
+        try (InputStream entrada = new DigestInputStream(contenido.getInputStream(), digest)) {
+            tamano = entrada.transferTo(OutputStream.nullOutputStream());
+        }
+        String hash = hashUtil.hex(digest);
+
+        String clave = claveBlob(hash);
+        if (debeEscribirse(hash, tamano, clave)) {
+            // Se pasa la fuente (no un stream abierto): un almacén remoto la reabre si reintenta
+            evidenceStore.put(clave, contenido, tamano, contentType);
+        } else {
+            log.info("♻️ Contenido repetido, se reutiliza el blob {}", hash);
+        }
+
+        return blobGuardado(hash, tamano, nombreOriginal);
+    }
+
+    /**
+     * Incorporar al almacén un archivo local ya completo (carga reanudable
+     * completada). Si el blob ya existía el archivo se descarta.
+     *
+     * @param archivo        Archivo completo
+     * @param nombreOriginal Nombre del que se toma la extensión
+     * @param contentType    Tipo MIME declarado
+     * @return Blob guardado con una referencia más
+     */
+    @Transactional
+    public BlobGuardado incorporar(Path archivo, String nombreOriginal, String contentType) throws IOException {
+        String hash = hashUtil.sha256(archivo);
+        long tamano = Files.size(archivo);
+
+        String clave = claveBlob(hash);
+        if (debeEscribirse(hash, tamano, clave)) {
+            evidenceStore.putFile(clave, archivo, contentType);
+        } else {
+            Files.deleteIfExists(archivo);
+            log.info("♻️ Contenido repetido, se reutiliza el blob {}", hash);
+        }
+
+        return blobGuardado(hash, tamano, nombreOriginal);
+    }
+
+    /**
+     * Quitar la referencia de una evidencia que se elimina; el archivo se borra
+     * solo cuando ninguna otra evidencia lo usa, y recién después del commit
+     * (ver BorradoEvidenciaService)
+     */
+    @Transactional
+    public void liberar(Evidencia evidencia) {
+        String nombreArchivo = evidencia.getNombreArchivo();
+        Matcher blob = NOMBRE_BLOB.matcher(nombreArchivo);
+
+        if (!blob.matches()) {
+            // Evidencia antigua: objeto propio con el nombre del archivo
+            borradoEvidenciaService.programar(nombreArchivo, null);
+            return;
+        }
+
+        String hash = blob.group(1);
+        blobEvidenciaRepository.restarReferencia(hash);
+        if (blobEvidenciaRepository.eliminarSinReferencias(hash) > 0) {
+            trabajoMiniaturaRepository.eliminarPorHash(hash);
+            borradoEvidenciaService.programar(claveBlob(hash), hash);
+            log.info("📁 Blob sin referencias, se borrará tras el commit: {}", hash);
+        }
+    }
+
+    /**
+     * Clave en el almacén de una evidencia a partir de su nombre público
+     * (<sha256>.<ext> para blobs, el nombre tal cual para evidencias antiguas)
+     */
+    public String clave(String nombreArchivo) {
+        Matcher blob = NOMBRE_BLOB.matcher(nombreArchivo);
+        return blob.matches() ? claveBlob(blob.group(1)) : nombreArchivo;
+    }
+
+    /**
+     * Hash del blob si el nombre corresponde a una evidencia por contenido
+     */
+    public Optional<String> hashBlob(String nombreArchivo) {
+        Matcher blob = NOMBRE_BLOB.matcher(nombreArchivo);
+        return blob.matches() ? Optional.of(blob.group(1)) : Optional.empty();
+    }
+
+    // Dos niveles de 256 prefijos para no acumular miles de archivos en un solo directorio
+    public String claveBlob(String hash) {
+        return hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+
+    // Las variantes (miniaturas) se guardan junto al blob: ab/cd/<sha256>-thumb.jpg
+    public String claveVariante(String hash, String variante) {
+        return claveBlob(hash) + "-" + variante + ".jpg";
+    }
+
+    /**
+     * Extensión normalizada del nombre enviado por el cliente: solo se conserva
+     * si es alfanumérica
+     */
+    public String extension(String filename) {
+        if (filename == null || !filename.contains(".")) {
+            return ".jpg"; // Default
+        }
+        String extension = filename.substring(filename.lastIndexOf("."));
+        return extension.matches("\\.[A-Za-z0-9]{1,10}") ? extension.toLowerCase() : ".jpg";
+    }
+
+    /**
+     * Sumar la referencia y decidir si hay que escribir el archivo. El upsert toma
+     * el lock de la fila hasta el commit, así que un borrado del mismo blob
+     * (BorradoEvidenciaService) termina antes o espera a esta transacción. Si la
+     * fila es nueva el archivo se escribe siempre: aunque stat lo vea, puede ser
+     * el de un blob liberado cuyo borrado está en curso.
+     */
+    private boolean debeEscribirse(String hash, long tamano, String clave) throws IOException {
+        blobEvidenciaRepository.sumarReferencia(hash, tamano);
+        Integer referencias = blobEvidenciaRepository.findReferencias(hash);
+        return referencias == null || referencias <= 1 || evidenceStore.stat(clave).isEmpty();
+    }
+
+    private BlobGuardado blobGuardado(String hash, long tamano, String nombreOriginal) {
+        return new BlobGuardado(hash, tamano, hash + extension(nombreOriginal), "/uploads/" + claveBlob(hash));
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.DTO.BarridoEvidenciasResponse;
+import com.example.appmunicipal.repository.BlobEvidenciaRepository;
+import com.example.appmunicipal.repository.BorradoPendienteRepository;
+import com.example.appmunicipal.repository.CargaEvidenciaRepository;
+import com.example.appmunicipal.repository.EvidenciaRepository;
+import com.example.appmunicipal.storage.EvidenceStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Conciliación periódica entre el almacén de evidencias y la base de datos:
+ * - Archivos huérfanos: blobs sin fila en blobs_evidencia, miniaturas de blobs
+ *   eliminados, evidencias antiguas sin fila en evidencias y temporales viejos.
+ *   Se reportan con los bytes recuperables y solo se eliminan si el ambiente lo
+ *   habilita (app.evidencias.barrido.eliminar, false por defecto).
+ * - Filas colgantes: evidencias o blobs cuyo archivo ya no existe (solo se reportan).
+ *
+ * Los archivos modificados dentro del período de gracia no se tocan: pueden ser
+ * subidas cuya transacción todavía no confirma.
+ */
+@Service
+@Slf4j
+public class BarridoHuerfanosService {
+
+    private static final Pattern BLOB = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern VARIANTE = Pattern.compile("([0-9a-f]{64})-[a-z]+\\.jpg");
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+    private static final int MAX_DETALLE_LOG = 10;
+
+    private final EvidenciaRepository evidenciaRepository;
+    private final BlobEvidenciaRepository blobEvidenciaRepository;
+    private final CargaEvidenciaRepository cargaEvidenciaRepository;
+    private final BorradoPendienteRepository borradoPendienteRepository;
+    private final AlmacenEvidenciaService almacenEvidenciaService;
+    private final BorradoEvidenciaService borradoEvidenciaService;
+    private final EvidenceStore evidenceStore;
+    private final long minutosGracia;
+    private final boolean eliminar;
+
+    private final ReentrantLock enCurso = new ReentrantLock();
+    private final AtomicLong huerfanosEliminadosTotal = new AtomicLong();
+    private final AtomicLong bytesRecuperadosTotal = new AtomicLong();
+    private volatile BarridoEvidenciasResponse ultimoBarrido;
+
+    public BarridoHuerfanosService(EvidenciaRepository evidenciaRepository,
+                                   BlobEvidenciaRepository blobEvidenciaRepository,
+                                   CargaEvidenciaRepository cargaEvidenciaRepository,
+                                   BorradoPendienteRepository borradoPendienteRepository,
+                                   AlmacenEvidenciaService almacenEvidenciaService,
+                                   BorradoEvidenciaService borradoEvidenciaService,
+                                   EvidenceStore evidenceStore,
+                                   @Value("${app.evidencias.barrido.gracia-minutos:60}") long minutosGracia,
+                                   @Value("${app.evidencias.barrido.eliminar:false}") boolean eliminar) {
+        this.evidenciaRepository = evidenciaRepository;
+        this.blobEvidenciaRepository = blobEvidenciaRepository;
+        this.cargaEvidenciaRepository = cargaEvidenciaRepository;
+        this.borradoPendienteRepository = borradoPendienteRepository;
+        this.almacenEvidenciaService = almacenEvidenciaService;
+        this.borradoEvidenciaService = borradoEvidenciaService;
+        this.evidenceStore = evidenceStore;
+        this.minutosGracia = minutosGracia;
+        this.eliminar = eliminar;
+    }
+
+    @Scheduled(cron = "${app.evidencias.barrido.cron:0 15 3 * * *}")
+    public void barridoProgramado() {
+        barrer();
+    }
+
+    /**
+     * Ejecutar la conciliación ahora
+     *
+     * @return Conteos del barrido
+     */
+    public BarridoEvidenciasResponse barrer() {
+        if (!enCurso.tryLock()) {
+            throw new RuntimeException("Ya hay un barrido de evidencias en curso");
+        }
+
+        try {
+            long inicio = System.currentTimeMillis();
+            log.info("🧹 Iniciando barrido de evidencias");
+
+            // Referencias conocidas (una consulta por tabla)
+            Set<String> hashes = new HashSet<>(blobEvidenciaRepository.findHashes());
+            Set<String> nombres = new HashSet<>(evidenciaRepository.findNombresArchivo());
+            Set<String> cargasEnCurso = new HashSet<>(cargaEvidenciaRepository.findNombresArchivoEnCurso());
+            Set<String> borradosPendientes = new HashSet<>(borradoPendienteRepository.findRutas());
+
+            BarridoEvidenciasResponse resultado = new BarridoEvidenciasResponse();
+            resultado.setFecha(LocalDateTime.now());
+            resultado.setHuerfanosEliminados(eliminar);
+
+            Set<String> claves = buscarHuerfanos(resultado, hashes, nombres, cargasEnCurso, borradosPendientes);
+            buscarFilasSinArchivo(resultado, hashes, nombres, claves);
+
+            resultado.setDuracionMs(System.currentTimeMillis() - inicio);
+            ultimoBarrido = resultado;
+
+            log.info("✅ Barrido de evidencias: {} archivos revisados, {} huérfanos ({} bytes), " +
+                            "{} evidencias y {} blobs sin archivo, en {} ms",
+                    resultado.getArchivosRevisados(), resultado.getArchivosHuerfanos(),
+                    resultado.getBytesHuerfanos(), resultado.getEvidenciasSinArchivo(),
+                    resultado.getBlobsSinArchivo(), resultado.getDuracionMs());
+
+            return resultado;
+
+        } finally {
+            enCurso.unlock();
+        }
+    }
+
+    /**
+     * Último barrido, totales acumulados desde el arranque y estado de la cola de borrados
+     */
+    public Map<String, Object> metricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("ultimoBarrido", ultimoBarrido);
+        metricas.put("huerfanosEliminadosTotal", huerfanosEliminadosTotal.get());
+        metricas.put("bytesRecuperadosTotal", bytesRecuperadosTotal.get());
+        metricas.put("borrados", borradoEvidenciaService.metricas());
+        return metricas;
+    }
+
+    /**
+     * Recorrer el almacén eliminando huérfanos
+     *
+     * @return Claves que siguen en el almacén (para detectar filas sin archivo)
+     */
+    private Set<String> buscarHuerfanos(BarridoEvidenciasResponse resultado, Set<String> hashes, Set<String> nombres,
+                                        Set<String> cargasEnCurso, Set<String> borradosPendientes) {
+        long limite = System.currentTimeMillis() - minutosGracia * 60_000;
+        long[] conteos = new long[3]; // revisados, huérfanos, bytes
+        Set<String> claves = new HashSet<>();
+
+        try {
+            evidenceStore.listar("", objeto -> {
+                conteos[0]++;
+
+                String clave = objeto.clave();
+                if (objeto.ultimaModificacion() > limite || borradosPendientes.contains(clave)
+                        || !esHuerfano(clave, hashes, nombres, cargasEnCurso)) {
+                    claves.add(clave);
+                    return;
+                }
+
+                conteos[1]++;
+                conteos[2] += objeto.tamano();
+                if (conteos[1] <= MAX_DETALLE_LOG) {
+                    log.warn("⚠️ Archivo huérfano: {} ({} bytes)", clave, objeto.tamano());
+                }
+
+                if (!eliminar) {
+                    claves.add(clave);
+                    return;
+                }
+                try {
+                    if (eliminarHuerfano(clave)) {
+                        huerfanosEliminadosTotal.incrementAndGet();
+                        bytesRecuperadosTotal.addAndGet(objeto.tamano());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Error al recorrer el almacén de evidencias: " + e.getMessage(), e);
+        }
+
+        resultado.setArchivosRevisados(conteos[0]);
+        resultado.setArchivosHuerfanos(conteos[1]);
+        resultado.setBytesHuerfanos(conteos[2]);
+        return claves;
+    }
+
+    // Blobs y variantes se borran con el hash reservado: una subida que reutiliza el
+    // archivo después de cargar los hashes lo conserva
+    private boolean eliminarHuerfano(String clave) throws IOException {
+        String nombre = clave.substring(clave.lastIndexOf('/') + 1);
+        Matcher variante = VARIANTE.matcher(nombre);
+        if (BLOB.matcher(nombre).matches() || variante.matches()) {
+            String hash = variante.matches() ? variante.group(1) : nombre;
+            return borradoEvidenciaService.eliminarSinReferencias(hash, clave);
+        }
+        return evidenceStore.delete(clave);
+    }
+
+    private boolean esHuerfano(String ruta, Set<String> hashes, Set<String> nombres, Set<String> cargasEnCurso) {
+        String[] partes = ruta.split("/");
+
+        // Temporales de subidas o miniaturas interrumpidas
+        if (partes[0].equals(".tmp")) {
+            return true;
+        }
+
+        // Evidencias antiguas y cargas reanudables en la raíz
+        if (partes.length == 1) {
+            return ruta.startsWith("evidencia-") && !nombres.contains(ruta) && !cargasEnCurso.contains(ruta);
+        }
+
+        // Blobs y variantes: ab/cd/<sha256>[-variante.jpg]
+        if (partes.length == 3 && SHARD.matcher(partes[0]).matches() && SHARD.matcher(partes[1]).matches()) {
+            if (BLOB.matcher(partes[2]).matches()) {
+                return !hashes.contains(partes[2]);
+            }
+            Matcher variante = VARIANTE.matcher(partes[2]);
+            if (variante.matches()) {
+                return !hashes.contains(variante.group(1));
+            }
+        }
+
+        // Cualquier otro archivo no lo gestiona el almacén
+        return false;
+    }
+
+    private void buscarFilasSinArchivo(BarridoEvidenciasResponse resultado, Set<String> hashes, Set<String> nombres,
+                                       Set<String> claves) {
+        long evidenciasSinArchivo = 0;
+        for (String nombre : nombres) {
+            if (claves.contains(almacenEvidenciaService.clave(nombre))) {
+                continue;
+            }
+            // Evidencias antiguas también se sirven desde el classpath (ver DescargaEvidenciaService)
+            if (almacenEvidenciaService.hashBlob(nombre).isEmpty()
+                    && new ClassPathResource("static/uploads/" + nombre).exists()) {
+                continue;
+            }
+            if (++evidenciasSinArchivo <= MAX_DETALLE_LOG) {
+                log.warn("⚠️ Evidencia sin archivo: {}", nombre);
+            }
+        }
+
+        long blobsSinArchivo = 0;
+        for (String hash : hashes) {
+            if (!claves.contains(almacenEvidenciaService.claveBlob(hash)) && ++blobsSinArchivo <= MAX_DETALLE_LOG) {
+                log.warn("⚠️ Blob sin archivo: {}", hash);
+            }
+        }
+
+        resultado.setEvidenciasSinArchivo(evidenciasSinArchivo);
+        resultado.setBlobsSinArchivo(blobsSinArchivo);
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.domain.BorradoPendiente;
+import com.example.appmunicipal.repository.BlobEvidenciaRepository;
+import com.example.appmunicipal.repository.BorradoPendienteRepository;
+import com.example.appmunicipal.storage.EvidenceStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Borrado de archivos de evidencia fuera de la transacción (outbox).
+ * Los servicios registran qué borrar con programar() dentro de su transacción;
+ * tras el commit un único hilo en segundo plano borra los archivos y las filas
+ * de borrados_pendientes. Lo que quede pendiente (caída, error de disco) se
+ * reintenta periódicamente.
+ *
+ * Los blobs se borran con su hash reservado (fila lápida en blobs_evidencia): una
+ * subida del mismo contenido espera a que termine el borrado y vuelve a escribir
+ * el archivo, o el borrado ve la fila de la subida y conserva el blob.
+ */
+@Service
+@Slf4j
+public class BorradoEvidenciaService {
+
+    private static final int LOTE = 100;
+
+    @FunctionalInterface
+    private interface AccionAlmacen {
+        void ejecutar() throws IOException;
+    }
+
+    private final BorradoPendienteRepository borradoPendienteRepository;
+    private final BlobEvidenciaRepository blobEvidenciaRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EvidenceStore evidenceStore;
+    private final TransactionTemplate transaccion;
+    private final Path directorioUploads;
+    private final int maxIntentos;
+
+    // Un solo hilo: los borrados quedan serializados y no compiten con las peticiones
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("borrados-evidencia").daemon().factory());
+
+    private final AtomicLong archivosEliminados = new AtomicLong();
+    private final AtomicLong bytesLiberados = new AtomicLong();
+    private final AtomicLong blobsConservados = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+
+    public BorradoEvidenciaService(BorradoPendienteRepository borradoPendienteRepository,
+                                   BlobEvidenciaRepository blobEvidenciaRepository,
+                                   ApplicationEventPublisher eventPublisher,
+                                   EvidenceStore evidenceStore,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${UPLOAD_PATH:backend/src/main/resources/static/uploads}") String uploadPath,
+                                   @Value("${app.evidencias.borrado.max-intentos:5}") int maxIntentos) {
+        this.borradoPendienteRepository = borradoPendienteRepository;
+        this.blobEvidenciaRepository = blobEvidenciaRepository;
+        this.eventPublisher = eventPublisher;
+        this.evidenceStore = evidenceStore;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.directorioUploads = Paths.get(uploadPath).toAbsolutePath().normalize();
+        this.maxIntentos = maxIntentos;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Programar el borrado de un objeto del almacén para después del commit
+     *
+     * @param clave Clave en el EvidenceStore
+     * @param hash  Hash del blob (se borran también sus variantes) o null
+     */
+    @Transactional
+    public void programar(String clave, String hash) {
+        registrar(clave, hash, false);
+    }
+
+    /**
+     * Programar el borrado del archivo parcial de una carga reanudable
+     *
+     * @param ruta Ruta relativa al directorio de uploads
+     */
+    @Transactional
+    public void programarLocal(String ruta) {
+        registrar(ruta, null, true);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alConfirmar(BorradosPendientesEvent event) {
+        despachar();
+    }
+
+    @Scheduled(initialDelayString = "${app.evidencias.borrado.reintento-ms:300000}",
+            fixedDelayString = "${app.evidencias.borrado.reintento-ms:300000}")
+    public void reintentarPendientes() {
+        despachar();
+    }
+
+    /**
+     * Contadores acumulados desde el arranque y borrados aún pendientes
+     */
+    public Map<String, Object> metricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("pendientes", borradoPendienteRepository.count());
+        metricas.put("archivosEliminados", archivosEliminados.get());
+        metricas.put("bytesLiberados", bytesLiberados.get());
+        metricas.put("blobsConservados", blobsConservados.get());
+        metricas.put("errores", errores.get());
+        return metricas;
+    }
+
+    private void registrar(String ruta, String hash, boolean archivoLocal) {
+        BorradoPendiente borrado = new BorradoPendiente();
+        borrado.setRuta(ruta);
+        borrado.setHash(hash);
+        borrado.setArchivoLocal(archivoLocal);
+        borradoPendienteRepository.save(borrado);
+
+        eventPublisher.publishEvent(new BorradosPendientesEvent());
+    }
+
+    private void despachar() {
+        try {
+            executor.execute(this::procesarPendientes);
+        } catch (RejectedExecutionException e) {
+            log.debug("Borrado de evidencias no despachado (apagando)");
+        }
+    }
+
+    void procesarPendientes() {
+        long ultimoId = 0;
+        List<BorradoPendiente> lote;
+
+        do {
+            lote = borradoPendienteRepository.findByIdGreaterThanOrderByIdAsc(ultimoId, PageRequest.of(0, LOTE));
+            for (BorradoPendiente borrado : lote) {
+                ultimoId = borrado.getId();
+                procesar(borrado);
+            }
+        } while (lote.size() == LOTE);
+    }
+
+    private void procesar(BorradoPendiente borrado) {
+        try {
+            if (borrado.getHash() == null) {
+                borrar(borrado);
+            } else if (!conHashReservado(borrado.getHash(), () -> borrar(borrado))) {
+                // El mismo contenido se volvió a subir después de liberar el blob: se conserva
+                blobsConservados.incrementAndGet();
+                log.info("♻️ Blob {} volvió a tener referencias, no se borra", borrado.getHash());
+            }
+            borradoPendienteRepository.delete(borrado);
+
+        } catch (IOException | RuntimeException e) {
+            errores.incrementAndGet();
+            borrado.setIntentos(borrado.getIntentos() + 1);
+
+            if (borrado.getIntentos() >= maxIntentos) {
+                // Se abandona: el barrido de huérfanos lo detectará como archivo sin referencia
+                log.error("❌ No se pudo borrar {} tras {} intentos: {}",
+                        borrado.getRuta(), borrado.getIntentos(), e.getMessage());
+                borradoPendienteRepository.delete(borrado);
+            } else {
+                log.warn("⚠️ No se pudo borrar {} (intento {}): {}",
+                        borrado.getRuta(), borrado.getIntentos(), e.getMessage());
+                borradoPendienteRepository.save(borrado);
+            }
+        }
+    }
+
+    /**
+     * Borrar un objeto de un blob (el blob o una variante) solo si el hash no
+     * tiene fila en blobs_evidencia; lo usa el barrido de huérfanos
+     *
+     * @return false si el blob tiene referencias y no se borró
+     */
+    public boolean eliminarSinReferencias(String hash, String clave) throws IOException {
+        return conHashReservado(hash, () -> evidenceStore.delete(clave));
+    }
+
+    // Ejecutar la acción con el hash reservado por una lápida que se elimina en la
+    // misma transacción; false si el blob tiene fila (nada se ejecuta)
+    private boolean conHashReservado(String hash, AccionAlmacen accion) throws IOException {
+        try {
+            return Boolean.TRUE.equals(transaccion.execute(estado -> {
+                if (blobEvidenciaRepository.reservarParaBorrado(hash) == 0) {
+                    return false;
+                }
+                try {
+                    accion.ejecutar();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                blobEvidenciaRepository.eliminarSinReferencias(hash);
+                return true;
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void borrar(BorradoPendiente borrado) throws IOException {
+        if (Boolean.TRUE.equals(borrado.getArchivoLocal())) {
+            borrarLocal(borrado.getRuta());
+            return;
+        }
+
+        eliminar(borrado.getRuta());
+
+        // Variantes del blob (miniaturas): ab/cd/<sha256>-*
+        if (borrado.getHash() != null) {
+            List<EvidenceStore.Objeto> variantes = new ArrayList<>();
+            evidenceStore.listar(borrado.getRuta() + "-", variantes::add);
+            for (EvidenceStore.Objeto variante : variantes) {
+                eliminar(variante.clave());
+            }
+        }
+    }
+
+    private void eliminar(String clave) throws IOException {
+        Optional<EvidenceStore.Objeto> objeto = evidenceStore.stat(clave);
+        if (objeto.isEmpty()) {
+            return;
+        }
+        if (evidenceStore.delete(clave)) {
+            archivosEliminados.incrementAndGet();
+            bytesLiberados.addAndGet(objeto.get().tamano());
+            log.info("📁 Archivo eliminado: {}", clave);
+        }
+    }
+
+    private void borrarLocal(String ruta) throws IOException {
+        Path archivo = directorioUploads.resolve(ruta).normalize();
+        if (!archivo.startsWith(directorioUploads)) {
+            throw new IOException("Ruta fuera del directorio de uploads: " + ruta);
+        }
+        if (!Files.exists(archivo)) {
+            return;
+        }
+        long tamano = Files.size(archivo);
+        if (Files.deleteIfExists(archivo)) {
+            archivosEliminados.incrementAndGet();
+            bytesLiberados.addAndGet(tamano);
+            log.info("📁 Archivo parcial eliminado: {}", ruta);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.appmunicipal.service;
+
+/**
+ * Se programaron borrados de archivos en la transacción actual; tras el commit
+ * BorradoEvidenciaService los ejecuta en segundo plano.
+ */
+public record BorradosPendientesEvent() {
+}
@@ -0,0 +1,332 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.DTO.CargaEvidenciaResponse;
+import com.example.appmunicipal.DTO.EvidenciaResponse;
+import com.example.appmunicipal.DTO.IniciarCargaRequest;
+import com.example.appmunicipal.domain.CargaEvidencia;
+import com.example.appmunicipal.domain.Denuncia;
+import com.example.appmunicipal.domain.Evidencia;
+import com.example.appmunicipal.repository.CargaEvidenciaRepository;
+import com.example.appmunicipal.repository.DenunciaRepository;
+import com.example.appmunicipal.repository.EvidenciaRepository;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Carga reanudable de evidencias (iniciar / enviar fragmento / completar).
+ * Cada fragmento se escribe con FileChannel directamente en el archivo definitivo,
+ * en la posición indicada por el cliente, sin pasar por multipart ni copias
+ * intermedias. El offset confirmado queda en cargas_evidencia, así que tras un
+ * corte el cliente consulta el offset y continúa desde ahí.
+ */
+@Service
+@Slf4j
+public class CargaEvidenciaService {
+
+    /**
+     * El offset enviado no coincide con el confirmado (fragmento repetido,
+     * desordenado o concurrente). El cliente debe reanudar desde offsetActual.
+     */
+    @Getter
+    public static class OffsetInvalidoException extends RuntimeException {
+
+        private final long offsetActual;
+
+        public OffsetInvalidoException(String message, long offsetActual) {
+            super(message);
+            this.offsetActual = offsetActual;
+        }
+    }
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final CargaEvidenciaRepository cargaEvidenciaRepository;
+    private final DenunciaRepository denunciaRepository;
+    private final EvidenciaRepository evidenciaRepository;
+    private final AlmacenEvidenciaService almacenEvidenciaService;
+    private final MiniaturaService miniaturaService;
+    private final BorradoEvidenciaService borradoEvidenciaService;
+    private final Path directorioUploads;
+    private final long tamanoMaximo;
+    private final long fragmentoMaximo;
+    private final long horasExpiracion;
+
+    // Cargas con un fragmento escribiéndose en este momento
+    private final Set<String> fragmentosEnCurso = ConcurrentHashMap.newKeySet();
+
+    public CargaEvidenciaService(CargaEvidenciaRepository cargaEvidenciaRepository,
+                                 DenunciaRepository denunciaRepository,
+                                 EvidenciaRepository evidenciaRepository,
+                                 AlmacenEvidenciaService almacenEvidenciaService,
+                                 MiniaturaService miniaturaService,
+                                 BorradoEvidenciaService borradoEvidenciaService,
+                                 @Value("${UPLOAD_PATH:backend/src/main/resources/static/uploads}") String uploadPath,
+                                 @Value("${app.evidencias.carga.tamano-maximo-bytes:104857600}") long tamanoMaximo,
+                                 @Value("${app.evidencias.carga.fragmento-maximo-bytes:10485760}") long fragmentoMaximo,
+                                 @Value("${app.evidencias.carga.expiracion-horas:24}") long horasExpiracion) {
+        this.cargaEvidenciaRepository = cargaEvidenciaRepository;
+        this.denunciaRepository = denunciaRepository;
+        this.evidenciaRepository = evidenciaRepository;
+        this.almacenEvidenciaService = almacenEvidenciaService;
+        this.miniaturaService = miniaturaService;
+        this.borradoEvidenciaService = borradoEvidenciaService;
+        this.directorioUploads = Paths.get(uploadPath);
+        this.tamanoMaximo = tamanoMaximo;
+        this.fragmentoMaximo = fragmentoMaximo;
+        this.horasExpiracion = horasExpiracion;
+    }
+
+    /**
+     * Iniciar una carga: reserva el nombre definitivo y devuelve el uploadId
+     *
+     * @param denunciaId ID de la denuncia
+     * @param request    Nombre original, tipo MIME y tamaño total
+     * @return Estado de la carga (offset 0)
+     */
+    @Transactional
+    public CargaEvidenciaResponse iniciarCarga(Long denunciaId, IniciarCargaRequest request) {
+        log.info("📤 Iniciando carga reanudable para denuncia ID: {}", denunciaId);
+
+        Denuncia denuncia = denunciaRepository.findById(denunciaId)
+                .orElseThrow(() -> new RuntimeException("Denuncia no encontrada con ID: " + denunciaId));
+
+        if (request.getTamanoBytes() == null || request.getTamanoBytes() <= 0) {
+            throw new RuntimeException("El tamaño del archivo es obligatorio");
+        }
+        if (request.getTamanoBytes() > tamanoMaximo) {
+            throw new RuntimeException("El archivo supera el máximo de " + tamanoMaximo + " bytes");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+
+        CargaEvidencia carga = new CargaEvidencia();
+        carga.setId(uploadId);
+        carga.setDenuncia(denuncia);
+        carga.setNombreArchivo("evidencia-" + uploadId + almacenEvidenciaService.extension(request.getNombreArchivo()));
+        carga.setMimeType(request.getMimeType());
+        carga.setTamanoTotal(request.getTamanoBytes());
+
+        try {
+            Files.createDirectories(directorioUploads);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al preparar el directorio de uploads: " + e.getMessage(), e);
+        }
+
+        CargaEvidencia guardada = cargaEvidenciaRepository.save(carga);
+
+        log.info("✅ Carga {} iniciada ({} bytes)", uploadId, request.getTamanoBytes());
+
+        return new CargaEvidenciaResponse(guardada);
+    }
+
+    /**
+     * Consultar el estado de una carga (offset desde el cual reanudar)
+     */
+    @Transactional(readOnly = true)
+    public CargaEvidenciaResponse obtenerCarga(String uploadId) {
+        return new CargaEvidenciaResponse(buscarCarga(uploadId));
+    }
+
+    /**
+     * Escribir un fragmento en la posición offset del archivo definitivo.
+     * No abre transacción mientras se lee la red: solo la actualización del offset
+     * es transaccional (y condicionada al offset leído).
+     *
+     * @param uploadId ID de la carga
+     * @param offset   Posición donde comienza el fragmento (debe ser el offset confirmado)
+     * @param datos    Cuerpo de la petición
+     * @return Nuevo offset confirmado
+     */
+    public long recibirFragmento(String uploadId, long offset, InputStream datos) {
+        if (!fragmentosEnCurso.add(uploadId)) {
+            CargaEvidencia carga = buscarCarga(uploadId);
+            throw new OffsetInvalidoException("Ya se está recibiendo un fragmento para esta carga",
+                    carga.getBytesRecibidos());
+        }
+
+        try {
+            CargaEvidencia carga = buscarCarga(uploadId);
+
+            if (carga.getEstado() != CargaEvidencia.EstadoCarga.EN_CURSO) {
+                throw new RuntimeException("La carga ya fue completada");
+            }
+            if (offset != carga.getBytesRecibidos()) {
+                throw new OffsetInvalidoException("Offset inválido: se esperaba " + carga.getBytesRecibidos(),
+                        carga.getBytesRecibidos());
+            }
+
+            long limite = Math.min(carga.getTamanoTotal() - offset, fragmentoMaximo);
+            long escritos = escribirEnPosicion(directorioUploads.resolve(carga.getNombreArchivo()),
+                    offset, limite, datos);
+            long nuevoOffset = offset + escritos;
+
+            if (cargaEvidenciaRepository.avanzarOffset(uploadId, offset, nuevoOffset, LocalDateTime.now()) == 0) {
+                CargaEvidencia actual = buscarCarga(uploadId);
+                throw new OffsetInvalidoException("La carga fue modificada por otra petición",
+                        actual.getBytesRecibidos());
+            }
+
+            log.info("📦 Carga {}: {} bytes recibidos ({}/{})",
+                    uploadId, escritos, nuevoOffset, carga.getTamanoTotal());
+
+            return nuevoOffset;
+
+        } finally {
+            fragmentosEnCurso.remove(uploadId);
+        }
+    }
+
+    /**
+     * Completar la carga y crear la Evidencia. Es idempotente: si la carga ya
+     * estaba completada devuelve la misma evidencia.
+     *
+     * @param uploadId ID de la carga
+     * @return EvidenciaResponse
+     */
+    @Transactional
+    public EvidenciaResponse completarCarga(String uploadId) {
+        CargaEvidencia carga = buscarCarga(uploadId);
+
+        if (carga.getEstado() == CargaEvidencia.EstadoCarga.COMPLETADA) {
+            return evidenciaRepository.findById(carga.getEvidenciaId())
+                    .map(EvidenciaResponse::new)
+                    .orElseThrow(() -> new RuntimeException("Evidencia no encontrada para la carga: " + uploadId));
+        }
+
+        if (!carga.getBytesRecibidos().equals(carga.getTamanoTotal())) {
+            throw new OffsetInvalidoException("Carga incompleta: " + carga.getBytesRecibidos() + " de "
+                    + carga.getTamanoTotal() + " bytes", carga.getBytesRecibidos());
+        }
+
+        AlmacenEvidenciaService.BlobGuardado blob = incorporarAlAlmacen(carga);
+
+        Evidencia evidencia = new Evidencia();
+        evidencia.setDenuncia(carga.getDenuncia());
+        evidencia.setNombreArchivo(blob.nombreArchivo());
+        evidencia.setRutaArchivo(blob.rutaArchivo());
+        evidencia.setMimeType(carga.getMimeType());
+        evidencia.setTamanoBytes(blob.tamanoBytes());
+        evidencia.setHashContenido(blob.hash());
+        evidencia.setTipo(Evidencia.TipoEvidencia.desdeMimeType(carga.getMimeType()));
+
+        Evidencia evidenciaGuardada = evidenciaRepository.save(evidencia);
+        miniaturaService.encolar(blob.hash(), carga.getMimeType());
+
+        carga.setEstado(CargaEvidencia.EstadoCarga.COMPLETADA);
+        carga.setEvidenciaId(evidenciaGuardada.getId());
+        carga.setFechaActualizacion(LocalDateTime.now());
+
+        log.info("✅ Carga {} completada: evidencia {}", uploadId, evidenciaGuardada.getNombreArchivo());
+
+        return new EvidenciaResponse(evidenciaGuardada);
+    }
+
+    /**
+     * Eliminar cargas abandonadas (sin fragmentos durante expiracion-horas) y sus
+     * archivos parciales
+     */
+    @Scheduled(cron = "${app.evidencias.carga.limpieza-cron:0 30 * * * *}")
+    @Transactional
+    public void limpiarCargasAbandonadas() {
+        List<CargaEvidencia> abandonadas = cargaEvidenciaRepository.findByEstadoAndFechaActualizacionBefore(
+                CargaEvidencia.EstadoCarga.EN_CURSO, LocalDateTime.now().minusHours(horasExpiracion));
+
+        for (CargaEvidencia carga : abandonadas) {
+            borradoEvidenciaService.programarLocal(carga.getNombreArchivo());
+        }
+        cargaEvidenciaRepository.deleteAll(abandonadas);
+
+        if (!abandonadas.isEmpty()) {
+            log.info("🧹 {} cargas abandonadas eliminadas", abandonadas.size());
+        }
+    }
+
+    /**
+     * Descartar las cargas de una denuncia que se elimina (y el archivo parcial
+     * de las que seguían en curso)
+     *
+     * @param denunciaId ID de la denuncia
+     */
+    @Transactional
+    public void descartarCargas(Long denunciaId) {
+        List<CargaEvidencia> cargas = cargaEvidenciaRepository.findByDenunciaId(denunciaId);
+
+        for (CargaEvidencia carga : cargas) {
+            if (carga.getEstado() == CargaEvidencia.EstadoCarga.EN_CURSO) {
+                borradoEvidenciaService.programarLocal(carga.getNombreArchivo());
+            }
+        }
+        cargaEvidenciaRepository.deleteAll(cargas);
+    }
+
+    private long escribirEnPosicion(Path archivo, long offset, long limite, InputStream datos) {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANO_BUFFER);
+            long escritos = 0;
+
+            while (true) {
+                int leidos;
+                try {
+                    leidos = datos.read(buffer.array(), 0, buffer.capacity());
+                } catch (IOException e) {
+                    // Conexión cortada: se confirma lo recibido hasta ahora y el cliente reanuda
+                    log.warn("⚠️ Fragmento interrumpido tras {} bytes: {}", escritos, e.getMessage());
+                    break;
+                }
+                if (leidos == -1) {
+                    break;
+                }
+                if (escritos + leidos > limite) {
+                    throw new RuntimeException("El fragmento supera el tamaño permitido (" + limite + " bytes)");
+                }
+
+                buffer.limit(leidos);
+                buffer.position(0);
+                while (buffer.hasRemaining()) {
+                    escritos += canal.write(buffer, offset + escritos);
+                }
+            }
+
+            // El offset solo se confirma cuando los bytes están en disco
+            canal.force(false);
+            return escritos;
+
+        } catch (IOException e) {
+            throw new RuntimeException("Error al escribir el fragmento: " + e.getMessage(), e);
+        }
+    }
+
+    // Los fragmentos pueden llegar en peticiones distintas: el hash se calcula al completar
+    // y el archivo parcial pasa al almacén por contenido (o se descarta si ya existía)
+    private AlmacenEvidenciaService.BlobGuardado incorporarAlAlmacen(CargaEvidencia carga) {
+        try {
+            return almacenEvidenciaService.incorporar(directorioUploads.resolve(carga.getNombreArchivo()),
+                    carga.getNombreArchivo(), carga.getMimeType());
+        } catch (IOException e) {
+            throw new RuntimeException("Error al leer el archivo de la carga: " + e.getMessage(), e);
+        }
+    }
+
+    private CargaEvidencia buscarCarga(String uploadId) {
+        return cargaEvidenciaRepository.findById(uploadId)
+                .orElseThrow(() -> new RuntimeException("Carga no encontrada: " + uploadId));
+    }
+}
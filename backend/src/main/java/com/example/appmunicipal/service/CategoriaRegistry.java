@@ -0,0 +1,129 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.DTO.DenunciaResponse.CategoriaSimpleDto;
+import com.example.appmunicipal.domain.Categoria;
+import com.example.appmunicipal.repository.CategoriaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Registro en memoria de las categorías (son unas diez y casi no cambian).
+ * Se carga al arrancar y se reemplaza completo en cada recarga (copy-on-write):
+ * las lecturas no toman locks y siempre ven un mapa consistente.
+ *
+ * Con el registro, Denuncia.categoria es LAZY y los listados no necesitan el
+ * JOIN con categorias: el nombre, código y color salen de aquí por id.
+ * Se recarga periódicamente y cuando se pide un id que no está (categoría
+ * creada en otra instancia o directamente en la base de datos). La recarga por
+ * id desconocido ocurre a lo más una vez cada app.categorias.recarga-por-fallo-ms;
+ * entretanto un id inexistente responde no encontrada sin ir a la base de datos.
+ */
+@Component
+@Slf4j
+public class CategoriaRegistry {
+
+    /**
+     * Datos de una categoría que se usan al crear y mostrar denuncias
+     */
+    public record CategoriaRegistrada(Long id, String nombre, String codigo, String colorHex, boolean activa) {
+
+        public CategoriaSimpleDto aDto() {
+            return new CategoriaSimpleDto(id, nombre, codigo, colorHex);
+        }
+    }
+
+    private final CategoriaRepository categoriaRepository;
+    private final long intervaloRecargaPorFalloMs;
+    private volatile Map<Long, CategoriaRegistrada> categorias;
+    private volatile long ultimaRecargaMs;
+
+    public CategoriaRegistry(CategoriaRepository categoriaRepository,
+                             @Value("${app.categorias.recarga-por-fallo-ms:5000}") long intervaloRecargaPorFalloMs) {
+        this.categoriaRepository = categoriaRepository;
+        this.intervaloRecargaPorFalloMs = intervaloRecargaPorFalloMs;
+    }
+
+    /**
+     * Categoría por id; si no está registrada se recarga desde la base de datos,
+     * salvo que la última recarga sea más reciente que recarga-por-fallo-ms
+     */
+    public Optional<CategoriaRegistrada> obtener(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        CategoriaRegistrada categoria = actuales().get(id);
+        if (categoria == null) {
+            categoria = recargarPorFallo().get(id);
+        }
+        return Optional.ofNullable(categoria);
+    }
+
+    /**
+     * DTO de la categoría para DenunciaResponse
+     */
+    public CategoriaSimpleDto dto(Long id) {
+        return obtener(id).map(CategoriaRegistrada::aDto)
+                .orElseThrow(() -> new RuntimeException("Categoría no encontrada con ID: " + id));
+    }
+
+    public boolean existe(Long id) {
+        return obtener(id).isPresent();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.categorias.recarga-ms:300000}",
+            fixedDelayString = "${app.categorias.recarga-ms:300000}")
+    public void recargarProgramado() {
+        recargar();
+    }
+
+    /**
+     * Leer todas las categorías y publicar el nuevo mapa
+     */
+    public synchronized Map<Long, CategoriaRegistrada> recargar() {
+        Map<Long, CategoriaRegistrada> nuevas = categoriaRepository.findAll().stream()
+                .map(this::aRegistrada)
+                .collect(Collectors.toUnmodifiableMap(CategoriaRegistrada::id, Function.identity()));
+
+        Map<Long, CategoriaRegistrada> anteriores = categorias;
+        categorias = nuevas;
+        ultimaRecargaMs = System.currentTimeMillis();
+        if (!nuevas.equals(anteriores)) {
+            log.info("📂 Registro de categorías cargado: {} categorías", nuevas.size());
+        }
+        return nuevas;
+    }
+
+    // Ids inexistentes (o inventados) no pueden forzar un findAll por request
+    private Map<Long, CategoriaRegistrada> recargarPorFallo() {
+        if (System.currentTimeMillis() - ultimaRecargaMs < intervaloRecargaPorFalloMs) {
+            return actuales();
+        }
+        synchronized (this) {
+            // Otro hilo pudo recargar mientras se esperaba el lock
+            if (System.currentTimeMillis() - ultimaRecargaMs < intervaloRecargaPorFalloMs) {
+                return actuales();
+            }
+            return recargar();
+        }
+    }
+
+    private Map<Long, CategoriaRegistrada> actuales() {
+        Map<Long, CategoriaRegistrada> actuales = categorias;
+        return actuales != null ? actuales : recargar();
+    }
+
+    private CategoriaRegistrada aRegistrada(Categoria categoria) {
+        return new CategoriaRegistrada(categoria.getId(), categoria.getNombre(), categoria.getCodigo(),
+                categoria.getColorHex(), Boolean.TRUE.equals(categoria.getActiva()));
+    }
+}
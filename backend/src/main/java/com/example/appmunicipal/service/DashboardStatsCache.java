@@ -0,0 +1,123 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.DTO.DashboardStatsResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Cache en memoria de las estadísticas avanzadas del dashboard.
+ *
+ * - Single-flight: aunque lleguen muchas peticiones a la vez, solo se ejecuta
+ *   un cálculo; el resto espera ese mismo resultado.
+ * - Stale-while-revalidate: pasado el TTL fresco (o tras una invalidación) se
+ *   devuelve el valor anterior y se recalcula en segundo plano, hasta el TTL máximo.
+ * - Invalidación: cada escritura sobre denuncias incrementa la generación tras
+ *   el commit, de modo que un cálculo iniciado antes nunca queda como fresco.
+ */
+@Component
+@Slf4j
+public class DashboardStatsCache {
+
+    private record Entrada(DashboardStatsResponse valor, long calculadoEn, long generacion) {
+    }
+
+    private final long ttlFrescoMs;
+    private final long ttlMaximoMs;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("dashboard-cache-", 0).factory());
+
+    private final AtomicLong generacion = new AtomicLong();
+    private final AtomicReference<CompletableFuture<Entrada>> enCurso = new AtomicReference<>();
+    private volatile Entrada actual;
+
+    public DashboardStatsCache(@Value("${app.estadisticas.cache.ttl-fresco-seg:60}") long ttlFrescoSeg,
+                               @Value("${app.estadisticas.cache.ttl-maximo-seg:300}") long ttlMaximoSeg) {
+        this.ttlFrescoMs = ttlFrescoSeg * 1000;
+        this.ttlMaximoMs = ttlMaximoSeg * 1000;
+    }
+
+    public DashboardStatsResponse obtener(Supplier<DashboardStatsResponse> calculo) {
+        Entrada entrada = actual;
+        long ahora = System.currentTimeMillis();
+
+        if (entrada != null) {
+            long edad = ahora - entrada.calculadoEn();
+            boolean vigente = entrada.generacion() == generacion.get()
+                    && !Boolean.TRUE.equals(entrada.valor().getParcial());
+
+            if (vigente && edad <= ttlFrescoMs) {
+                return entrada.valor();
+            }
+            if (edad <= ttlMaximoMs) {
+                // Stale-while-revalidate: responder con el valor anterior y refrescar
+                cargar(calculo);
+                return entrada.valor();
+            }
+        }
+
+        try {
+            return cargar(calculo).join().valor();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    /**
+     * Marcar el valor actual como obsoleto; la siguiente lectura lo refresca
+     */
+    public void invalidar() {
+        generacion.incrementAndGet();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDenunciaCambiada(DenunciaCambiadaEvent evento) {
+        invalidar();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<Entrada> cargar(Supplier<DashboardStatsResponse> calculo) {
+        while (true) {
+            CompletableFuture<Entrada> existente = enCurso.get();
+            if (existente != null) {
+                return existente;
+            }
+
+            CompletableFuture<Entrada> nuevo = new CompletableFuture<>();
+            if (enCurso.compareAndSet(null, nuevo)) {
+                executor.execute(() -> ejecutarCarga(calculo, nuevo));
+                return nuevo;
+            }
+        }
+    }
+
+    private void ejecutarCarga(Supplier<DashboardStatsResponse> calculo, CompletableFuture<Entrada> resultado) {
+        try {
+            // La generación se lee antes de calcular: una escritura concurrente deja la entrada obsoleta
+            long generacionInicial = generacion.get();
+            Entrada entrada = new Entrada(calculo.get(), System.currentTimeMillis(), generacionInicial);
+            actual = entrada;
+            resultado.complete(entrada);
+        } catch (RuntimeException e) {
+            log.error("❌ Error al recalcular estadísticas del dashboard: {}", e.getMessage());
+            resultado.completeExceptionally(e);
+        } finally {
+            enCurso.compareAndSet(resultado, null);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.domain.Denuncia;
+
+/**
+ * Evento publicado por los servicios cuando una denuncia se crea, cambia de
+ * estado o se elimina. Los listeners lo reciben después del commit, por lo que
+ * solo lleva datos simples (no la entidad). estadoAnterior solo viene en los
+ * cambios de estado (en los demás es null).
+ */
+public record DenunciaCambiadaEvent(Long denunciaId, TipoCambio tipo, String estado, String estadoAnterior,
+                                    String comuna, String geohash) {
+
+    public enum TipoCambio {
+        CREADA,
+        ACTUALIZADA,
+        ELIMINADA
+    }
+
+    public static DenunciaCambiadaEvent de(Denuncia denuncia, TipoCambio tipo) {
+        return de(denuncia, tipo, null);
+    }
+
+    public static DenunciaCambiadaEvent de(Denuncia denuncia, TipoCambio tipo, Denuncia.EstadoDenuncia estadoAnterior) {
+        return new DenunciaCambiadaEvent(denuncia.getId(), tipo, denuncia.getEstado().name(),
+                estadoAnterior != null ? estadoAnterior.name() : null, denuncia.getComuna(), denuncia.getGeohash());
+    }
+}
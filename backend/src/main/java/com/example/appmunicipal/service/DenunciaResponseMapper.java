@@ -0,0 +1,66 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.DTO.DenunciaResponse;
+import com.example.appmunicipal.domain.Denuncia;
+import com.example.appmunicipal.repository.EvidenciaRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Convierte Denuncia a DenunciaResponse sin consultas N+1.
+ * El usuario debe venir cargado por el @EntityGraph del repositorio, la categoría
+ * sale del CategoriaRegistry y los nombres de archivo de evidencias se obtienen
+ * con una única consulta IN.
+ */
+@Component
+@RequiredArgsConstructor
+public class DenunciaResponseMapper {
+
+    // Límite de parámetros por cláusula IN
+    private static final int TAMANO_LOTE = 500;
+
+    private final EvidenciaRepository evidenciaRepository;
+    private final CategoriaRegistry categoriaRegistry;
+
+    /**
+     * Una sola denuncia (recién creada o modificada): las evidencias salen de la colección
+     */
+    public DenunciaResponse mapear(Denuncia denuncia) {
+        List<String> nombresArchivos = denuncia.getEvidencias() != null
+                ? denuncia.getEvidencias().stream()
+                        .map(evidencia -> evidencia.getNombreArchivo())
+                        .collect(Collectors.toList())
+                : List.of();
+        return new DenunciaResponse(denuncia, nombresArchivos, categoriaRegistry.dto(denuncia.getCategoria().getId()));
+    }
+
+    public List<DenunciaResponse> mapearListado(List<Denuncia> denuncias) {
+        if (denuncias.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> ids = denuncias.stream()
+                .map(Denuncia::getId)
+                .collect(Collectors.toList());
+
+        Map<Long, List<String>> archivosPorDenuncia = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += TAMANO_LOTE) {
+            List<Long> lote = ids.subList(i, Math.min(i + TAMANO_LOTE, ids.size()));
+            for (Object[] row : evidenciaRepository.findNombresArchivoByDenunciaIds(lote)) {
+                archivosPorDenuncia.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((String) row[1]);
+            }
+        }
+
+        return denuncias.stream()
+                .map(denuncia -> new DenunciaResponse(denuncia,
+                        archivosPorDenuncia.getOrDefault(denuncia.getId(), List.of()),
+                        categoriaRegistry.dto(denuncia.getCategoria().getId())))
+                .collect(Collectors.toList());
+    }
+}
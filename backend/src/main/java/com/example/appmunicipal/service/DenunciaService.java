@@ -1,27 +1,32 @@
 package com.example.appmunicipal.service;
 
-import com.example.appmunicipal.domain.Categoria;
+import com.example.appmunicipal.service.CategoriaRegistry.CategoriaRegistrada;
 import com.example.appmunicipal.domain.Denuncia;
-import com.example.appmunicipal.domain.Usuario;
+import com.example.appmunicipal.service.UsuarioSnapshotCache.UsuarioSnapshot;
 import com.example.appmunicipal.domain.Evidencia;
+import com.example.appmunicipal.DTO.BusquedaDenunciaRequest;
 import com.example.appmunicipal.DTO.DenunciaRequest;
 import com.example.appmunicipal.DTO.DenunciaResponse;
 import com.example.appmunicipal.DTO.EvidenciaResponse;
 import com.example.appmunicipal.repository.CategoriaRepository;
 import com.example.appmunicipal.repository.DenunciaRepository;
+import com.example.appmunicipal.repository.DenunciaSpecifications;
 import com.example.appmunicipal.repository.UsuarioRepository;
 import com.example.appmunicipal.repository.EvidenciaRepository;
+import com.example.appmunicipal.util.CursorUtil;
+import com.example.appmunicipal.util.GeoUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.stream.Collectors;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ClassPathResource;
 import java.io.IOException;
 import com.example.appmunicipal.DTO.DashboardStatsResponse;
 import java.util.Map;
@@ -39,9 +44,22 @@ public class DenunciaService {
 
     private final DenunciaRepository denunciaRepository;
     private final UsuarioRepository usuarioRepository;
+    private final UsuarioSnapshotCache usuarioSnapshotCache;
     private final CategoriaRepository categoriaRepository;
+    private final CategoriaRegistry categoriaRegistry;
     private final EvidenciaRepository evidenciaRepository;
     private final com.example.appmunicipal.repository.NotificacionRepository notificacionRepository;
+    private final CursorUtil cursorUtil;
+    private final GeoUtil geoUtil;
+    private final AlmacenEvidenciaService almacenEvidenciaService;
+    private final CargaEvidenciaService cargaEvidenciaService;
+    private final MiniaturaService miniaturaService;
+    private final DenunciaResponseMapper denunciaResponseMapper;
+    private final ResumenEstadisticasCache resumenEstadisticasCache;
+    private final EstadisticaDenunciaService estadisticaDenunciaService;
+    private final EstadisticasAvanzadasService estadisticasAvanzadasService;
+    private final DashboardStatsCache dashboardStatsCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Crear una nueva denuncia
@@ -62,15 +80,15 @@ public class DenunciaService {
             throw new RuntimeException("El email del usuario es obligatorio");
         }
 
-        Usuario usuario = usuarioRepository.findByEmail(request.getEmail())
+        UsuarioSnapshot usuario = usuarioSnapshotCache.obtener(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("No existe un usuario con el email: " + request.getEmail()));
 
-        if (!usuario.getActivo()) {
+        if (!usuario.activo()) {
             throw new RuntimeException("Tu cuenta está inactiva. Contacta al administrador");
         }
 
         log.info("👤 Denuncia creada por: {} (ID: {}, Email: {})",
-                usuario.getUsername(), usuario.getId(), usuario.getEmail());
+                usuario.username(), usuario.id(), usuario.email());
 
         // ========================================
         // VALIDAR CAMPOS OBLIGATORIOS
@@ -105,26 +123,27 @@ public class DenunciaService {
         // VALIDAR Y OBTENER CATEGORÍA
         // ========================================
 
-        Categoria categoria = categoriaRepository.findById(request.getCategoriaId())
+        CategoriaRegistrada categoria = categoriaRegistry.obtener(request.getCategoriaId())
                 .orElseThrow(() -> new RuntimeException("Categoría no encontrada con ID: " + request.getCategoriaId()));
 
-        if (!categoria.getActiva()) {
+        if (!categoria.activa()) {
             throw new RuntimeException("La categoría seleccionada no está disponible");
         }
 
-        log.info("📂 Categoría: {} ({})", categoria.getNombre(), categoria.getCodigo());
+        log.info("📂 Categoría: {} ({})", categoria.nombre(), categoria.codigo());
 
         // ========================================
         // CREAR DENUNCIA
         // ========================================
 
         Denuncia denuncia = new Denuncia();
-        denuncia.setUsuario(usuario);
-        denuncia.setCategoria(categoria);
+        denuncia.setUsuario(usuarioRepository.getReferenceById(usuario.id()));
+        denuncia.setCategoria(categoriaRepository.getReferenceById(categoria.id()));
         denuncia.setDescripcion(request.getDescripcion().trim());
         denuncia.setPatente(request.getPatente() != null ? request.getPatente().trim().toUpperCase() : null);
         denuncia.setLatitud(request.getLatitud());
         denuncia.setLongitud(request.getLongitud());
+        denuncia.setGeohash(geoUtil.geohash(request.getLatitud(), request.getLongitud()));
         denuncia.setDireccion(request.getDireccion());
         denuncia.setSector(request.getSector());
         denuncia.setComuna(request.getComuna() != null ? request.getComuna() : "Temuco"); // Por defecto Temuco
@@ -135,15 +154,18 @@ public class DenunciaService {
         // ========================================
 
         Denuncia denunciaGuardada = denunciaRepository.save(denuncia);
+        estadisticaDenunciaService.registrarAlta(denunciaGuardada);
+        eventPublisher.publishEvent(DenunciaCambiadaEvent.de(denunciaGuardada,
+                DenunciaCambiadaEvent.TipoCambio.CREADA));
 
         log.info("✅ Denuncia creada exitosamente:");
         log.info("   - ID: {}", denunciaGuardada.getId());
-        log.info("   - Usuario: {} ({})", usuario.getUsername(), usuario.getEmail());
-        log.info("   - Categoría: {}", categoria.getNombre());
+        log.info("   - Usuario: {} ({})", usuario.username(), usuario.email());
+        log.info("   - Categoría: {}", categoria.nombre());
         log.info("   - Estado: {}", denunciaGuardada.getEstado());
         log.info("   - Ubicación: {}, {}", denunciaGuardada.getLatitud(), denunciaGuardada.getLongitud());
 
-        return new DenunciaResponse(denunciaGuardada);
+        return denunciaResponseMapper.mapear(denunciaGuardada);
     }
 
     /**
@@ -159,9 +181,10 @@ public class DenunciaService {
         Denuncia denuncia = denunciaRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Denuncia no encontrada con ID: " + id));
 
-        log.info("✅ Denuncia encontrada: {} - {}", denuncia.getId(), denuncia.getCategoria().getNombre());
+        DenunciaResponse response = denunciaResponseMapper.mapear(denuncia);
+        log.info("✅ Denuncia encontrada: {} - {}", denuncia.getId(), response.getCategoria().getNombre());
 
-        return new DenunciaResponse(denuncia);
+        return response;
     }
 
     /**
@@ -177,9 +200,7 @@ public class DenunciaService {
 
         log.info("✅ {} denuncias encontradas", denuncias.size());
 
-        return denuncias.stream()
-                .map(DenunciaResponse::new)
-                .collect(Collectors.toList());
+        return denunciaResponseMapper.mapearListado(denuncias);
     }
 
     /**
@@ -196,9 +217,7 @@ public class DenunciaService {
         Pageable pageable = PageRequest.of(page, size);
         Page<Denuncia> denunciasPage = denunciaRepository.findAllByOrderByFechaDenunciaDesc(pageable);
 
-        List<DenunciaResponse> denuncias = denunciasPage.getContent().stream()
-                .map(DenunciaResponse::new)
-                .collect(Collectors.toList());
+        List<DenunciaResponse> denuncias = denunciaResponseMapper.mapearListado(denunciasPage.getContent());
 
         Map<String, Object> response = new HashMap<>();
         response.put("denuncias", denuncias);
@@ -218,6 +237,137 @@ public class DenunciaService {
         return response;
     }
 
+    /**
+     * Listar denuncias paginadas por cursor (keyset), ordenadas por fecha y ID descendente
+     * A diferencia de OFFSET, el costo de cada página es constante y las inserciones
+     * concurrentes no desplazan filas entre páginas (no hay duplicados ni saltos)
+     *
+     * @param cursor       Cursor opaco de la página anterior (null o vacío = primera página)
+     * @param size         Tamaño de página
+     * @param incluirTotal Si es true ejecuta además un COUNT(*) para informar el total
+     * @return Map con denuncias, siguiente cursor y metadata
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> listarDenunciasPorCursor(String cursor, int size, boolean incluirTotal) {
+        log.info("📋 Listando denuncias por cursor - Tamaño: {}, Primera página: {}",
+                size, cursor == null || cursor.isBlank());
+
+        // Se pide una fila extra para saber si existe una página siguiente sin contar
+        Pageable limite = PageRequest.of(0, size + 1);
+
+        List<Denuncia> filas;
+        if (cursor == null || cursor.isBlank()) {
+            filas = denunciaRepository.findPrimeraPaginaKeyset(limite);
+        } else {
+            CursorUtil.Posicion posicion = cursorUtil.decodificar(cursor);
+            filas = denunciaRepository.findPaginaKeysetDespuesDe(posicion.fechaDenuncia(), posicion.id(), limite);
+        }
+
+        boolean hasNext = filas.size() > size;
+        if (hasNext) {
+            filas = filas.subList(0, size);
+        }
+
+        List<DenunciaResponse> denuncias = denunciaResponseMapper.mapearListado(filas);
+
+        String nextCursor = null;
+        if (hasNext) {
+            Denuncia ultima = filas.get(filas.size() - 1);
+            nextCursor = cursorUtil.codificar(ultima.getFechaDenuncia(), ultima.getId());
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("denuncias", denuncias);
+        response.put("pageSize", size);
+        response.put("hasNext", hasNext);
+        response.put("nextCursor", nextCursor);
+        if (incluirTotal) {
+            response.put("totalElements", denunciaRepository.count());
+        }
+
+        log.info("✅ {} denuncias en esta página, hay siguiente: {}", denuncias.size(), hasNext);
+
+        return response;
+    }
+
+    /**
+     * Buscar denuncias combinando cualquier filtro (estado, categoría, comuna, sector,
+     * patente, revisor y rango de fechas), paginado y ordenado por fecha descendente.
+     * Cada filtro ausente se omite del WHERE; los índices compuestos de Denuncia
+     * cubren el filtro de igualdad más el orden por fecha_denuncia.
+     *
+     * @param filtros Filtros y paginación
+     * @return Map con denuncias, filtros aplicados y metadata de paginación
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> buscarDenuncias(BusquedaDenunciaRequest filtros) {
+        log.info("🔎 Buscando denuncias con filtros: {}", filtros);
+
+        Specification<Denuncia> filtro = construirFiltro(filtros);
+
+        int page = Math.max(filtros.getPage(), 0);
+        int size = Math.max(1, Math.min(filtros.getSize(), 100));
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "fechaDenuncia", "id"));
+
+        Page<Denuncia> denunciasPage = denunciaRepository.findAll(filtro, pageable);
+
+        List<DenunciaResponse> denuncias = denunciaResponseMapper.mapearListado(denunciasPage.getContent());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("denuncias", denuncias);
+        response.put("currentPage", denunciasPage.getNumber());
+        response.put("totalPages", denunciasPage.getTotalPages());
+        response.put("totalElements", denunciasPage.getTotalElements());
+        response.put("pageSize", denunciasPage.getSize());
+        response.put("hasNext", denunciasPage.hasNext());
+        response.put("hasPrevious", denunciasPage.hasPrevious());
+
+        log.info("✅ {} denuncias en esta página, {} total", denuncias.size(), denunciasPage.getTotalElements());
+
+        return response;
+    }
+
+    /**
+     * Construir el filtro de búsqueda validando estado y rango de fechas.
+     * Compartido por /buscar y /export para que ambos acepten los mismos filtros.
+     *
+     * @param filtros Filtros recibidos (page y size se ignoran)
+     * @return Specification con usuario y categoría cargados en el mismo SELECT
+     */
+    public Specification<Denuncia> construirFiltro(BusquedaDenunciaRequest filtros) {
+        Denuncia.EstadoDenuncia estado = null;
+        if (filtros.getEstado() != null && !filtros.getEstado().isBlank()) {
+            try {
+                estado = Denuncia.EstadoDenuncia.valueOf(filtros.getEstado().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Estado inválido: " + filtros.getEstado()
+                        + ". Estados válidos: PENDIENTE, EN_REVISION, VALIDADA, RECHAZADA, CERRADA");
+            }
+        }
+
+        if (filtros.getDesde() != null && filtros.getHasta() != null
+                && filtros.getDesde().isAfter(filtros.getHasta())) {
+            throw new RuntimeException("La fecha 'desde' debe ser anterior a 'hasta'");
+        }
+
+        return Specification.allOf(
+                DenunciaSpecifications.conUsuario(),
+                DenunciaSpecifications.conEstado(estado),
+                DenunciaSpecifications.conCategoria(filtros.getCategoriaId()),
+                DenunciaSpecifications.conComuna(textoONull(filtros.getComuna())),
+                DenunciaSpecifications.conSector(textoONull(filtros.getSector())),
+                DenunciaSpecifications.conPatente(filtros.getPatente() != null && !filtros.getPatente().isBlank()
+                        ? filtros.getPatente().trim().toUpperCase() : null),
+                DenunciaSpecifications.conRevisor(filtros.getRevisorId()),
+                DenunciaSpecifications.fechaEntre(
+                        filtros.getDesde() != null ? filtros.getDesde().atStartOfDay() : null,
+                        filtros.getHasta() != null ? filtros.getHasta().plusDays(1).atStartOfDay() : null));
+    }
+
+    private String textoONull(String valor) {
+        return valor != null && !valor.isBlank() ? valor.trim() : null;
+    }
+
     /**
      * Listar denuncias de un usuario específico por email
      *
@@ -228,16 +378,14 @@ public class DenunciaService {
     public List<DenunciaResponse> listarDenunciasPorEmail(String email) {
         log.info("📋 Listando denuncias del usuario con email: {}", email);
 
-        Usuario usuario = usuarioRepository.findByEmail(email)
+        UsuarioSnapshot usuario = usuarioSnapshotCache.obtener(email)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
 
-        List<Denuncia> denuncias = denunciaRepository.findByUsuarioIdOrderByFechaDenunciaDesc(usuario.getId());
+        List<Denuncia> denuncias = denunciaRepository.findByUsuarioIdOrderByFechaDenunciaDesc(usuario.id());
 
         log.info("✅ {} denuncias encontradas para el usuario", denuncias.size());
 
-        return denuncias.stream()
-                .map(DenunciaResponse::new)
-                .collect(Collectors.toList());
+        return denunciaResponseMapper.mapearListado(denuncias);
     }
 
     /**
@@ -258,9 +406,7 @@ public class DenunciaService {
 
         log.info("✅ {} denuncias encontradas para el usuario", denuncias.size());
 
-        return denuncias.stream()
-                .map(DenunciaResponse::new)
-                .collect(Collectors.toList());
+        return denunciaResponseMapper.mapearListado(denuncias);
     }
 
     /**
@@ -280,9 +426,7 @@ public class DenunciaService {
 
             log.info("✅ {} denuncias encontradas con estado {}", denuncias.size(), estado);
 
-            return denuncias.stream()
-                    .map(DenunciaResponse::new)
-                    .collect(Collectors.toList());
+            return denunciaResponseMapper.mapearListado(denuncias);
 
         } catch (IllegalArgumentException e) {
             throw new RuntimeException("Estado inválido: " + estado
@@ -300,7 +444,7 @@ public class DenunciaService {
     public List<DenunciaResponse> listarDenunciasPorCategoria(Long categoriaId) {
         log.info("📋 Listando denuncias de la categoría ID: {}", categoriaId);
 
-        if (!categoriaRepository.existsById(categoriaId)) {
+        if (!categoriaRegistry.existe(categoriaId)) {
             throw new RuntimeException("Categoría no encontrada con ID: " + categoriaId);
         }
 
@@ -308,9 +452,7 @@ public class DenunciaService {
 
         log.info("✅ {} denuncias encontradas para la categoría", denuncias.size());
 
-        return denuncias.stream()
-                .map(DenunciaResponse::new)
-                .collect(Collectors.toList());
+        return denunciaResponseMapper.mapearListado(denuncias);
     }
 
     /**
@@ -327,9 +469,7 @@ public class DenunciaService {
 
         log.info("✅ {} denuncias encontradas en el sector", denuncias.size());
 
-        return denuncias.stream()
-                .map(DenunciaResponse::new)
-                .collect(Collectors.toList());
+        return denunciaResponseMapper.mapearListado(denuncias);
     }
 
     /**
@@ -348,6 +488,35 @@ public class DenunciaService {
         }
     }
 
+    /**
+     * Resumen de denuncias por estado para /api/denuncias/estadisticas
+     * Una sola consulta agrupada; el total es la suma de los grupos
+     *
+     * @return Map con total, pendientes, validadas, rechazadas y en_revision
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> obtenerResumenEstadisticas() {
+        return resumenEstadisticasCache.obtener(this::calcularResumenEstadisticas);
+    }
+
+    private Map<String, Long> calcularResumenEstadisticas() {
+        Map<String, Long> porEstado = new HashMap<>();
+        long total = 0;
+        for (Object[] row : denunciaRepository.countDenunciasByEstadoGrouped()) {
+            Long cantidad = (Long) row[1];
+            porEstado.put(row[0].toString(), cantidad);
+            total += cantidad;
+        }
+
+        Map<String, Long> resumen = new HashMap<>();
+        resumen.put("total", total);
+        resumen.put("pendientes", porEstado.getOrDefault("PENDIENTE", 0L));
+        resumen.put("validadas", porEstado.getOrDefault("VALIDADA", 0L));
+        resumen.put("rechazadas", porEstado.getOrDefault("RECHAZADA", 0L));
+        resumen.put("en_revision", porEstado.getOrDefault("EN_REVISION", 0L));
+        return resumen;
+    }
+
     /**
      * Contar denuncias de un usuario
      *
@@ -367,9 +536,9 @@ public class DenunciaService {
      */
     @Transactional(readOnly = true)
     public Long contarDenunciasPorEmail(String email) {
-        Usuario usuario = usuarioRepository.findByEmail(email)
+        UsuarioSnapshot usuario = usuarioSnapshotCache.obtener(email)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado con email: " + email));
-        return denunciaRepository.countByUsuarioId(usuario.getId());
+        return denunciaRepository.countByUsuarioId(usuario.id());
     }
 
     /**
@@ -396,41 +565,6 @@ public class DenunciaService {
                 .collect(Collectors.toList());
     }
 
-    /**
-     * Obtener recurso de evidencia (imagen)
-     *
-     * @param filename Nombre del archivo
-     * @return Resource del archivo
-     */
-    public Resource obtenerEvidencia(String filename) {
-        try {
-            // Determinar la ruta correcta del archivo
-            // En desarrollo: backend/src/main/resources/static/uploads
-            // En producción (Docker): /app/uploads
-            String uploadPath = System.getenv("UPLOAD_PATH") != null
-                    ? System.getenv("UPLOAD_PATH")
-                    : "backend/src/main/resources/static/uploads";
-
-            java.nio.file.Path filePath = java.nio.file.Paths.get(uploadPath).resolve(filename);
-            Resource resource = new org.springframework.core.io.FileSystemResource(filePath);
-
-            if (resource.exists() && resource.isReadable()) {
-                return resource;
-            } else {
-                // Fallback: intentar classpath por si acaso (para archivos antiguos/legacy)
-                Resource classpathResource = new ClassPathResource("static/uploads/" + filename);
-                if (classpathResource.exists() && classpathResource.isReadable()) {
-                    return classpathResource;
-                }
-
-                throw new RuntimeException("No se pudo leer el archivo: " + filename);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Error al cargar evidencia: " + filename, e);
-        }
-
-    }
-
     /**
      * Subir evidencia para una denuncia
      *
@@ -451,46 +585,29 @@ public class DenunciaService {
                 throw new RuntimeException("El archivo está vacío");
             }
 
-            // 2. Generar nombre único
-            String extension = obtenerExtension(archivo.getOriginalFilename());
-            String nombreArchivo = "evidencia-" + System.currentTimeMillis() + extension;
-
-            // 3. Guardar archivo en disco
-            // En desarrollo: backend/src/main/resources/static/uploads
-            // En producción (Docker): /app/uploads (volumen compartido)
-            String uploadPath = System.getenv("UPLOAD_PATH") != null
-                    ? System.getenv("UPLOAD_PATH")
-                    : "backend/src/main/resources/static/uploads";
-
-            java.nio.file.Path uploadDir = java.nio.file.Paths.get(uploadPath);
-            if (!java.nio.file.Files.exists(uploadDir)) {
-                java.nio.file.Files.createDirectories(uploadDir);
-            }
-
-            java.nio.file.Path filePath = uploadDir.resolve(nombreArchivo);
-            java.nio.file.Files.copy(archivo.getInputStream(), filePath,
-                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            // 2. Guardar por contenido: clave ab/cd/<sha256> del EvidenceStore, sin escribir si ya existe
+            AlmacenEvidenciaService.BlobGuardado blob = almacenEvidenciaService.guardar(archivo,
+                    archivo.getOriginalFilename(), archivo.getContentType());
 
-            // 4. Crear entidad Evidencia
+            // 3. Crear entidad Evidencia
             Evidencia evidencia = new Evidencia();
             evidencia.setDenuncia(denuncia);
-            evidencia.setNombreArchivo(nombreArchivo);
-            evidencia.setRutaArchivo("/uploads/" + nombreArchivo); // Ruta relativa para acceso web
+            evidencia.setNombreArchivo(blob.nombreArchivo());
+            evidencia.setRutaArchivo(blob.rutaArchivo()); // Ruta relativa dentro de uploads
             evidencia.setMimeType(archivo.getContentType());
-            evidencia.setTamanoBytes(archivo.getSize());
+            evidencia.setTamanoBytes(blob.tamanoBytes());
+            evidencia.setHashContenido(blob.hash());
 
             // Determinar tipo
-            String mimeType = archivo.getContentType();
-            if (mimeType != null && mimeType.startsWith("video")) {
-                evidencia.setTipo(Evidencia.TipoEvidencia.VIDEO);
-            } else {
-                evidencia.setTipo(Evidencia.TipoEvidencia.FOTO);
-            }
+            evidencia.setTipo(Evidencia.TipoEvidencia.desdeMimeType(archivo.getContentType()));
 
-            // 5. Guardar en BD
+            // 4. Guardar en BD
             Evidencia evidenciaGuardada = evidenciaRepository.save(evidencia);
 
-            log.info("✅ Evidencia guardada: {}", nombreArchivo);
+            // 5. Miniaturas en segundo plano (se despachan tras el commit)
+            miniaturaService.encolar(blob.hash(), archivo.getContentType());
+
+            log.info("✅ Evidencia guardada: {}", blob.nombreArchivo());
 
             return new EvidenciaResponse(evidenciaGuardada);
 
@@ -499,13 +616,6 @@ public class DenunciaService {
         }
     }
 
-    private String obtenerExtension(String filename) {
-        if (filename == null || !filename.contains(".")) {
-            return ".jpg"; // Default
-        }
-        return filename.substring(filename.lastIndexOf("."));
-    }
-
     /**
      * Eliminar una denuncia y sus evidencias asociadas
      *
@@ -518,23 +628,11 @@ public class DenunciaService {
         Denuncia denuncia = denunciaRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Denuncia no encontrada con ID: " + id));
 
-        // 1. Eliminar archivos de evidencia del disco
+        // 1. Liberar archivos de evidencia: se borran tras el commit (outbox) y el blob
+        // solo si nadie más lo usa
         List<Evidencia> evidencias = evidenciaRepository.findByDenunciaId(id);
-        String uploadPath = System.getenv("UPLOAD_PATH") != null
-                ? System.getenv("UPLOAD_PATH")
-                : "backend/src/main/resources/static/uploads";
-
-        for (Evidencia evidencia : evidencias) {
-            try {
-                java.nio.file.Path filePath = java.nio.file.Paths.get(uploadPath, evidencia.getNombreArchivo());
-                if (java.nio.file.Files.exists(filePath)) {
-                    java.nio.file.Files.delete(filePath);
-                    log.info("📁 Archivo eliminado: {}", evidencia.getNombreArchivo());
-                }
-            } catch (IOException e) {
-                log.warn("⚠️ No se pudo eliminar el archivo: {} - {}", evidencia.getNombreArchivo(), e.getMessage());
-            }
-        }
+        evidencias.forEach(almacenEvidenciaService::liberar);
+        cargaEvidenciaService.descartarCargas(id);
 
         // 2. Eliminar notificaciones asociadas
         List<com.example.appmunicipal.domain.Notificacion> notificaciones = notificacionRepository.findByDenunciaId(id);
@@ -545,135 +643,21 @@ public class DenunciaService {
 
         // 3. Eliminar denuncia (cascade eliminará evidencias, comentarios e historial
         // de BD)
+        estadisticaDenunciaService.registrarBaja(denuncia);
         denunciaRepository.delete(denuncia);
+        eventPublisher.publishEvent(DenunciaCambiadaEvent.de(denuncia, DenunciaCambiadaEvent.TipoCambio.ELIMINADA));
 
         log.info("✅ Denuncia {} eliminada correctamente", id);
     }
 
     /**
      * Genera estadísticas avanzadas para el dashboard
-     * OPTIMIZADO: Usa consultas JPQL directas a base de datos
+     * OPTIMIZADO: Los conteos por mes, estado, horario, categoría, comuna y sector
+     * se leen del rollup estadisticas_denuncias; las consultas se ejecutan en
+     * paralelo (ver EstadisticasAvanzadasService) y el resultado se comparte entre
+     * peticiones mediante DashboardStatsCache
      */
-    @Transactional(readOnly = true)
     public DashboardStatsResponse obtenerEstadisticasAvanzadas() {
-        log.info("📊 Calculando estadísticas avanzadas (OPTIMIZADO)...");
-        long inicio = System.currentTimeMillis();
-
-        DashboardStatsResponse stats = new DashboardStatsResponse();
-        LocalDateTime unAnioAtras = LocalDateTime.now().minusMonths(12);
-
-        // 1. Total de denuncias (COUNT directo)
-        long totalDenuncias = denunciaRepository.count();
-        stats.setTotalDenuncias(totalDenuncias);
-
-        // 2. Denuncias por mes (últimos 12 meses, aproximado por query)
-        List<Object[]> denunciasPorMesDB = denunciaRepository.countDenunciasByMes(unAnioAtras);
-        Map<String, Long> denunciasPorMes = new HashMap<>();
-
-        // Inicializar mapa con nombres de meses (opcional, simplificado aquí)
-        for (Object[] row : denunciasPorMesDB) {
-            Integer mes = (Integer) row[0];
-            Long cantidad = (Long) row[1];
-            // Convertir número de mes a nombre (simplificado)
-            String nombreMes = java.time.Month.of(mes).getDisplayName(java.time.format.TextStyle.FULL,
-                    new java.util.Locale("es", "ES"));
-            denunciasPorMes.put(nombreMes, cantidad);
-        }
-        stats.setDenunciasPorMes(denunciasPorMes);
-
-        // 3. Distribución por Estado
-        List<Object[]> denunciasPorEstadoDB = denunciaRepository.countDenunciasByEstadoGrouped();
-        Map<String, Long> denunciasPorEstado = new HashMap<>();
-        for (Object[] row : denunciasPorEstadoDB) {
-            denunciasPorEstado.put(row[0].toString(), (Long) row[1]);
-        }
-        stats.setDenunciasPorEstado(denunciasPorEstado);
-
-        // 4. Tasa de validación y rechazo (calculado desde denunciasPorEstado)
-        long validadas = denunciasPorEstado.getOrDefault("VALIDADA", 0L);
-        long rechazadas = denunciasPorEstado.getOrDefault("RECHAZADA", 0L);
-        long totalCerradas = validadas + rechazadas;
-
-        if (totalCerradas > 0) {
-            stats.setTasaValidacion((double) validadas / totalCerradas * 100);
-            stats.setTasaRechazo((double) rechazadas / totalCerradas * 100);
-        } else {
-            stats.setTasaValidacion(0.0);
-            stats.setTasaRechazo(0.0);
-        }
-
-        // 5. Tiempo promedio de validación (en horas)
-        // Obtenemos las fechas y calculamos en Java para evitar funciones SQL complejas
-        List<Object[]> fechasValidacion = denunciaRepository.findFechasParaPromedioValidacion();
-
-        if (!fechasValidacion.isEmpty()) {
-            long totalHoras = 0;
-            for (Object[] fechas : fechasValidacion) {
-                LocalDateTime fechaDenuncia = (LocalDateTime) fechas[0];
-                LocalDateTime fechaValidacion = (LocalDateTime) fechas[1];
-                long horas = java.time.temporal.ChronoUnit.HOURS.between(fechaDenuncia, fechaValidacion);
-                totalHoras += horas;
-            }
-            double promedioHoras = (double) totalHoras / fechasValidacion.size();
-            stats.setTiempoPromedioValidacion(promedioHoras);
-        } else {
-            stats.setTiempoPromedioValidacion(0.0);
-        }
-
-        // 6. Tendencias por horario
-        List<Object[]> denunciasPorHorarioDB = denunciaRepository.countDenunciasByHora();
-        Map<Integer, Long> denunciasPorHorario = new HashMap<>();
-        for (Object[] row : denunciasPorHorarioDB) {
-            denunciasPorHorario.put((Integer) row[0], (Long) row[1]);
-        }
-        stats.setDenunciasPorHorario(denunciasPorHorario);
-
-        // 7. Denuncias por Categoría
-        List<Object[]> denunciasPorCategoriaDB = denunciaRepository.countDenunciasByCategoria();
-        Map<String, Long> denunciasPorCategoria = new HashMap<>();
-        for (Object[] row : denunciasPorCategoriaDB) {
-            denunciasPorCategoria.put((String) row[0], (Long) row[1]);
-        }
-        stats.setDenunciasPorCategoria(denunciasPorCategoria);
-
-        // 8. Denuncias por Comuna
-        List<Object[]> denunciasPorComunaDB = denunciaRepository.countDenunciasByComuna();
-        Map<String, Long> denunciasPorComuna = new HashMap<>();
-        for (Object[] row : denunciasPorComunaDB) {
-            denunciasPorComuna.put((String) row[0], (Long) row[1]);
-        }
-        stats.setDenunciasPorComuna(denunciasPorComuna);
-
-        // 9. Denuncias por Sector (Temuco)
-        List<Object[]> denunciasPorSectorDB = denunciaRepository.countDenunciasBySectorTemuco();
-        Map<String, Long> denunciasPorSector = new HashMap<>();
-        for (Object[] row : denunciasPorSectorDB) {
-            denunciasPorSector.put((String) row[0], (Long) row[1]);
-        }
-        stats.setDenunciasPorSector(denunciasPorSector);
-
-        // 10. Top Usuarios
-        // Limitamos a top 10 en la query
-        List<Object[]> topUsuariosDB = denunciaRepository
-                .countDenunciasByUsuarioTop10(org.springframework.data.domain.PageRequest.of(0, 10));
-        Map<String, Long> topUsuarios = new java.util.LinkedHashMap<>();
-        for (Object[] row : topUsuariosDB) {
-            topUsuarios.put((String) row[0], (Long) row[1]);
-        }
-        stats.setTopUsuarios(topUsuarios);
-
-        // 11. Reincidencia por Patente (Top 20 patentes con más de 1 denuncia)
-        List<Object[]> reincidenciaPatentesDB = denunciaRepository
-                .countReincidenciaByPatente(org.springframework.data.domain.PageRequest.of(0, 20));
-        Map<String, Long> reincidenciaPatentes = new java.util.LinkedHashMap<>();
-        for (Object[] row : reincidenciaPatentesDB) {
-            reincidenciaPatentes.put((String) row[0], (Long) row[1]);
-        }
-        stats.setReincidenciaPatentes(reincidenciaPatentes);
-
-        long fin = System.currentTimeMillis();
-        log.info("✅ Estadísticas calculadas en {} ms", (fin - inicio));
-
-        return stats;
+        return dashboardStatsCache.obtener(estadisticasAvanzadasService::calcular);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,409 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.domain.Evidencia;
+import com.example.appmunicipal.repository.EvidenciaRepository;
+import com.example.appmunicipal.storage.EvidenceStore;
+import com.example.appmunicipal.util.HashUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Descarga de evidencias con soporte HTTP completo para video:
+ * - Range de un solo tramo (206 / 416) e If-Range
+ * - ETag fuerte a partir del SHA-256 guardado (304 con If-None-Match)
+ * - Last-Modified / If-Modified-Since
+ * - Envío sin copia: sendfile de Tomcat cuando está disponible y, si no,
+ *   FileChannel.transferTo hacia la respuesta
+ * - Con un almacén remoto (S3) los archivos grandes se redirigen (302) a una URL
+ *   prefirmada: el video se descarga directo del bucket, sin pasar por la JVM
+ */
+@Service
+@Slf4j
+public class DescargaEvidenciaService {
+
+    // Atributos de request que Tomcat (conector NIO) usa para enviar el archivo con sendfile
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Archivo resuelto: objeto del almacén (con su ruta en disco si es local) o
+     * recurso del classpath (evidencias de ejemplo). El ETag de un original se
+     * calcula recién al servirlo (etag null): con la redirección no hace falta.
+     */
+    private record Archivo(String nombre, String clave, Path ruta, Resource recurso, long tamano,
+                           long ultimaModificacion, String etag, String mimeType, Evidencia evidencia) {
+
+        Archivo conEtag(String etag) {
+            return new Archivo(nombre, clave, ruta, recurso, tamano, ultimaModificacion, etag, mimeType, evidencia);
+        }
+    }
+
+    /**
+     * Tramo [inicio, fin] inclusive
+     */
+    private record Tramo(long inicio, long fin) {
+
+        long largo() {
+            return fin - inicio + 1;
+        }
+    }
+
+    /**
+     * El tramo pedido queda fuera del archivo (se responde 416)
+     */
+    private static class RangoNoSatisfacibleException extends RuntimeException {
+
+        RangoNoSatisfacibleException(String message) {
+            super(message);
+        }
+    }
+
+    private final EvidenciaRepository evidenciaRepository;
+    private final AlmacenEvidenciaService almacenEvidenciaService;
+    private final MiniaturaService miniaturaService;
+    private final EvidenceStore evidenceStore;
+    private final HashUtil hashUtil;
+    private final long minBytesRedireccion;
+    private final Duration vigenciaUrlFirmada;
+
+    public DescargaEvidenciaService(EvidenciaRepository evidenciaRepository,
+                                    AlmacenEvidenciaService almacenEvidenciaService,
+                                    MiniaturaService miniaturaService,
+                                    EvidenceStore evidenceStore,
+                                    HashUtil hashUtil,
+                                    @Value("${app.evidencias.almacen.url-firmada.min-bytes:1048576}") long minBytesRedireccion,
+                                    @Value("${app.evidencias.almacen.url-firmada.vigencia-segundos:900}") long vigenciaSegundos) {
+        this.evidenciaRepository = evidenciaRepository;
+        this.almacenEvidenciaService = almacenEvidenciaService;
+        this.miniaturaService = miniaturaService;
+        this.evidenceStore = evidenceStore;
+        this.hashUtil = hashUtil;
+        this.minBytesRedireccion = minBytesRedireccion;
+        this.vigenciaUrlFirmada = Duration.ofSeconds(vigenciaSegundos);
+    }
+
+    /**
+     * Escribir la evidencia en la respuesta respetando Range y las cabeceras condicionales
+     *
+     * @param filename Nombre del archivo
+     * @param size     Variante pedida (thumb, preview) o null para el original
+     * @param request  Petición (Range, If-Range, If-None-Match, If-Modified-Since)
+     * @param response Respuesta sin commitear
+     */
+    public void servir(String filename, String size, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Archivo archivo = resolverVariante(filename, size).orElse(null);
+        // Se pidió una variante y se entrega el original: no cachear bajo la URL de la miniatura
+        boolean originalEnLugarDeVariante = size != null && archivo == null;
+        if (archivo == null) {
+            archivo = resolver(filename);
+        }
+
+        Optional<URI> urlFirmada = urlFirmada(archivo);
+        if (urlFirmada.isPresent()) {
+            // El cliente sigue la redirección y pide los tramos (Range) directo al almacén
+            response.setStatus(HttpServletResponse.SC_FOUND);
+            response.setHeader(HttpHeaders.LOCATION, urlFirmada.get().toString());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            return;
+        }
+
+        if (archivo.etag() == null) {
+            archivo = archivo.conEtag(calcularEtag(archivo));
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, archivo.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, archivo.ultimaModificacion());
+        // Siempre revalidar: con el ETag la revalidación cuesta un 304 sin cuerpo
+        response.setHeader(HttpHeaders.CACHE_CONTROL, originalEnLugarDeVariante ? "no-store" : "no-cache");
+
+        if (noModificado(request, archivo)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        Tramo tramo = new Tramo(0, archivo.tamano() - 1);
+        String range = request.getHeader(HttpHeaders.RANGE);
+
+        if (range != null && archivo.tamano() > 0 && aplicaRange(request, archivo)) {
+            Optional<Tramo> pedido;
+            try {
+                pedido = parsearRange(range, archivo.tamano());
+            } catch (RangoNoSatisfacibleException e) {
+                log.debug("Range no satisfacible para {}: {}", archivo.nombre(), e.getMessage());
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + archivo.tamano());
+                return;
+            }
+            if (pedido.isPresent()) {
+                tramo = pedido.get();
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + tramo.inicio() + "-" + tramo.fin() + "/" + archivo.tamano());
+            }
+        }
+
+        response.setContentType(archivo.mimeType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + archivo.nombre() + "\"");
+        response.setContentLengthLong(Math.max(tramo.largo(), 0));
+
+        if ("HEAD".equals(request.getMethod()) || tramo.largo() <= 0) {
+            return;
+        }
+
+        escribir(archivo, tramo, request, response);
+    }
+
+    // Miniatura ya generada; si está pendiente (o no es una imagen) se entrega el original
+    private Optional<Archivo> resolverVariante(String filename, String size) throws IOException {
+        Optional<MiniaturaService.Variante> variante = MiniaturaService.Variante.desde(size);
+        Optional<String> hash = almacenEvidenciaService.hashBlob(filename);
+        if (variante.isEmpty() || hash.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<EvidenceStore.Objeto> objeto = miniaturaService.buscarVariante(hash.get(), variante.get());
+        if (objeto.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String nombre = variante.get().getNombre();
+        return Optional.of(new Archivo(hash.get() + "-" + nombre + ".jpg", objeto.get().clave(),
+                evidenceStore.rutaLocal(objeto.get().clave()).orElse(null), null,
+                objeto.get().tamano(), objeto.get().ultimaModificacion(),
+                "\"" + hash.get() + "-" + nombre + "\"", MediaType.IMAGE_JPEG_VALUE, null));
+    }
+
+    private Archivo resolver(String filename) throws IOException {
+        if (filename.contains("/") || filename.contains("\\") || filename.contains("..")) {
+            throw new RuntimeException("Nombre de archivo inválido: " + filename);
+        }
+
+        Optional<Evidencia> evidencia = evidenciaRepository.findFirstByNombreArchivo(filename);
+
+        String clave = almacenEvidenciaService.clave(filename);
+        Optional<EvidenceStore.Objeto> objeto = evidenceStore.stat(clave);
+        Path ruta = null;
+        Resource recurso = null;
+        long tamano;
+        long ultimaModificacion;
+
+        if (objeto.isPresent()) {
+            ruta = evidenceStore.rutaLocal(clave).orElse(null);
+            tamano = objeto.get().tamano();
+            ultimaModificacion = objeto.get().ultimaModificacion();
+        } else {
+            clave = null;
+            // Fallback: classpath (archivos antiguos/legacy de data.sql)
+            ClassPathResource classpath = new ClassPathResource("static/uploads/" + filename);
+            if (!classpath.exists() || !classpath.isReadable()) {
+                throw new RuntimeException("No se pudo leer el archivo: " + filename);
+            }
+            if (classpath.isFile()) {
+                ruta = classpath.getFile().toPath();
+            } else {
+                recurso = classpath;
+            }
+            tamano = classpath.contentLength();
+            ultimaModificacion = classpath.lastModified();
+        }
+
+        String mimeType = evidencia.map(Evidencia::getMimeType)
+                .orElseGet(() -> MediaTypeFactory.getMediaType(filename)
+                        .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        return new Archivo(filename, clave, ruta, recurso, tamano, ultimaModificacion, null, mimeType,
+                evidencia.orElse(null));
+    }
+
+    // Solo objetos grandes de un almacén que firma URLs (el disco local se sirve con sendfile)
+    private Optional<URI> urlFirmada(Archivo archivo) {
+        if (archivo.clave() == null || archivo.tamano() < minBytesRedireccion) {
+            return Optional.empty();
+        }
+        return evidenceStore.urlFirmada(archivo.clave(), vigenciaUrlFirmada, archivo.mimeType());
+    }
+
+    // Solo para archivos que se envían desde la JVM (nunca en la redirección a la URL firmada)
+    private String calcularEtag(Archivo archivo) throws IOException {
+        Evidencia evidencia = archivo.evidencia();
+        if (evidencia != null) {
+            String hash = evidencia.getHashContenido();
+            if (hash == null && (archivo.ruta() != null || archivo.clave() != null)) {
+                // Evidencias anteriores al hash: se calcula una vez y queda guardado
+                hash = archivo.ruta() != null ? hashUtil.sha256(archivo.ruta()) : sha256(archivo.clave());
+                evidenciaRepository.completarHash(evidencia.getId(), hash);
+                log.info("🔑 Hash calculado para evidencia {}", evidencia.getNombreArchivo());
+            }
+            if (hash != null) {
+                return "\"" + hash + "\"";
+            }
+        }
+        // Sin hash disponible: ETag débil por tamaño y fecha
+        return "W/\"" + Long.toHexString(archivo.tamano()) + "-" + Long.toHexString(archivo.ultimaModificacion()) + "\"";
+    }
+
+    private String sha256(String clave) throws IOException {
+        MessageDigest digest = hashUtil.nuevoSha256();
+        try (InputStream entrada = new DigestInputStream(evidenceStore.get(clave), digest)) {
+            entrada.transferTo(OutputStream.nullOutputStream());
+        }
+        return hashUtil.hex(digest);
+    }
+
+    private boolean noModificado(HttpServletRequest request, Archivo archivo) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // Comparación débil (RFC 9110 13.1.2)
+            String propio = sinPrefijoDebil(archivo.etag());
+            for (String etag : ifNoneMatch.split(",")) {
+                String candidato = etag.trim();
+                if (candidato.equals("*") || sinPrefijoDebil(candidato).equals(propio)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long ifModifiedSince = leerFecha(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && archivo.ultimaModificacion() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    // If-Range: el tramo solo se respeta si el archivo no cambió (ETag fuerte o fecha)
+    private boolean aplicaRange(HttpServletRequest request, Archivo archivo) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return !archivo.etag().startsWith("W/") && ifRange.equals(archivo.etag());
+        }
+        long fecha = leerFecha(request, HttpHeaders.IF_RANGE);
+        return fecha >= 0 && archivo.ultimaModificacion() / 1000 == fecha / 1000;
+    }
+
+    /**
+     * Interpretar "bytes=inicio-fin", "bytes=inicio-" o "bytes=-sufijo".
+     *
+     * @return Tramo pedido u Optional.empty() si el header se ignora (sintaxis
+     *         desconocida o inválida como fin < inicio, o varios tramos: se
+     *         responde el archivo completo, RFC 9110 §14.2)
+     * @throws RangoNoSatisfacibleException si el tramo queda fuera del archivo (416)
+     */
+    private Optional<Tramo> parsearRange(String range, long tamano) {
+        if (!range.startsWith("bytes=") || range.contains(",")) {
+            return Optional.empty();
+        }
+
+        String especificacion = range.substring("bytes=".length()).trim();
+        int guion = especificacion.indexOf('-');
+        if (guion < 0) {
+            return Optional.empty();
+        }
+
+        try {
+            String desde = especificacion.substring(0, guion).trim();
+            String hasta = especificacion.substring(guion + 1).trim();
+
+            if (desde.isEmpty()) {
+                long sufijo = Long.parseLong(hasta);
+                if (sufijo <= 0) {
+                    throw new RangoNoSatisfacibleException("sufijo vacío: " + range);
+                }
+                return Optional.of(new Tramo(Math.max(tamano - sufijo, 0), tamano - 1));
+            }
+
+            long inicio = Long.parseLong(desde);
+            long fin = hasta.isEmpty() ? Long.MAX_VALUE : Long.parseLong(hasta);
+            if (fin < inicio) {
+                // Especificación inválida (no insatisfacible): se ignora
+                return Optional.empty();
+            }
+            if (inicio >= tamano) {
+                throw new RangoNoSatisfacibleException(range + " con tamaño " + tamano);
+            }
+            return Optional.of(new Tramo(inicio, Math.min(fin, tamano - 1)));
+
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void escribir(Archivo archivo, Tramo tramo, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (archivo.ruta() != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            // Tomcat envía el archivo con sendfile al terminar la petición (fin exclusivo)
+            request.setAttribute(SENDFILE_ARCHIVO, archivo.ruta().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_INICIO, tramo.inicio());
+            request.setAttribute(SENDFILE_FIN, tramo.fin() + 1);
+            return;
+        }
+
+        if (archivo.ruta() != null) {
+            try (FileChannel canal = FileChannel.open(archivo.ruta(), StandardOpenOption.READ)) {
+                WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+                long posicion = tramo.inicio();
+                long restante = tramo.largo();
+                while (restante > 0) {
+                    long enviados = canal.transferTo(posicion, restante, salida);
+                    if (enviados <= 0) {
+                        break;
+                    }
+                    posicion += enviados;
+                    restante -= enviados;
+                }
+            }
+            return;
+        }
+
+        if (archivo.clave() != null) {
+            // Almacén remoto: se pide solo el tramo y se copia por streaming
+            try (InputStream entrada = evidenceStore.getRange(archivo.clave(), tramo.inicio(), tramo.fin())) {
+                entrada.transferTo(response.getOutputStream());
+            }
+            return;
+        }
+
+        try (InputStream entrada = archivo.recurso().getInputStream()) {
+            StreamUtils.copyRange(entrada, response.getOutputStream(), tramo.inicio(), tramo.fin());
+        }
+    }
+
+    private String sinPrefijoDebil(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private long leerFecha(HttpServletRequest request, String header) {
+        try {
+            return request.getDateHeader(header);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.domain.CeldaMapa;
+import com.example.appmunicipal.domain.Denuncia;
+import com.example.appmunicipal.repository.CeldaMapaRepository;
+import com.example.appmunicipal.repository.DenunciaRepository;
+import com.example.appmunicipal.repository.EstadisticaDenunciaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mantiene las tablas estadisticas_denuncias (rollup del dashboard) y
+ * celdas_mapa (mapa de calor).
+ * Los métodos registrar* se ejecutan dentro de la transacción del servicio que
+ * modifica la denuncia, por lo que el rollup queda consistente con cada escritura.
+ *
+ * La reconstrucción no borra las tablas: recorre las denuncias por lotes de días
+ * y aplica solo la diferencia con lo guardado, en transacciones cortas. Así no
+ * bloquea crear/cambiar estado (que escriben en las mismas filas) durante todo
+ * el recorrido.
+ */
+@Service
+@Slf4j
+public class EstadisticaDenunciaService {
+
+    // Lecturas de un lote antes de dejarlo para la próxima reconstrucción
+    private static final int MAX_INTENTOS_LOTE = 5;
+
+    private record ClaveRollup(LocalDate dia, int hora, long categoriaId, String comuna, String sector,
+                               String estado) {
+    }
+
+    private record ClaveCelda(String celda, LocalDate dia, long categoriaId, String estado) {
+    }
+
+    private record Diferencias(Map<ClaveRollup, Long> rollup, Map<ClaveCelda, Long> celdas) {
+    }
+
+    private final EstadisticaDenunciaRepository estadisticaDenunciaRepository;
+    private final CeldaMapaRepository celdaMapaRepository;
+    private final DenunciaRepository denunciaRepository;
+    private final TransactionTemplate lectura;
+    private final TransactionTemplate escritura;
+    private final int diasPorLote;
+
+    public EstadisticaDenunciaService(EstadisticaDenunciaRepository estadisticaDenunciaRepository,
+                                      CeldaMapaRepository celdaMapaRepository,
+                                      DenunciaRepository denunciaRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${app.estadisticas.rollup-dias-por-lote:7}") int diasPorLote) {
+        this.estadisticaDenunciaRepository = estadisticaDenunciaRepository;
+        this.celdaMapaRepository = celdaMapaRepository;
+        this.denunciaRepository = denunciaRepository;
+        this.diasPorLote = diasPorLote;
+
+        // Lecturas sin locks; READ COMMITTED para que la segunda lectura de denuncias
+        // vea lo confirmado entremedio (con REPEATABLE READ repetiría la primera)
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.lectura.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.escritura = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Registrar una denuncia nueva (+1 en su estado actual)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarAlta(Denuncia denuncia) {
+        acumular(denuncia, denuncia.getEstado(), 1);
+    }
+
+    /**
+     * Registrar la eliminación de una denuncia (-1 en su estado actual)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarBaja(Denuncia denuncia) {
+        acumular(denuncia, denuncia.getEstado(), -1);
+    }
+
+    /**
+     * Mover una denuncia de un estado a otro
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarCambioEstado(Denuncia denuncia, Denuncia.EstadoDenuncia estadoAnterior) {
+        if (estadoAnterior == denuncia.getEstado()) {
+            return;
+        }
+        acumular(denuncia, estadoAnterior, -1);
+        acumular(denuncia, denuncia.getEstado(), 1);
+    }
+
+    /**
+     * Reconciliar el rollup y las celdas del mapa con la tabla denuncias y
+     * completar la duración de validación de filas que no la tengan.
+     * Se ejecuta al iniciar (data.sql inserta directamente en denuncias), después
+     * de completar los geohash faltantes, y cada noche para corregir cualquier desviación.
+     *
+     * Por cada lote de días se leen los conteos esperados (denuncias) y los
+     * guardados; la diferencia se suma con los mismos upserts que usan las
+     * escrituras en línea. Como se aplican deltas, una denuncia creada durante la
+     * reconstrucción se cuenta una sola vez.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    @Scheduled(cron = "${app.estadisticas.rollup-cron:0 0 3 * * *}")
+    public void reconstruir() {
+        long inicio = System.currentTimeMillis();
+
+        LocalDate primero = primero(denunciaRepository.primeraFechaDenuncia(),
+                estadisticaDenunciaRepository.primerDia(), celdaMapaRepository.primerDia());
+        LocalDate ultimo = ultimo(denunciaRepository.ultimaFechaDenuncia(),
+                estadisticaDenunciaRepository.ultimoDia(), celdaMapaRepository.ultimoDia());
+        if (primero == null) {
+            log.info("📊 Rollup de estadísticas sin datos para reconstruir");
+            return;
+        }
+
+        int lotes = 0;
+        int omitidos = 0;
+        long filas = 0;
+        long celdas = 0;
+        long duraciones = 0;
+        for (LocalDate lote = primero; !lote.isAfter(ultimo); lote = lote.plusDays(diasPorLote)) {
+            LocalDate desde = lote;
+            LocalDate hasta = lote.plusDays(diasPorLote);
+            Diferencias diferencias = null;
+            for (int intento = 0; diferencias == null && intento < MAX_INTENTOS_LOTE; intento++) {
+                diferencias = lectura.execute(estado -> calcularDiferencias(desde, hasta));
+            }
+            if (diferencias == null) {
+                // Lote con escrituras constantes: se corrige en la próxima reconstrucción
+                log.warn("⚠️ Rollup del {} al {} cambió en cada lectura, se omite", desde, hasta.minusDays(1));
+                omitidos++;
+                continue;
+            }
+            Diferencias aAplicar = diferencias;
+            int[] aplicadas = escritura.execute(estado -> aplicar(aAplicar, desde, hasta));
+            filas += aplicadas[0];
+            celdas += aplicadas[1];
+            duraciones += aplicadas[2];
+            lotes++;
+        }
+
+        log.info("📊 Rollup de estadísticas reconciliado en {} lotes ({} omitidos): {} filas y {} celdas de mapa " +
+                        "corregidas, {} duraciones completadas en {} ms",
+                lotes, omitidos, filas, celdas, duraciones, System.currentTimeMillis() - inicio);
+    }
+
+    /*
+     * Esperado menos guardado, solo para las claves que difieren. Las denuncias se
+     * cuentan antes y después de leer lo guardado: si cambiaron, una escritura en
+     * línea hizo commit entremedio, la diferencia no es confiable y se devuelve
+     * null para reintentar.
+     */
+    private Diferencias calcularDiferencias(LocalDate desde, LocalDate hasta) {
+        Map<ClaveRollup, Long> rollupEsperado = contarRollupEsperado(desde, hasta);
+        Map<ClaveCelda, Long> celdasEsperadas = contarCeldasEsperadas(desde, hasta);
+
+        Map<ClaveRollup, Long> rollup = new HashMap<>(rollupEsperado);
+        for (Object[] fila : estadisticaDenunciaRepository.contarGuardadas(desde, hasta)) {
+            rollup.merge(claveRollup(fila), -((Number) fila[6]).longValue(), Long::sum);
+        }
+        Map<ClaveCelda, Long> celdas = new HashMap<>(celdasEsperadas);
+        for (Object[] fila : celdaMapaRepository.contarGuardadas(desde, hasta)) {
+            celdas.merge(claveCelda(fila), -((Number) fila[4]).longValue(), Long::sum);
+        }
+
+        if (!rollupEsperado.equals(contarRollupEsperado(desde, hasta))
+                || !celdasEsperadas.equals(contarCeldasEsperadas(desde, hasta))) {
+            return null;
+        }
+
+        rollup.values().removeIf(delta -> delta == 0);
+        celdas.values().removeIf(delta -> delta == 0);
+        return new Diferencias(rollup, celdas);
+    }
+
+    private Map<ClaveRollup, Long> contarRollupEsperado(LocalDate desde, LocalDate hasta) {
+        Map<ClaveRollup, Long> conteos = new HashMap<>();
+        for (Object[] fila : estadisticaDenunciaRepository.contarDenuncias(desde.atStartOfDay(), hasta.atStartOfDay())) {
+            conteos.merge(claveRollup(fila), ((Number) fila[6]).longValue(), Long::sum);
+        }
+        return conteos;
+    }
+
+    private Map<ClaveCelda, Long> contarCeldasEsperadas(LocalDate desde, LocalDate hasta) {
+        Map<ClaveCelda, Long> conteos = new HashMap<>();
+        for (Object[] fila : celdaMapaRepository.contarDenuncias(desde.atStartOfDay(), hasta.atStartOfDay())) {
+            conteos.merge(claveCelda(fila), ((Number) fila[4]).longValue(), Long::sum);
+        }
+        return conteos;
+    }
+
+    private int[] aplicar(Diferencias diferencias, LocalDate desde, LocalDate hasta) {
+        diferencias.rollup().forEach((clave, delta) -> estadisticaDenunciaRepository.acumular(
+                clave.dia(), clave.hora(), clave.categoriaId(), clave.comuna(), clave.sector(), clave.estado(), delta));
+        diferencias.celdas().forEach((clave, delta) -> celdaMapaRepository.acumular(
+                clave.celda(), clave.dia(), clave.categoriaId(), clave.estado(), delta));
+
+        estadisticaDenunciaRepository.eliminarVacias(desde, hasta);
+        celdaMapaRepository.eliminarVacias(desde, hasta);
+        int duraciones = denunciaRepository.completarDuracionValidacion(desde.atStartOfDay(), hasta.atStartOfDay());
+        return new int[]{diferencias.rollup().size(), diferencias.celdas().size(), duraciones};
+    }
+
+    private ClaveRollup claveRollup(Object[] fila) {
+        return new ClaveRollup(aFecha(fila[0]), ((Number) fila[1]).intValue(), ((Number) fila[2]).longValue(),
+                (String) fila[3], (String) fila[4], (String) fila[5]);
+    }
+
+    private ClaveCelda claveCelda(Object[] fila) {
+        return new ClaveCelda((String) fila[0], aFecha(fila[1]), ((Number) fila[2]).longValue(), (String) fila[3]);
+    }
+
+    // Según el driver, una columna DATE llega como java.sql.Date o LocalDate
+    private LocalDate aFecha(Object valor) {
+        return valor instanceof java.sql.Date fecha ? fecha.toLocalDate() : (LocalDate) valor;
+    }
+
+    private LocalDate primero(LocalDateTime primeraDenuncia, LocalDate... dias) {
+        LocalDate primero = primeraDenuncia != null ? primeraDenuncia.toLocalDate() : null;
+        for (LocalDate dia : dias) {
+            if (dia != null && (primero == null || dia.isBefore(primero))) {
+                primero = dia;
+            }
+        }
+        return primero;
+    }
+
+    private LocalDate ultimo(LocalDateTime ultimaDenuncia, LocalDate... dias) {
+        LocalDate ultimo = ultimaDenuncia != null ? ultimaDenuncia.toLocalDate() : null;
+        for (LocalDate dia : dias) {
+            if (dia != null && (ultimo == null || dia.isAfter(ultimo))) {
+                ultimo = dia;
+            }
+        }
+        return ultimo;
+    }
+
+    private void acumular(Denuncia denuncia, Denuncia.EstadoDenuncia estado, long delta) {
+        estadisticaDenunciaRepository.acumular(
+                denuncia.getFechaDenuncia().toLocalDate(),
+                denuncia.getFechaDenuncia().getHour(),
+                denuncia.getCategoria().getId(),
+                normalizar(denuncia.getComuna()),
+                normalizar(denuncia.getSector()),
+                estado.name(),
+                delta);
+
+        if (denuncia.getGeohash() != null) {
+            celdaMapaRepository.acumular(
+                    denuncia.getGeohash().substring(0, CeldaMapa.PRECISION_CELDA),
+                    denuncia.getFechaDenuncia().toLocalDate(),
+                    denuncia.getCategoria().getId(),
+                    estado.name(),
+                    delta);
+        }
+    }
+
+    private String normalizar(String valor) {
+        return valor != null ? valor.toUpperCase() : "";
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.DTO.DashboardStatsResponse;
+import com.example.appmunicipal.repository.DenunciaRepository;
+import com.example.appmunicipal.repository.EstadisticaDenunciaRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Cálculo de las estadísticas avanzadas del dashboard.
+ *
+ * Cada consulta es independiente, por lo que en modo paralelo se ejecutan en un
+ * pool acotado de hilos virtuales, cada una con su propia transacción de solo
+ * lectura (y por tanto su propia conexión). Si una consulta supera el timeout
+ * se devuelve el resto de resultados con parcial=true.
+ */
+@Service
+@Slf4j
+public class EstadisticasAvanzadasService {
+
+    private static final Locale LOCALE_ES = new Locale("es", "ES");
+
+    private final DenunciaRepository denunciaRepository;
+    private final EstadisticaDenunciaRepository estadisticaDenunciaRepository;
+    private final TransactionTemplate transaccionLectura;
+    private final ExecutorService executor;
+    private final boolean paralelo;
+    private final long timeoutConsultaMs;
+
+    /**
+     * Una consulta del dashboard: ejecuta la query y devuelve cómo aplicar
+     * su resultado a la respuesta (la aplicación ocurre en el hilo que llama)
+     */
+    private record Agregado(String nombre, Supplier<Consumer<DashboardStatsResponse>> consulta) {
+    }
+
+    public EstadisticasAvanzadasService(DenunciaRepository denunciaRepository,
+                                        EstadisticaDenunciaRepository estadisticaDenunciaRepository,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${app.estadisticas.paralelo:true}") boolean paralelo,
+                                        @Value("${app.estadisticas.hilos:4}") int hilos,
+                                        @Value("${app.estadisticas.timeout-consulta-ms:10000}") long timeoutConsultaMs) {
+        this.denunciaRepository = denunciaRepository;
+        this.estadisticaDenunciaRepository = estadisticaDenunciaRepository;
+        this.paralelo = paralelo;
+        this.timeoutConsultaMs = timeoutConsultaMs;
+
+        // El timeout de la transacción se aplica también como timeout de cada query JPA
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+        this.transaccionLectura.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutConsultaMs)));
+
+        this.executor = Executors.newFixedThreadPool(hilos, Thread.ofVirtual().name("estadisticas-", 0).factory());
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    public DashboardStatsResponse calcular() {
+        log.info("📊 Calculando estadísticas avanzadas (modo {})...", paralelo ? "paralelo" : "secuencial");
+        long inicio = System.currentTimeMillis();
+
+        DashboardStatsResponse stats = paralelo ? calcularEnParalelo() : calcularSecuencial();
+
+        log.info("✅ Estadísticas calculadas en {} ms - tiempos por consulta: {}",
+                System.currentTimeMillis() - inicio, stats.getTiemposConsultaMs());
+
+        return stats;
+    }
+
+    private DashboardStatsResponse calcularSecuencial() {
+        DashboardStatsResponse stats = new DashboardStatsResponse();
+        Map<String, Long> tiempos = new LinkedHashMap<>();
+
+        transaccionLectura.executeWithoutResult(status -> {
+            for (Agregado agregado : agregados()) {
+                long t0 = System.nanoTime();
+                agregado.consulta().get().accept(stats);
+                tiempos.put(agregado.nombre(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+            }
+        });
+
+        stats.setParcial(false);
+        stats.setConsultasIncompletas(List.of());
+        stats.setConsultasConTimeout(List.of());
+        stats.setConsultasFallidas(List.of());
+        stats.setTiemposConsultaMs(tiempos);
+        return stats;
+    }
+
+    private DashboardStatsResponse calcularEnParalelo() {
+        List<Agregado> agregados = agregados();
+        Map<String, Long> tiemposMedidos = new ConcurrentHashMap<>();
+        Map<String, CompletableFuture<Consumer<DashboardStatsResponse>>> futuros = new LinkedHashMap<>();
+
+        long envio = System.nanoTime();
+        for (Agregado agregado : agregados) {
+            // El timeout cuenta desde el envío, por lo que incluye la espera en el pool
+            futuros.put(agregado.nombre(), CompletableFuture.supplyAsync(() -> {
+                long t0 = System.nanoTime();
+                try {
+                    return transaccionLectura.execute(status -> agregado.consulta().get());
+                } finally {
+                    tiemposMedidos.put(agregado.nombre(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+                }
+            }, executor).orTimeout(timeoutConsultaMs, TimeUnit.MILLISECONDS));
+        }
+
+        DashboardStatsResponse stats = new DashboardStatsResponse();
+        List<String> incompletas = new ArrayList<>();
+        List<String> conTimeout = new ArrayList<>();
+        List<String> fallidas = new ArrayList<>();
+        Map<String, Long> tiemposObservados = new HashMap<>();
+
+        for (Map.Entry<String, CompletableFuture<Consumer<DashboardStatsResponse>>> entry : futuros.entrySet()) {
+            try {
+                entry.getValue().join().accept(stats);
+            } catch (CompletionException e) {
+                incompletas.add(entry.getKey());
+                if (e.getCause() instanceof TimeoutException) {
+                    conTimeout.add(entry.getKey());
+                    // La consulta sigue en curso: se registra lo esperado desde el envío
+                    tiemposObservados.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - envio));
+                    log.warn("⏱️ Consulta de estadísticas '{}' superó {} ms", entry.getKey(), timeoutConsultaMs);
+                } else {
+                    fallidas.add(entry.getKey());
+                    log.error("❌ Consulta de estadísticas '{}' falló: {}", entry.getKey(), e.getCause().getMessage());
+                }
+            }
+        }
+
+        // Tiempo real de cada consulta, también de las fallidas (medido en el hilo que la ejecutó)
+        Map<String, Long> tiempos = new LinkedHashMap<>();
+        for (Agregado agregado : agregados) {
+            Long medido = tiemposObservados.containsKey(agregado.nombre())
+                    ? tiemposObservados.get(agregado.nombre())
+                    : tiemposMedidos.get(agregado.nombre());
+            tiempos.put(agregado.nombre(), medido != null ? medido
+                    : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - envio));
+        }
+
+        stats.setParcial(!incompletas.isEmpty());
+        stats.setConsultasIncompletas(incompletas);
+        stats.setConsultasConTimeout(conTimeout);
+        stats.setConsultasFallidas(fallidas);
+        stats.setTiemposConsultaMs(tiempos);
+        return stats;
+    }
+
+    private List<Agregado> agregados() {
+        LocalDateTime unAnioAtras = LocalDateTime.now().minusMonths(12);
+
+        return List.of(
+                // 1. Total de denuncias (suma del rollup)
+                new Agregado("total", () -> {
+                    long totalDenuncias = estadisticaDenunciaRepository.sumTotal();
+                    return stats -> stats.setTotalDenuncias(totalDenuncias);
+                }),
+
+                // 2. Denuncias por mes (últimos 12 meses, aproximado por query)
+                new Agregado("porMes", () -> {
+                    Map<String, Long> denunciasPorMes = new HashMap<>();
+                    for (Object[] row : estadisticaDenunciaRepository.sumByMes(unAnioAtras.toLocalDate())) {
+                        Integer mes = (Integer) row[0];
+                        String nombreMes = Month.of(mes).getDisplayName(TextStyle.FULL, LOCALE_ES);
+                        denunciasPorMes.put(nombreMes, (Long) row[1]);
+                    }
+                    return stats -> stats.setDenunciasPorMes(denunciasPorMes);
+                }),
+
+                // 3. Distribución por Estado y 4. tasas de validación/rechazo
+                new Agregado("porEstado", () -> {
+                    Map<String, Long> denunciasPorEstado = new HashMap<>();
+                    for (Object[] row : estadisticaDenunciaRepository.sumByEstado()) {
+                        denunciasPorEstado.put(row[0].toString(), (Long) row[1]);
+                    }
+
+                    long validadas = denunciasPorEstado.getOrDefault("VALIDADA", 0L);
+                    long rechazadas = denunciasPorEstado.getOrDefault("RECHAZADA", 0L);
+                    long totalCerradas = validadas + rechazadas;
+
+                    return stats -> {
+                        stats.setDenunciasPorEstado(denunciasPorEstado);
+                        if (totalCerradas > 0) {
+                            stats.setTasaValidacion((double) validadas / totalCerradas * 100);
+                            stats.setTasaRechazo((double) rechazadas / totalCerradas * 100);
+                        } else {
+                            stats.setTasaValidacion(0.0);
+                            stats.setTasaRechazo(0.0);
+                        }
+                    };
+                }),
+
+                // 5. Tiempo de validación (en horas): promedio con AVG y percentiles
+                // desde un histograma por hora, ambos calculados en la base de datos
+                new Agregado("tiempoValidacion", () -> {
+                    Double promedioSegundos = denunciaRepository.avgDuracionValidacionSegundos();
+                    double promedioHoras = promedioSegundos != null ? promedioSegundos / 3600 : 0.0;
+
+                    TreeMap<Long, Long> histograma = new TreeMap<>();
+                    for (Object[] row : denunciaRepository.histogramaDuracionValidacionPorHora()) {
+                        histograma.merge(((Number) row[0]).longValue(), (Long) row[1], Long::sum);
+                    }
+                    double mediana = percentilHoras(histograma, 0.50);
+                    double p90 = percentilHoras(histograma, 0.90);
+                    double p99 = percentilHoras(histograma, 0.99);
+
+                    return stats -> {
+                        stats.setTiempoPromedioValidacion(promedioHoras);
+                        stats.setTiempoMedianoValidacion(mediana);
+                        stats.setTiempoP90Validacion(p90);
+                        stats.setTiempoP99Validacion(p99);
+                    };
+                }),
+
+                // 6. Tendencias por horario
+                new Agregado("porHorario", () -> {
+                    Map<Integer, Long> denunciasPorHorario = new HashMap<>();
+                    for (Object[] row : estadisticaDenunciaRepository.sumByHora()) {
+                        denunciasPorHorario.put((Integer) row[0], (Long) row[1]);
+                    }
+                    return stats -> stats.setDenunciasPorHorario(denunciasPorHorario);
+                }),
+
+                // 7. Denuncias por Categoría
+                new Agregado("porCategoria", () -> {
+                    Map<String, Long> denunciasPorCategoria = aMapa(estadisticaDenunciaRepository.sumByCategoria(), new HashMap<>());
+                    return stats -> stats.setDenunciasPorCategoria(denunciasPorCategoria);
+                }),
+
+                // 8. Denuncias por Comuna
+                new Agregado("porComuna", () -> {
+                    Map<String, Long> denunciasPorComuna = aMapa(estadisticaDenunciaRepository.sumByComuna(), new HashMap<>());
+                    return stats -> stats.setDenunciasPorComuna(denunciasPorComuna);
+                }),
+
+                // 9. Denuncias por Sector (Temuco)
+                new Agregado("porSector", () -> {
+                    Map<String, Long> denunciasPorSector = aMapa(estadisticaDenunciaRepository.sumBySectorTemuco(), new HashMap<>());
+                    return stats -> stats.setDenunciasPorSector(denunciasPorSector);
+                }),
+
+                // 10. Top Usuarios (limitamos a top 10 en la query)
+                new Agregado("topUsuarios", () -> {
+                    Map<String, Long> topUsuarios = aMapa(
+                            denunciaRepository.countDenunciasByUsuarioTop10(PageRequest.of(0, 10)), new LinkedHashMap<>());
+                    return stats -> stats.setTopUsuarios(topUsuarios);
+                }),
+
+                // 11. Reincidencia por Patente (Top 20 patentes con más de 1 denuncia)
+                new Agregado("reincidenciaPatentes", () -> {
+                    Map<String, Long> reincidenciaPatentes = aMapa(
+                            denunciaRepository.countReincidenciaByPatente(PageRequest.of(0, 20)), new LinkedHashMap<>());
+                    return stats -> stats.setReincidenciaPatentes(reincidenciaPatentes);
+                }));
+    }
+
+    /**
+     * Percentil aproximado (en horas) a partir de un histograma de buckets de 1 hora.
+     * Interpola linealmente dentro del bucket, por lo que el error es menor a 1 hora.
+     */
+    private double percentilHoras(TreeMap<Long, Long> histograma, double percentil) {
+        long total = histograma.values().stream().mapToLong(Long::longValue).sum();
+        if (total == 0) {
+            return 0.0;
+        }
+
+        double rango = percentil * total;
+        long acumulado = 0;
+        for (Map.Entry<Long, Long> bucket : histograma.entrySet()) {
+            long cantidad = bucket.getValue();
+            if (acumulado + cantidad >= rango) {
+                return bucket.getKey() + (rango - acumulado) / cantidad;
+            }
+            acumulado += cantidad;
+        }
+        return histograma.lastKey() + 1.0;
+    }
+
+    private Map<String, Long> aMapa(List<Object[]> filas, Map<String, Long> destino) {
+        for (Object[] row : filas) {
+            destino.put((String) row[0], (Long) row[1]);
+        }
+        return destino;
+    }
+}
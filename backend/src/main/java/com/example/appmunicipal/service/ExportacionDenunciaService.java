@@ -0,0 +1,194 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.domain.Denuncia;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Exportación de denuncias en CSV o NDJSON con memoria constante.
+ * Las filas se leen con un Stream de JPA (cursor del driver con fetch size) y se
+ * escriben directo a la respuesta; cada bloque se vacía del contexto de persistencia
+ * con EntityManager.clear(), así el heap no crece con la cantidad de filas.
+ *
+ * En MySQL el fetch size solo se respeta con useCursorFetch=true en la URL JDBC;
+ * sin ese parámetro Connector/J carga el resultado completo en memoria.
+ */
+@Service
+@Slf4j
+public class ExportacionDenunciaService {
+
+    public enum Formato {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Formato(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Formato desde(String formato) {
+            try {
+                return Formato.valueOf(formato.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Formato inválido: " + formato + ". Formatos válidos: csv, ndjson");
+            }
+        }
+    }
+
+    private static final String[] COLUMNAS = {
+            "id", "fechaDenuncia", "estado", "categoria", "descripcion", "patente", "latitud", "longitud",
+            "direccion", "sector", "comuna", "emailUsuario", "fechaValidacion", "motivoRechazo"
+    };
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final CategoriaRegistry categoriaRegistry;
+    private final int fetchSize;
+
+    public ExportacionDenunciaService(EntityManager entityManager,
+                                      ObjectMapper objectMapper,
+                                      CategoriaRegistry categoriaRegistry,
+                                      @Value("${app.export.fetch-size:500}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.categoriaRegistry = categoriaRegistry;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Escribir todas las denuncias que cumplen el filtro, ordenadas por fecha descendente
+     *
+     * @param filtro  Filtro construido por DenunciaService.construirFiltro
+     * @param formato CSV o NDJSON
+     * @param salida  Stream de la respuesta HTTP (no se cierra)
+     * @return Cantidad de filas escritas
+     */
+    @Transactional(readOnly = true)
+    public long exportar(Specification<Denuncia> filtro, Formato formato, OutputStream salida) throws IOException {
+        long inicio = System.currentTimeMillis();
+        long filas = 0;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+
+        if (formato == Formato.CSV) {
+            writer.write(String.join(",", COLUMNAS));
+            writer.write("\r\n");
+        }
+
+        try (Stream<Denuncia> denuncias = consultar(filtro)) {
+            Iterator<Denuncia> iterador = denuncias.iterator();
+            while (iterador.hasNext()) {
+                Map<String, Object> fila = aFila(iterador.next());
+
+                if (formato == Formato.CSV) {
+                    escribirCsv(writer, fila);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(fila));
+                    writer.write('\n');
+                }
+
+                if (++filas % fetchSize == 0) {
+                    // Liberar las entidades ya escritas y enviar el bloque al cliente
+                    entityManager.clear();
+                    writer.flush();
+                }
+            }
+        }
+
+        writer.flush();
+
+        log.info("📤 Exportación {} completada: {} denuncias en {} ms",
+                formato, filas, System.currentTimeMillis() - inicio);
+        return filas;
+    }
+
+    private Stream<Denuncia> consultar(Specification<Denuncia> filtro) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Denuncia> query = cb.createQuery(Denuncia.class);
+        Root<Denuncia> root = query.from(Denuncia.class);
+
+        Predicate predicado = filtro.toPredicate(root, query, cb);
+        if (predicado != null) {
+            query.where(predicado);
+        }
+        query.orderBy(cb.desc(root.get("fechaDenuncia")), cb.desc(root.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private Map<String, Object> aFila(Denuncia denuncia) {
+        Map<String, Object> fila = new LinkedHashMap<>();
+        fila.put("id", denuncia.getId());
+        fila.put("fechaDenuncia", denuncia.getFechaDenuncia() != null ? denuncia.getFechaDenuncia().toString() : null);
+        fila.put("estado", denuncia.getEstado().name());
+        fila.put("categoria", categoriaRegistry.dto(denuncia.getCategoria().getId()).getNombre());
+        fila.put("descripcion", denuncia.getDescripcion());
+        fila.put("patente", denuncia.getPatente());
+        fila.put("latitud", denuncia.getLatitud());
+        fila.put("longitud", denuncia.getLongitud());
+        fila.put("direccion", denuncia.getDireccion());
+        fila.put("sector", denuncia.getSector());
+        fila.put("comuna", denuncia.getComuna());
+        fila.put("emailUsuario", denuncia.getUsuario().getEmail());
+        fila.put("fechaValidacion", denuncia.getFechaValidacion() != null ? denuncia.getFechaValidacion().toString() : null);
+        fila.put("motivoRechazo", denuncia.getMotivoRechazo());
+        return fila;
+    }
+
+    private void escribirCsv(Writer writer, Map<String, Object> fila) throws IOException {
+        boolean primera = true;
+        for (Object valor : fila.values()) {
+            if (!primera) {
+                writer.write(',');
+            }
+            primera = false;
+            if (valor != null) {
+                writer.write(escaparCsv(valor.toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180: entre comillas si contiene separador, comillas o saltos de línea
+    private String escaparCsv(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
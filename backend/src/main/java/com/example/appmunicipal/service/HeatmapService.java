@@ -0,0 +1,158 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.DTO.HeatmapCeldaResponse;
+import com.example.appmunicipal.domain.CeldaMapa;
+import com.example.appmunicipal.domain.Denuncia;
+import com.example.appmunicipal.repository.CeldaMapaRepository;
+import com.example.appmunicipal.util.CacheAcotado;
+import com.example.appmunicipal.util.GeoUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapa de calor servido desde la tabla celdas_mapa (conteos por celda geohash),
+ * con un cache en memoria (CacheAcotado) de los tiles más consultados.
+ * Un tile es (prefijo, precisión, filtros): todas las celdas de largo "precisión"
+ * contenidas en "prefijo". Cada escritura invalida solo los tiles que contienen
+ * el geohash de la denuncia modificada.
+ */
+@Service
+@Slf4j
+public class HeatmapService {
+
+    private static final LocalDate FECHA_MINIMA = LocalDate.of(1900, 1, 1);
+    private static final LocalDate FECHA_MAXIMA = LocalDate.of(9999, 12, 31);
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    private record Tile(String prefijo, int precision, Long categoriaId, Denuncia.EstadoDenuncia estado,
+                        LocalDate desde, LocalDate hasta) {
+    }
+
+    private final CeldaMapaRepository celdaMapaRepository;
+    private final GeoUtil geoUtil;
+    // Cada invalidación cambia la generación del cache: un cálculo iniciado antes no se guarda
+    private final CacheAcotado<Tile, List<HeatmapCeldaResponse>> tiles;
+
+    public HeatmapService(CeldaMapaRepository celdaMapaRepository,
+                          GeoUtil geoUtil,
+                          @Value("${app.mapa.heatmap.cache-max-tiles:256}") int maxTiles) {
+        this.celdaMapaRepository = celdaMapaRepository;
+        this.geoUtil = geoUtil;
+        this.tiles = new CacheAcotado<>(maxTiles);
+    }
+
+    /**
+     * Obtener el mapa de calor de un tile
+     *
+     * @param prefijo     Geohash que delimita el área ("" = todo)
+     * @param precision   Largo de las celdas devueltas (1 a 6)
+     * @param categoriaId Categoría opcional
+     * @param estado      Estado opcional
+     * @param desde       Fecha inicial opcional (inclusive)
+     * @param hasta       Fecha final opcional (inclusive)
+     * @return Celdas con su centro y cantidad, de mayor a menor
+     */
+    @Transactional(readOnly = true)
+    public List<HeatmapCeldaResponse> obtenerHeatmap(String prefijo, int precision, Long categoriaId,
+                                                     String estado, LocalDate desde, LocalDate hasta) {
+        Tile tile = validarTile(prefijo, precision, categoriaId, estado, desde, hasta);
+
+        List<HeatmapCeldaResponse> enCache = tiles.obtener(tile);
+        if (enCache != null) {
+            return enCache;
+        }
+
+        long generacionInicial = tiles.generacion();
+        List<HeatmapCeldaResponse> celdas = calcular(tile);
+
+        tiles.guardar(tile, celdas, Long.MAX_VALUE, generacionInicial);
+        return celdas;
+    }
+
+    /**
+     * Invalidar los tiles que contienen la denuncia modificada
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alCambiarDenuncia(DenunciaCambiadaEvent evento) {
+        if (evento.geohash() == null) {
+            tiles.limpiar();
+        } else {
+            tiles.invalidarSi(tile -> evento.geohash().startsWith(tile.prefijo()));
+        }
+    }
+
+    private List<HeatmapCeldaResponse> calcular(Tile tile) {
+        long inicio = System.currentTimeMillis();
+
+        // Agrupar las celdas almacenadas (6 caracteres) a la precisión pedida
+        Map<String, Long> conteos = new HashMap<>();
+        for (Object[] fila : celdaMapaRepository.sumPorCelda(
+                tile.prefijo(), tile.desde(), tile.hasta(), tile.categoriaId(), tile.estado())) {
+            String geohash = ((String) fila[0]).substring(0, tile.precision());
+            conteos.merge(geohash, ((Number) fila[1]).longValue(), Long::sum);
+        }
+
+        List<HeatmapCeldaResponse> celdas = conteos.entrySet().stream()
+                .map(entry -> {
+                    GeoUtil.BoundingBox celda = geoUtil.limites(entry.getKey());
+                    return new HeatmapCeldaResponse(
+                            entry.getKey(),
+                            (celda.minLat() + celda.maxLat()) / 2,
+                            (celda.minLon() + celda.maxLon()) / 2,
+                            entry.getValue());
+                })
+                .sorted(Comparator.comparing(HeatmapCeldaResponse::getCantidad).reversed())
+                .toList();
+
+        log.info("🔥 Heatmap '{}' precisión {}: {} celdas en {} ms",
+                tile.prefijo(), tile.precision(), celdas.size(), System.currentTimeMillis() - inicio);
+        return celdas;
+    }
+
+    private Tile validarTile(String prefijo, int precision, Long categoriaId, String estado,
+                             LocalDate desde, LocalDate hasta) {
+        if (precision < 1 || precision > CeldaMapa.PRECISION_CELDA) {
+            throw new RuntimeException("La precisión debe estar entre 1 y " + CeldaMapa.PRECISION_CELDA);
+        }
+
+        String prefijoNormalizado = prefijo != null ? prefijo.trim().toLowerCase() : "";
+        if (prefijoNormalizado.length() > precision) {
+            throw new RuntimeException("El prefijo no puede ser más largo que la precisión");
+        }
+        for (char c : prefijoNormalizado.toCharArray()) {
+            if (BASE32.indexOf(c) < 0) {
+                throw new RuntimeException("Geohash inválido: " + prefijo);
+            }
+        }
+
+        LocalDate fechaDesde = desde != null ? desde : FECHA_MINIMA;
+        LocalDate fechaHasta = hasta != null ? hasta : FECHA_MAXIMA;
+        if (fechaDesde.isAfter(fechaHasta)) {
+            throw new RuntimeException("La fecha 'desde' debe ser anterior a 'hasta'");
+        }
+
+        return new Tile(prefijoNormalizado, precision, categoriaId, parsearEstado(estado), fechaDesde, fechaHasta);
+    }
+
+    private Denuncia.EstadoDenuncia parsearEstado(String estado) {
+        if (estado == null || estado.isBlank()) {
+            return null;
+        }
+        try {
+            return Denuncia.EstadoDenuncia.valueOf(estado.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Estado inválido: " + estado
+                    + ". Estados válidos: PENDIENTE, EN_REVISION, VALIDADA, RECHAZADA, CERRADA");
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.DTO.DenunciaResponse;
+import com.example.appmunicipal.domain.Denuncia;
+import com.example.appmunicipal.repository.DenunciaRepository;
+import com.example.appmunicipal.util.GeoUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.example.appmunicipal.repository.DenunciaSpecifications.*;
+
+/**
+ * Consultas geográficas para el mapa (rectángulo visible y radio)
+ * apoyadas en la columna geohash de denuncias
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MapaDenunciaService {
+
+    private static final int LIMITE_MAXIMO = 2000;
+    private static final double RADIO_MAXIMO_METROS = 50_000;
+
+    private final DenunciaRepository denunciaRepository;
+    private final DenunciaResponseMapper denunciaResponseMapper;
+    private final GeoUtil geoUtil;
+
+    /**
+     * Listar denuncias dentro de un rectángulo (viewport del mapa)
+     *
+     * @param bbox        Rectángulo visible
+     * @param estado      Estado opcional
+     * @param categoriaId Categoría opcional
+     * @param limite      Máximo de denuncias (las más recientes primero)
+     * @return Lista de DenunciaResponse
+     */
+    @Transactional(readOnly = true)
+    public List<DenunciaResponse> buscarEnRectangulo(GeoUtil.BoundingBox bbox, String estado, Long categoriaId,
+                                                     int limite) {
+        validarRectangulo(bbox);
+        log.info("🗺️ Buscando denuncias en rectángulo {}", bbox);
+
+        List<Denuncia> denuncias = consultarRectangulo(bbox, parsearEstado(estado), categoriaId, limitar(limite));
+
+        log.info("✅ {} denuncias en el área", denuncias.size());
+
+        return denunciaResponseMapper.mapearListado(denuncias);
+    }
+
+    /**
+     * Listar denuncias a menos de radioMetros de un punto, ordenadas por distancia
+     *
+     * @param lat         Latitud del centro
+     * @param lon         Longitud del centro
+     * @param radioMetros Radio de búsqueda en metros
+     * @param estado      Estado opcional
+     * @param categoriaId Categoría opcional
+     * @param limite      Máximo de denuncias
+     * @return Lista de DenunciaResponse
+     */
+    @Transactional(readOnly = true)
+    public List<DenunciaResponse> buscarEnRadio(double lat, double lon, double radioMetros, String estado,
+                                                Long categoriaId, int limite) {
+        if (radioMetros <= 0 || radioMetros > RADIO_MAXIMO_METROS) {
+            throw new RuntimeException("El radio debe estar entre 1 y " + (int) RADIO_MAXIMO_METROS + " metros");
+        }
+
+        GeoUtil.BoundingBox bbox = geoUtil.rectanguloParaRadio(lat, lon, radioMetros);
+        validarRectangulo(bbox);
+        log.info("🗺️ Buscando denuncias a {} m de ({}, {})", radioMetros, lat, lon);
+
+        // Candidatos por celdas de geohash; la base filtra por distancia y entrega los más
+        // cercanos primero, así el límite se aplica después de ordenar por distancia
+        Specification<Denuncia> filtro = Specification.allOf(
+                conUsuario(),
+                geohashConPrefijo(geoUtil.cobertura(bbox)),
+                dentroDe(bbox.minLat(), bbox.maxLat(), bbox.minLon(), bbox.maxLon()),
+                cercaDe(lat, lon, radioMetros),
+                conEstado(parsearEstado(estado)),
+                conCategoria(categoriaId));
+
+        List<Denuncia> denuncias = denunciaRepository.findBy(filtro, consulta -> consulta
+                        .limit(limitar(limite))
+                        .all())
+                .stream()
+                .filter(d -> geoUtil.distanciaMetros(lat, lon, d.getLatitud(), d.getLongitud()) <= radioMetros)
+                .sorted(Comparator.comparingDouble(d ->
+                        geoUtil.distanciaMetros(lat, lon, d.getLatitud(), d.getLongitud())))
+                .collect(Collectors.toList());
+
+        log.info("✅ {} denuncias dentro del radio", denuncias.size());
+
+        return denunciaResponseMapper.mapearListado(denuncias);
+    }
+
+    /**
+     * Completar el geohash de denuncias que no lo tienen (cargadas por data.sql
+     * o creadas antes de existir la columna). Corre antes de reconstruir el
+     * rollup, que agrupa las celdas del mapa de calor por geohash.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    @Transactional
+    public void completarGeohashFaltantes() {
+        int total = 0;
+        List<Denuncia> pendientes;
+        while (!(pendientes = denunciaRepository.findByGeohashIsNull(PageRequest.of(0, 500))).isEmpty()) {
+            for (Denuncia denuncia : pendientes) {
+                denuncia.setGeohash(geoUtil.geohash(denuncia.getLatitud(), denuncia.getLongitud()));
+            }
+            denunciaRepository.flush();
+            total += pendientes.size();
+        }
+
+        if (total > 0) {
+            log.info("🗺️ Geohash completado para {} denuncias", total);
+        }
+    }
+
+    private List<Denuncia> consultarRectangulo(GeoUtil.BoundingBox bbox, Denuncia.EstadoDenuncia estado,
+                                               Long categoriaId, int limite) {
+        Set<String> prefijos = geoUtil.cobertura(bbox);
+
+        Specification<Denuncia> filtro = Specification.allOf(
+                conUsuario(),
+                geohashConPrefijo(prefijos),
+                dentroDe(bbox.minLat(), bbox.maxLat(), bbox.minLon(), bbox.maxLon()),
+                conEstado(estado),
+                conCategoria(categoriaId));
+
+        return denunciaRepository.findBy(filtro, consulta -> consulta
+                .sortBy(Sort.by(Sort.Direction.DESC, "fechaDenuncia", "id"))
+                .limit(limite)
+                .all());
+    }
+
+    private void validarRectangulo(GeoUtil.BoundingBox bbox) {
+        if (bbox.minLat() > bbox.maxLat() || bbox.minLon() > bbox.maxLon()) {
+            throw new RuntimeException("Rectángulo inválido: los mínimos deben ser menores que los máximos");
+        }
+        if (bbox.minLat() < -90 || bbox.maxLat() > 90 || bbox.minLon() < -180 || bbox.maxLon() > 180) {
+            throw new RuntimeException("Coordenadas fuera de rango");
+        }
+    }
+
+    private int limitar(int limite) {
+        return Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+    }
+
+    private Denuncia.EstadoDenuncia parsearEstado(String estado) {
+        if (estado == null || estado.isBlank()) {
+            return null;
+        }
+        try {
+            return Denuncia.EstadoDenuncia.valueOf(estado.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Estado inválido: " + estado
+                    + ". Estados válidos: PENDIENTE, EN_REVISION, VALIDADA, RECHAZADA, CERRADA");
+        }
+    }
+}
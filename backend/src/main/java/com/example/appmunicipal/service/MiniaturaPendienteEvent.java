@@ -0,0 +1,8 @@
+package com.example.appmunicipal.service;
+
+/**
+ * Se publicó un blob de imagen que necesita miniaturas. MiniaturaService lo
+ * despacha al pool de workers una vez confirmada la transacción de la subida.
+ */
+public record MiniaturaPendienteEvent(String hash) {
+}
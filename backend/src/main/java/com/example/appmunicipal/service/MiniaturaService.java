@@ -0,0 +1,306 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.domain.Evidencia;
+import com.example.appmunicipal.domain.TrabajoMiniatura;
+import com.example.appmunicipal.domain.TrabajoMiniatura.EstadoTrabajo;
+import com.example.appmunicipal.repository.TrabajoMiniaturaRepository;
+import com.example.appmunicipal.storage.EvidenceStore;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación de miniaturas de evidencias en segundo plano.
+ * - La subida encola un trabajo en trabajos_miniatura dentro de su transacción
+ * - Tras el commit el trabajo se despacha a un pool acotado de workers
+ * - Si el pool está lleno (o el servidor se reinició) un barrido periódico
+ *   retoma los pendientes desde la tabla
+ *
+ * Las variantes son JPEG generadas con ImageIO y se guardan en el almacén junto
+ * al blob (ab/cd/<sha256>-thumb.jpg). Mientras no existan la descarga con
+ * ?size=thumb entrega el original.
+ */
+@Service
+@Slf4j
+public class MiniaturaService {
+
+    @Getter
+    public enum Variante {
+        THUMB("thumb", 320),
+        PREVIEW("preview", 1024);
+
+        private final String nombre;
+        private final int ladoMaximo;
+
+        Variante(String nombre, int ladoMaximo) {
+            this.nombre = nombre;
+            this.ladoMaximo = ladoMaximo;
+        }
+
+        /**
+         * Variante pedida en ?size=; vacío si no se pidió o no existe (se entrega el original)
+         */
+        public static Optional<Variante> desde(String size) {
+            if (size == null) {
+                return Optional.empty();
+            }
+            return Arrays.stream(values())
+                    .filter(variante -> variante.nombre.equalsIgnoreCase(size.trim()))
+                    .findFirst();
+        }
+    }
+
+    // La imagen se decodifica submuestreada hasta ~2x la variante más grande
+    private static final int LADO_DECODIFICACION = 2 * Variante.PREVIEW.getLadoMaximo();
+
+    private final TrabajoMiniaturaRepository trabajoMiniaturaRepository;
+    private final AlmacenEvidenciaService almacenEvidenciaService;
+    private final EvidenceStore evidenceStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ThreadPoolExecutor executor;
+    private final int maxIntentos;
+    private final float calidadJpeg;
+
+    public MiniaturaService(TrabajoMiniaturaRepository trabajoMiniaturaRepository,
+                            AlmacenEvidenciaService almacenEvidenciaService,
+                            EvidenceStore evidenceStore,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${app.evidencias.miniaturas.hilos:2}") int hilos,
+                            @Value("${app.evidencias.miniaturas.cola:100}") int capacidadCola,
+                            @Value("${app.evidencias.miniaturas.max-intentos:3}") int maxIntentos,
+                            @Value("${app.evidencias.miniaturas.calidad-jpeg:0.8}") float calidadJpeg) {
+        this.trabajoMiniaturaRepository = trabajoMiniaturaRepository;
+        this.almacenEvidenciaService = almacenEvidenciaService;
+        this.evidenceStore = evidenceStore;
+        this.eventPublisher = eventPublisher;
+        this.maxIntentos = maxIntentos;
+        this.calidadJpeg = calidadJpeg;
+
+        // Trabajo de CPU: hilos de plataforma y cola acotada; lo rechazado sigue en la tabla
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                Thread.ofPlatform().name("miniaturas-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Encolar las miniaturas de un blob recién subido (solo fotos). Debe llamarse
+     * dentro de la transacción de la subida: el trabajo queda persistido junto con
+     * la evidencia y se despacha al confirmar.
+     *
+     * @param hash     SHA-256 del blob
+     * @param mimeType Tipo MIME de la evidencia
+     */
+    @Transactional
+    public void encolar(String hash, String mimeType) {
+        if (Evidencia.TipoEvidencia.desdeMimeType(mimeType) != Evidencia.TipoEvidencia.FOTO) {
+            return;
+        }
+        trabajoMiniaturaRepository.encolar(hash);
+        eventPublisher.publishEvent(new MiniaturaPendienteEvent(hash));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alConfirmarSubida(MiniaturaPendienteEvent event) {
+        trabajoMiniaturaRepository.findByHash(event.hash())
+                .filter(trabajo -> trabajo.getEstado() == EstadoTrabajo.PENDIENTE)
+                .ifPresent(trabajo -> despachar(trabajo.getId()));
+    }
+
+    /**
+     * Retomar trabajos pendientes: los que no cupieron en el pool, los que
+     * fallaron y deben reintentarse y los que quedaron a medias por un reinicio
+     */
+    @Scheduled(initialDelayString = "${app.evidencias.miniaturas.barrido-ms:60000}",
+            fixedDelayString = "${app.evidencias.miniaturas.barrido-ms:60000}")
+    public void barrerPendientes() {
+        int atascados = trabajoMiniaturaRepository.reiniciarAtascados(LocalDateTime.now().minusMinutes(10));
+        if (atascados > 0) {
+            log.warn("⚠️ {} trabajos de miniaturas atascados vuelven a la cola", atascados);
+        }
+
+        int libres = executor.getQueue().remainingCapacity();
+        if (libres == 0) {
+            return;
+        }
+        trabajoMiniaturaRepository.findIdsByEstado(EstadoTrabajo.PENDIENTE, PageRequest.of(0, libres))
+                .forEach(this::despachar);
+    }
+
+    /**
+     * Objeto de la variante si ya fue generada
+     *
+     * @param hash     SHA-256 del blob original
+     * @param variante Variante pedida
+     * @return JPEG en el almacén, vacío mientras esté pendiente
+     */
+    public Optional<EvidenceStore.Objeto> buscarVariante(String hash, Variante variante) throws IOException {
+        return evidenceStore.stat(almacenEvidenciaService.claveVariante(hash, variante.getNombre()));
+    }
+
+    private void despachar(Long trabajoId) {
+        try {
+            executor.execute(() -> procesar(trabajoId));
+        } catch (RejectedExecutionException e) {
+            // Pool lleno: el trabajo sigue PENDIENTE y lo retoma el barrido
+            log.debug("Cola de miniaturas llena, trabajo {} queda pendiente", trabajoId);
+        }
+    }
+
+    void procesar(Long trabajoId) {
+        // Otro worker (o un despacho repetido) ya lo tomó
+        if (trabajoMiniaturaRepository.tomar(trabajoId, LocalDateTime.now()) == 0) {
+            return;
+        }
+        TrabajoMiniatura trabajo = trabajoMiniaturaRepository.findById(trabajoId).orElse(null);
+        if (trabajo == null) {
+            return;
+        }
+
+        long inicio = System.currentTimeMillis();
+        try {
+            generar(trabajo.getHash());
+            trabajoMiniaturaRepository.finalizar(trabajoId, EstadoTrabajo.COMPLETADO, null, LocalDateTime.now());
+
+            log.info("🖼️ Miniaturas de {} generadas en {} ms", trabajo.getHash(), System.currentTimeMillis() - inicio);
+
+        } catch (Exception e) {
+            EstadoTrabajo estado = trabajo.getIntentos() >= maxIntentos ? EstadoTrabajo.FALLIDO : EstadoTrabajo.PENDIENTE;
+            String mensaje = String.valueOf(e.getMessage());
+            trabajoMiniaturaRepository.finalizar(trabajoId, estado,
+                    mensaje.substring(0, Math.min(mensaje.length(), 500)), LocalDateTime.now());
+
+            log.warn("⚠️ Error al generar miniaturas de {} (intento {}): {}",
+                    trabajo.getHash(), trabajo.getIntentos(), e.getMessage());
+        }
+    }
+
+    private void generar(String hash) throws IOException {
+        BufferedImage original = leer(almacenEvidenciaService.claveBlob(hash));
+
+        for (Variante variante : Variante.values()) {
+            BufferedImage reducida = reducir(original, variante.getLadoMaximo());
+
+            // Las variantes pesan pocos KB: se arman en memoria y se suben de una vez
+            byte[] jpeg = escribirJpeg(reducida);
+            evidenceStore.put(almacenEvidenciaService.claveVariante(hash, variante.getNombre()),
+                    new ByteArrayResource(jpeg), jpeg.length, "image/jpeg");
+        }
+    }
+
+    // Decodificar con submuestreo: una foto de 12 MP no se carga completa en memoria
+    private BufferedImage leer(String clave) throws IOException {
+        Optional<Path> local = evidenceStore.rutaLocal(clave).filter(Files::isRegularFile);
+        try (InputStream remoto = local.isPresent() ? null : evidenceStore.get(clave);
+             ImageInputStream entrada = ImageIO.createImageInputStream(
+                     local.isPresent() ? local.get().toFile() : remoto)) {
+            Iterator<ImageReader> lectores = entrada != null ? ImageIO.getImageReaders(entrada) : null;
+            if (lectores == null || !lectores.hasNext()) {
+                throw new IOException("Formato de imagen no soportado");
+            }
+
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                int ladoMayor = Math.max(lector.getWidth(0), lector.getHeight(0));
+                int paso = Math.max(1, ladoMayor / LADO_DECODIFICACION);
+
+                ImageReadParam parametros = lector.getDefaultReadParam();
+                parametros.setSourceSubsampling(paso, paso, 0, 0);
+                return lector.read(0, parametros);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    // Reducción por pasos de la mitad (bilineal) para no perder calidad con factores grandes
+    private BufferedImage reducir(BufferedImage imagen, int ladoMaximo) {
+        int ancho = imagen.getWidth();
+        int alto = imagen.getHeight();
+        double escala = Math.min(1.0, (double) ladoMaximo / Math.max(ancho, alto));
+        int anchoFinal = Math.max(1, (int) Math.round(ancho * escala));
+        int altoFinal = Math.max(1, (int) Math.round(alto * escala));
+
+        BufferedImage actual = imagen;
+        do {
+            ancho = Math.max(anchoFinal, ancho / 2);
+            alto = Math.max(altoFinal, alto / 2);
+            actual = redimensionar(actual, ancho, alto);
+        } while (ancho > anchoFinal || alto > altoFinal);
+
+        return actual;
+    }
+
+    private BufferedImage redimensionar(BufferedImage imagen, int ancho, int alto) {
+        // JPEG no tiene transparencia: fondo blanco para PNG
+        BufferedImage destino = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = destino.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, ancho, alto);
+            g.drawImage(imagen, 0, 0, ancho, alto, null);
+        } finally {
+            g.dispose();
+        }
+        return destino;
+    }
+
+    private byte[] escribirJpeg(BufferedImage imagen) throws IOException {
+        ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream salida = ImageIO.createImageOutputStream(bytes)) {
+            ImageWriteParam parametros = escritor.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(calidadJpeg);
+
+            escritor.setOutput(salida);
+            escritor.write(null, new IIOImage(imagen, null, null), parametros);
+        } finally {
+            escritor.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
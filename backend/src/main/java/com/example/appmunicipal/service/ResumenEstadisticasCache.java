@@ -0,0 +1,45 @@
+package com.example.appmunicipal.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Resumen de conteos por estado para /api/denuncias/estadisticas.
+ * Guarda un único snapshot de tamaño fijo durante el mismo tiempo que el
+ * Cache-Control del endpoint (60 segundos).
+ */
+@Component
+public class ResumenEstadisticasCache {
+
+    private static final long TTL_MS = 60_000;
+
+    private record Snapshot(Map<String, Long> resumen, long calculadoEn) {
+    }
+
+    private volatile Snapshot snapshot;
+
+    public Map<String, Long> obtener(Supplier<Map<String, Long>> calculo) {
+        Snapshot actual = snapshot;
+        long ahora = System.currentTimeMillis();
+
+        if (actual == null || ahora - actual.calculadoEn() > TTL_MS) {
+            actual = new Snapshot(Map.copyOf(calculo.get()), ahora);
+            snapshot = actual;
+        }
+
+        return actual.resumen();
+    }
+
+    public void invalidar() {
+        snapshot = null;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDenunciaCambiada(DenunciaCambiadaEvent evento) {
+        invalidar();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.domain.TokenRevocado;
+import com.example.appmunicipal.repository.TokenRevocadoRepository;
+import com.example.appmunicipal.security.UsuarioAutenticado;
+import com.example.appmunicipal.util.JwtUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revocación de tokens JWT sin consultar la base de datos en cada request.
+ * Las revocaciones se guardan en tokens_revocados y se mantienen en memoria:
+ * - jti revocados (logout), hasta que vence el token
+ * - corte por usuario (desactivación): se rechazan sus tokens emitidos hasta ese momento
+ *
+ * JwtAuthenticationFilter consulta estaRevocado() en O(1). Al iniciar se cargan
+ * las revocaciones vigentes y cada pocos segundos se incorporan las registradas
+ * por otras instancias; lo vencido se descarta de memoria y de la tabla.
+ */
+@Service
+@Slf4j
+public class RevocacionTokenService {
+
+    /**
+     * Corte de un usuario: tokens emitidos hasta 'corte' quedan revocados
+     */
+    private record Corte(Instant corte, Instant expiracion) {
+
+        Corte combinar(Corte otro) {
+            return new Corte(
+                    corte.isAfter(otro.corte) ? corte : otro.corte,
+                    expiracion.isAfter(otro.expiracion) ? expiracion : otro.expiracion);
+        }
+    }
+
+    private final TokenRevocadoRepository tokenRevocadoRepository;
+    private final JwtUtil jwtUtil;
+
+    // jti -> expiración del token
+    private final Map<String, Instant> jtisRevocados = new ConcurrentHashMap<>();
+    private final Map<Long, Corte> cortesPorUsuario = new ConcurrentHashMap<>();
+
+    public RevocacionTokenService(TokenRevocadoRepository tokenRevocadoRepository, JwtUtil jwtUtil) {
+        this.tokenRevocadoRepository = tokenRevocadoRepository;
+        this.jwtUtil = jwtUtil;
+    }
+
+    /**
+     * Verificar si un token ya verificado fue revocado (solo memoria)
+     */
+    public boolean estaRevocado(UsuarioAutenticado usuario) {
+        if (usuario.jti() != null && jtisRevocados.containsKey(usuario.jti())) {
+            return true;
+        }
+        Corte corte = usuario.usuarioId() != null ? cortesPorUsuario.get(usuario.usuarioId()) : null;
+        // "iat" tiene precisión de segundos: un token emitido en el mismo segundo del corte
+        // también queda revocado
+        return corte != null && usuario.emitido() != null
+                && !usuario.emitido().isAfter(corte.corte());
+    }
+
+    /**
+     * Revocar un token puntual (logout). Los tokens sin jti (emitidos antes de
+     * que existiera) solo se pueden revocar junto con el resto de las sesiones
+     * del usuario.
+     *
+     * @param usuario Token verificado
+     * @param motivo  Motivo (LOGOUT)
+     */
+    @Transactional
+    public void revocarToken(UsuarioAutenticado usuario, String motivo) {
+        if (usuario.jti() == null) {
+            revocarUsuario(usuario.usuarioId(), motivo);
+            return;
+        }
+
+        Instant expiracion = usuario.expiracion() != null
+                ? usuario.expiracion()
+                : Instant.now().plus(jwtUtil.getValidezToken());
+
+        TokenRevocado revocado = new TokenRevocado();
+        revocado.setJti(usuario.jti());
+        revocado.setUsuarioId(usuario.usuarioId());
+        revocado.setFechaRevocacion(LocalDateTime.now());
+        revocado.setExpiracion(aLocal(expiracion));
+        revocado.setMotivo(motivo);
+        tokenRevocadoRepository.save(revocado);
+
+        jtisRevocados.put(usuario.jti(), expiracion);
+        log.info("🔒 Token {} del usuario {} revocado ({})", usuario.jti(), usuario.usuarioId(), motivo);
+    }
+
+    /**
+     * Revocar todos los tokens emitidos hasta ahora para un usuario
+     *
+     * @param usuarioId ID del usuario
+     * @param motivo    Motivo (DESACTIVADO, LOGOUT)
+     */
+    @Transactional
+    public void revocarUsuario(Long usuarioId, String motivo) {
+        Instant ahora = Instant.now();
+        // Ningún token emitido antes del corte vive más que la validez de un token
+        Instant expiracion = ahora.plus(jwtUtil.getValidezToken());
+
+        TokenRevocado revocado = new TokenRevocado();
+        revocado.setUsuarioId(usuarioId);
+        revocado.setFechaRevocacion(aLocal(ahora));
+        revocado.setExpiracion(aLocal(expiracion));
+        revocado.setMotivo(motivo);
+        tokenRevocadoRepository.save(revocado);
+
+        cortesPorUsuario.merge(usuarioId, new Corte(ahora, expiracion), Corte::combinar);
+        log.info("🔒 Tokens del usuario {} revocados ({})", usuarioId, motivo);
+    }
+
+    /**
+     * Cargar las revocaciones vigentes al iniciar y, periódicamente, incorporar
+     * las de otras instancias y descartar las vencidas. Solo se agregan entradas:
+     * una revocación local nunca se pierde por una recarga concurrente.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.seguridad.revocacion.sincronizacion-ms:30000}",
+            fixedDelayString = "${app.seguridad.revocacion.sincronizacion-ms:30000}")
+    public void sincronizar() {
+        Instant ahora = Instant.now();
+        List<TokenRevocado> vigentes = tokenRevocadoRepository.findByExpiracionAfter(aLocal(ahora));
+
+        for (TokenRevocado revocado : vigentes) {
+            Instant expiracion = aInstant(revocado.getExpiracion());
+            if (revocado.getJti() != null) {
+                jtisRevocados.put(revocado.getJti(), expiracion);
+            } else {
+                cortesPorUsuario.merge(revocado.getUsuarioId(),
+                        new Corte(aInstant(revocado.getFechaRevocacion()), expiracion), Corte::combinar);
+            }
+        }
+
+        jtisRevocados.values().removeIf(expiracion -> expiracion.isBefore(ahora));
+        cortesPorUsuario.values().removeIf(corte -> corte.expiracion().isBefore(ahora));
+
+        log.debug("Revocaciones en memoria: {} tokens, {} usuarios", jtisRevocados.size(), cortesPorUsuario.size());
+    }
+
+    /**
+     * Eliminar de la tabla las revocaciones cuyos tokens ya vencieron
+     */
+    @Scheduled(cron = "${app.seguridad.revocacion.limpieza-cron:0 0 * * * *}")
+    public void limpiarVencidas() {
+        int eliminadas = tokenRevocadoRepository.eliminarVencidas(LocalDateTime.now());
+        if (eliminadas > 0) {
+            log.info("🧹 {} revocaciones de tokens vencidas eliminadas", eliminadas);
+        }
+    }
+
+    public Map<String, Object> metricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("tokensRevocados", jtisRevocados.size());
+        metricas.put("usuariosRevocados", cortesPorUsuario.size());
+        return metricas;
+    }
+
+    private LocalDateTime aLocal(Instant instante) {
+        return LocalDateTime.ofInstant(instante, ZoneId.systemDefault());
+    }
+
+    private Instant aInstant(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.domain.Denuncia;
+import com.example.appmunicipal.security.UsuarioAutenticado;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Feed SSE de denuncias creadas, modificadas o eliminadas para la consola de
+ * funcionarios (reemplaza el polling de los listados).
+ *
+ * - Los cambios llegan por DenunciaCambiadaEvent después del commit y se
+ *   reparten solo a los suscriptores cuyo filtro (estado, comuna) coincide con
+ *   el estado nuevo o el anterior: una denuncia que sale de PENDIENTE también
+ *   llega a quien filtra por PENDIENTE, para que la quite de su listado.
+ * - Cada suscriptor tiene un buffer acotado: si el cliente es lento se descarta
+ *   el evento más antiguo y se le envía un evento "resync" para que recargue
+ *   el listado.
+ * - No hay historial para reenviar: si el cliente reconecta con Last-Event-ID
+ *   y hubo eventos mientras estaba desconectado (o el servidor se reinició), se
+ *   le envía "resync" al conectar en lugar de los eventos perdidos.
+ * - Cada conexión la atiende un hilo virtual que espera en su buffer y envía
+ *   un heartbeat cuando no hay eventos, así miles de consolas inactivas no
+ *   ocupan hilos de Tomcat ni de plataforma.
+ * - El JWT solo se verifica al conectar: antes de cada envío (y al menos en
+ *   cada heartbeat) se revisa que el token no esté revocado ni vencido, y si lo
+ *   está se cierra la conexión.
+ */
+@Service
+@Slf4j
+public class StreamDenunciaService {
+
+    /**
+     * Evento enviado al cliente (solo datos simples; el detalle se pide por id)
+     */
+    public record CambioDenuncia(long secuencia, Long denunciaId, String tipo, String estado, String estadoAnterior,
+                                 String comuna) {
+    }
+
+    /**
+     * Aviso de que el cliente perdió eventos y debe recargar el listado
+     */
+    public record Resync(long secuencia) {
+    }
+
+    /**
+     * La cantidad de conexiones abiertas llegó al máximo configurado
+     */
+    public static class CapacidadExcedidaException extends RuntimeException {
+
+        public CapacidadExcedidaException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Suscriptor {
+        private final SseEmitter emitter;
+        private final UsuarioAutenticado usuario;
+        private final Set<String> estados;
+        private final String comuna;
+        private final BlockingQueue<CambioDenuncia> buffer;
+        // Se perdieron eventos (buffer lleno o reconexión): el próximo envío es un resync
+        private final AtomicBoolean desincronizado;
+        private volatile Thread hilo;
+
+        private Suscriptor(SseEmitter emitter, UsuarioAutenticado usuario, Set<String> estados, String comuna,
+                           int capacidadBuffer, boolean desincronizado) {
+            this.emitter = emitter;
+            this.usuario = usuario;
+            this.estados = estados;
+            this.comuna = comuna;
+            this.buffer = new ArrayBlockingQueue<>(capacidadBuffer);
+            this.desincronizado = new AtomicBoolean(desincronizado);
+        }
+
+        private boolean acepta(CambioDenuncia cambio) {
+            return (estados.isEmpty() || estados.contains(cambio.estado())
+                    || (cambio.estadoAnterior() != null && estados.contains(cambio.estadoAnterior())))
+                    && (comuna == null || comuna.equalsIgnoreCase(cambio.comuna()));
+        }
+    }
+
+    private final RevocacionTokenService revocacionTokenService;
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final long timeoutMs;
+    private final long heartbeatMs;
+    private final int capacidadBuffer;
+    private final int maxSuscriptores;
+
+    private final AtomicLong secuencia = new AtomicLong();
+    private final AtomicLong enviados = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+
+    public StreamDenunciaService(RevocacionTokenService revocacionTokenService,
+                                 @Value("${app.denuncias.stream.timeout-ms:1800000}") long timeoutMs,
+                                 @Value("${app.denuncias.stream.heartbeat-segundos:25}") long heartbeatSegundos,
+                                 @Value("${app.denuncias.stream.buffer:100}") int capacidadBuffer,
+                                 @Value("${app.denuncias.stream.max-suscriptores:5000}") int maxSuscriptores) {
+        this.revocacionTokenService = revocacionTokenService;
+        this.timeoutMs = timeoutMs;
+        this.heartbeatMs = heartbeatSegundos * 1000;
+        this.capacidadBuffer = capacidadBuffer;
+        this.maxSuscriptores = maxSuscriptores;
+    }
+
+    /**
+     * Abrir una suscripción
+     *
+     * @param usuario         Token verificado del funcionario; la conexión se cierra
+     *                        cuando se revoca o vence
+     * @param estado          Estados separados por coma (opcional)
+     * @param comuna          Comuna (opcional)
+     * @param ultimoEventoId  Cabecera Last-Event-ID de una reconexión (opcional)
+     * @return Emitter que el controller devuelve como respuesta
+     */
+    public SseEmitter suscribir(UsuarioAutenticado usuario, String estado, String comuna, String ultimoEventoId) {
+        if (usuario == null) {
+            throw new RuntimeException("El feed de denuncias requiere un usuario autenticado");
+        }
+        Set<String> estados = parsearEstados(estado);
+        if (suscriptores.size() >= maxSuscriptores) {
+            throw new CapacidadExcedidaException("Se alcanzó el máximo de conexiones al feed de denuncias");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        // Reconexión: si la secuencia avanzó desde el último evento recibido, algo se perdió
+        boolean perdioEventos = ultimoEventoId != null && !ultimoEventoId.isBlank()
+                && !ultimoEventoId.trim().equals(String.valueOf(secuencia.get()));
+        Suscriptor suscriptor = new Suscriptor(emitter, usuario, estados,
+                comuna != null && !comuna.isBlank() ? comuna.trim() : null, capacidadBuffer, perdioEventos);
+
+        emitter.onCompletion(() -> cerrar(suscriptor));
+        emitter.onTimeout(() -> cerrar(suscriptor));
+        emitter.onError(e -> cerrar(suscriptor));
+
+        suscriptores.add(suscriptor);
+        suscriptor.hilo = Thread.ofVirtual().name("sse-denuncias")
+                .start(() -> atender(suscriptor));
+
+        log.info("📡 Nueva suscripción al feed de denuncias (estados: {}, comuna: {}). Activas: {}",
+                estados.isEmpty() ? "todos" : estados, suscriptor.comuna, suscriptores.size());
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDenunciaCambiada(DenunciaCambiadaEvent evento) {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+
+        CambioDenuncia cambio = new CambioDenuncia(secuencia.incrementAndGet(), evento.denunciaId(),
+                evento.tipo().name(), evento.estado(), evento.estadoAnterior(), evento.comuna());
+
+        for (Suscriptor suscriptor : suscriptores) {
+            if (suscriptor.acepta(cambio)) {
+                // Buffer lleno: se descarta el más antiguo para no bloquear al que publica
+                while (!suscriptor.buffer.offer(cambio)) {
+                    if (suscriptor.buffer.poll() != null) {
+                        descartados.incrementAndGet();
+                        suscriptor.desincronizado.set(true);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Conexiones abiertas y eventos enviados o descartados
+     */
+    public Map<String, Object> metricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("suscriptores", suscriptores.size());
+        metricas.put("maxSuscriptores", maxSuscriptores);
+        metricas.put("eventos", secuencia.get());
+        metricas.put("enviados", enviados.get());
+        metricas.put("descartados", descartados.get());
+        metricas.put("resyncs", resyncs.get());
+        return metricas;
+    }
+
+    @PreDestroy
+    public void cerrarTodos() {
+        suscriptores.forEach(suscriptor -> suscriptor.emitter.complete());
+        suscriptores.forEach(this::cerrar);
+    }
+
+    // Hilo virtual de cada conexión: envía lo que llega al buffer y un heartbeat si no llega nada
+    private void atender(Suscriptor suscriptor) {
+        try {
+            suscriptor.emitter.send(SseEmitter.event().comment("conectado"));
+            while (suscriptores.contains(suscriptor)) {
+                if (!sesionVigente(suscriptor)) {
+                    log.info("🔒 Token revocado o vencido, se cierra la suscripción al feed de {}",
+                            suscriptor.usuario.email());
+                    suscriptor.emitter.complete();
+                    return;
+                }
+                if (suscriptor.desincronizado.getAndSet(false)) {
+                    enviarResync(suscriptor);
+                }
+                // Se despierta a más tardar cuando vence el token, aunque falte para el heartbeat
+                CambioDenuncia cambio = suscriptor.buffer.poll(esperaMaxima(suscriptor), TimeUnit.MILLISECONDS);
+                if (cambio == null) {
+                    if (!sesionVigente(suscriptor)) {
+                        continue;
+                    }
+                    suscriptor.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+                suscriptor.emitter.send(SseEmitter.event()
+                        .id(String.valueOf(cambio.secuencia()))
+                        .name("denuncia")
+                        .data(cambio));
+                enviados.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado: el emitter ya no acepta envíos
+            log.debug("Suscriptor del feed desconectado: {}", e.getMessage());
+            suscriptor.emitter.completeWithError(e);
+        } finally {
+            suscriptores.remove(suscriptor);
+        }
+    }
+
+    private boolean sesionVigente(Suscriptor suscriptor) {
+        UsuarioAutenticado usuario = suscriptor.usuario;
+        return !revocacionTokenService.estaRevocado(usuario)
+                && (usuario.expiracion() == null || Instant.now().isBefore(usuario.expiracion()));
+    }
+
+    private long esperaMaxima(Suscriptor suscriptor) {
+        Instant expiracion = suscriptor.usuario.expiracion();
+        if (expiracion == null) {
+            return heartbeatMs;
+        }
+        return Math.max(1, Math.min(heartbeatMs, Duration.between(Instant.now(), expiracion).toMillis()));
+    }
+
+    // El id es la secuencia actual, así el Last-Event-ID de una reconexión no repite el resync
+    private void enviarResync(Suscriptor suscriptor) throws IOException {
+        long actual = secuencia.get();
+        suscriptor.emitter.send(SseEmitter.event()
+                .id(String.valueOf(actual))
+                .name("resync")
+                .data(new Resync(actual)));
+        resyncs.incrementAndGet();
+    }
+
+    private void cerrar(Suscriptor suscriptor) {
+        if (suscriptores.remove(suscriptor)) {
+            log.debug("Suscripción al feed cerrada. Activas: {}", suscriptores.size());
+        }
+        Thread hilo = suscriptor.hilo;
+        if (hilo != null && hilo != Thread.currentThread()) {
+            hilo.interrupt();
+        }
+    }
+
+    private Set<String> parsearEstados(String estado) {
+        if (estado == null || estado.isBlank()) {
+            return Set.of();
+        }
+        try {
+            return Arrays.stream(estado.split(","))
+                    .map(String::trim)
+                    .filter(valor -> !valor.isEmpty())
+                    .map(valor -> Denuncia.EstadoDenuncia.valueOf(valor.toUpperCase()).name())
+                    .collect(Collectors.toUnmodifiableSet());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Estado inválido: " + estado +
+                    ". Estados válidos: PENDIENTE, EN_REVISION, VALIDADA, RECHAZADA, CERRADA");
+        }
+    }
+}
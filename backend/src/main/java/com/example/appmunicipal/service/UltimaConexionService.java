@@ -0,0 +1,72 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.repository.UsuarioRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Última conexión de los usuarios escrita en lote.
+ * El login solo anota el instante en memoria; cada pocos segundos se guardan
+ * todas las conexiones pendientes con un UPDATE por segundo (todos los usuarios
+ * que entraron en ese segundo van en el mismo IN). Varios logins del mismo
+ * usuario entre dos escrituras quedan en uno solo.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UltimaConexionService {
+
+    private final UsuarioRepository usuarioRepository;
+    private final Map<Long, LocalDateTime> pendientes = new ConcurrentHashMap<>();
+
+    /**
+     * Anotar una conexión; se guarda en la próxima escritura
+     */
+    public void registrar(Long usuarioId, LocalDateTime fecha) {
+        pendientes.merge(usuarioId, fecha.truncatedTo(ChronoUnit.SECONDS),
+                (anterior, nueva) -> nueva.isAfter(anterior) ? nueva : anterior);
+    }
+
+    @Scheduled(initialDelayString = "${app.seguridad.login.ultima-conexion-ms:10000}",
+            fixedDelayString = "${app.seguridad.login.ultima-conexion-ms:10000}")
+    public void escribirPendientes() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        // Se quitan solo las entradas leídas: un login posterior queda para la próxima
+        Map<Long, LocalDateTime> lote = new HashMap<>(pendientes);
+        lote.forEach(pendientes::remove);
+
+        Map<LocalDateTime, List<Long>> porFecha = new TreeMap<>();
+        lote.forEach((usuarioId, fecha) -> porFecha.computeIfAbsent(fecha, f -> new ArrayList<>()).add(usuarioId));
+
+        int actualizados = 0;
+        for (Map.Entry<LocalDateTime, List<Long>> grupo : porFecha.entrySet()) {
+            try {
+                actualizados += usuarioRepository.actualizarUltimaConexion(grupo.getValue(), grupo.getKey());
+            } catch (RuntimeException e) {
+                log.warn("⚠️ No se pudo guardar la última conexión, se reintenta: {}", e.getMessage());
+                grupo.getValue().forEach(usuarioId -> registrar(usuarioId, grupo.getKey()));
+            }
+        }
+        log.debug("🕒 Última conexión guardada: {} usuarios en {} UPDATE", actualizados, porFecha.size());
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        escribirPendientes();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.appmunicipal.service;
+
+/**
+ * Evento publicado por UsuarioService cuando se registra o desactiva un usuario.
+ * Los listeners lo reciben después del commit, así un cache no vuelve a cargar
+ * el dato anterior desde una transacción que todavía no termina.
+ */
+public record UsuarioCambiadoEvent(String email) {
+}
@@ -8,10 +8,13 @@ import com.example.appmunicipal.DTO.RegistroRequest;
 import com.example.appmunicipal.DTO.UsuarioResponse;
 import com.example.appmunicipal.repository.RolRepository;
 import com.example.appmunicipal.repository.UsuarioRepository;
+import com.example.appmunicipal.security.UsuarioAutenticado;
+import com.example.appmunicipal.security.VerificadorContrasenas;
 import com.example.appmunicipal.util.JwtUtil;
 import com.example.appmunicipal.util.RutUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,6 +33,10 @@ public class UsuarioService {
     private final UsuarioRepository usuarioRepository;
     private final RolRepository rolRepository;
     private final JwtUtil jwtUtil;
+    private final RevocacionTokenService revocacionTokenService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UltimaConexionService ultimaConexionService;
+    private final VerificadorContrasenas verificadorContrasenas;
     private final RutUtil rutUtil;
     // 🔒 PasswordEncoder para encriptar contraseñas
     private final PasswordEncoder passwordEncoder;
@@ -36,19 +44,23 @@ public class UsuarioService {
 
     /**
      * Login universal - Retorna solo token y email
+     * La contraseña se verifica en el pool de BCrypt (VerificadorContrasenas): el
+     * resultado se completa en ese pool y el hilo de la petición queda libre.
+     *
+     * @throws VerificadorContrasenas.SaturadoException si la cola de login está llena
      */
-    @Transactional
-    public LoginResponse login(LoginRequest request) {
+    public CompletableFuture<LoginResponse> login(LoginRequest request) {
         log.info("🔐 Intento de login para: {}", request.getEmail());
 
         try {
             // Validar campos requeridos
             if (request.getEmail() == null || request.getEmail().trim().isEmpty()) {
-                return new LoginResponse(false, "El email es requerido", null, null);
+                return CompletableFuture.completedFuture(new LoginResponse(false, "El email es requerido", null, null));
             }
 
             if (request.getPassword() == null || request.getPassword().trim().isEmpty()) {
-                return new LoginResponse(false, "La contraseña es requerida", null, null);
+                return CompletableFuture.completedFuture(
+                        new LoginResponse(false, "La contraseña es requerida", null, null));
             }
 
             // Buscar usuario por email
@@ -57,18 +69,42 @@ public class UsuarioService {
 
             // Verificar que el usuario esté activo
             if (!usuario.getActivo()) {
-                return new LoginResponse(false, "Tu cuenta está inactiva. Contacta al administrador", null, null);
+                return CompletableFuture.completedFuture(
+                        new LoginResponse(false, "Tu cuenta está inactiva. Contacta al administrador", null, null));
             }
 
-            // 🔒 Verificar contraseña con BCrypt
-            if (!passwordEncoder.matches(request.getPassword(), usuario.getPassword())) {
-                log.warn("❌ Intento de login fallido - contraseña incorrecta para: {}", request.getEmail());
+            // 🔒 Verificar contraseña con BCrypt (pool acotado)
+            return verificadorContrasenas.verificar(request.getPassword(), usuario.getPassword())
+                    .thenApply(resultado -> completarLogin(usuario, resultado));
+
+        } catch (VerificadorContrasenas.SaturadoException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.error("❌ Error en login: {}", e.getMessage());
+            return CompletableFuture.completedFuture(new LoginResponse(false, e.getMessage(), null, null));
+        }
+    }
+
+    private LoginResponse completarLogin(Usuario usuario, VerificadorContrasenas.Resultado resultado) {
+        try {
+            if (!resultado.valida()) {
+                log.warn("❌ Intento de login fallido - contraseña incorrecta para: {}", usuario.getEmail());
                 return new LoginResponse(false, "Contraseña incorrecta", null, null);
             }
 
-            // Actualizar última conexión
-            usuario.setUltimaConexion(LocalDateTime.now());
-            usuarioRepository.save(usuario);
+            // Hash con un costo BCrypt anterior: se reemplaza por uno con el costo actual
+            // Solo si el hash sigue siendo el verificado: un cambio de contraseña concurrente gana
+            if (resultado.nuevoHash() != null) {
+                if (usuarioRepository.actualizarPassword(usuario.getId(), usuario.getPassword(),
+                        resultado.nuevoHash()) > 0) {
+                    log.info("🔑 Contraseña rehasheada con el costo actual para: {}", usuario.getEmail());
+                } else {
+                    log.info("🔑 Rehash omitido, la contraseña cambió durante el login de: {}", usuario.getEmail());
+                }
+            }
+
+            // Actualizar última conexión (se escribe en lote)
+            ultimaConexionService.registrar(usuario.getId(), LocalDateTime.now());
 
             // Generar token JWT
             String token = jwtUtil.generarToken(
@@ -178,6 +214,7 @@ public class UsuarioService {
 
         // Guardar
         Usuario guardado = usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioCambiadoEvent(guardado.getEmail()));
 
         log.info("✅ Registro exitoso [{}]: {}", rolNombre, guardado.getUsername());
 
@@ -233,16 +270,8 @@ public class UsuarioService {
         }
 
         try {
-            boolean valido = jwtUtil.validarToken(token);
-
-            if (valido) {
-                Long usuarioId = jwtUtil.extraerUsuarioId(token);
-                return usuarioRepository.findById(usuarioId)
-                        .map(Usuario::getActivo)
-                        .orElse(false);
-            }
-
-            return false;
+            // Una sola verificación de la firma; luego se confirma que el usuario siga activo
+            return validarSesion(jwtUtil.verificar(token));
 
         } catch (Exception e) {
             log.error("Error al validar token: {}", e.getMessage());
@@ -250,6 +279,19 @@ public class UsuarioService {
         }
     }
 
+    /**
+     * Validar la sesión de un token ya verificado (JwtAuthenticationFilter):
+     * el usuario debe existir y seguir activo
+     */
+    public boolean validarSesion(UsuarioAutenticado usuario) {
+        if (usuario == null || usuario.usuarioId() == null || revocacionTokenService.estaRevocado(usuario)) {
+            return false;
+        }
+        return usuarioRepository.findById(usuario.usuarioId())
+                .map(Usuario::getActivo)
+                .orElse(false);
+    }
+
     public Long obtenerUsuarioIdDesdeToken(String token) {
         try {
             return jwtUtil.extraerUsuarioId(token);
@@ -262,6 +304,35 @@ public class UsuarioService {
         return jwtUtil.obtenerInfoToken(token);
     }
 
+    public java.util.Map<String, Object> obtenerInfoToken(UsuarioAutenticado usuario) {
+        return jwtUtil.obtenerInfoToken(usuario);
+    }
+
+    /**
+     * Cerrar sesión: el token deja de ser aceptado aunque no haya expirado
+     */
+    public void cerrarSesion(UsuarioAutenticado usuario) {
+        revocacionTokenService.revocarToken(usuario, "LOGOUT");
+        log.info("👋 Sesión cerrada para: {}", usuario.email());
+    }
+
+    /**
+     * Desactivar un usuario: no puede iniciar sesión y sus tokens vigentes se revocan
+     */
+    @Transactional
+    public UsuarioResponse desactivarUsuario(Long id) {
+        Usuario usuario = usuarioRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con ID: " + id));
+
+        usuario.setActivo(false);
+        usuarioRepository.save(usuario);
+        revocacionTokenService.revocarUsuario(id, "DESACTIVADO");
+        eventPublisher.publishEvent(new UsuarioCambiadoEvent(usuario.getEmail()));
+
+        log.info("🚫 Usuario desactivado: {} (ID: {})", usuario.getEmail(), id);
+        return new UsuarioResponse(usuario);
+    }
+
     @Transactional(readOnly = true)
     public List<UsuarioResponse> listarUsuarios() {
         log.info("📋 Listando todos los usuarios");
@@ -0,0 +1,111 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.domain.Rol;
+import com.example.appmunicipal.domain.Usuario;
+import com.example.appmunicipal.repository.UsuarioRepository;
+import com.example.appmunicipal.util.CacheAcotado;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cache cercano de datos básicos de usuario por email (LRU aproximado con TTL).
+ * Casi todas las operaciones de denuncias empiezan buscando al usuario por email
+ * solo para revisar su rol o si está activo: con el snapshot esa verificación no
+ * va a la base de datos, y la entidad se referencia con getReferenceById.
+ *
+ * La entrada se invalida con UsuarioCambiadoEvent después del commit del registro
+ * o la desactivación. Una carga que empezó antes de esa invalidación no se guarda
+ * (se compara la generación del cache), así no vuelve el snapshot anterior. El TTL
+ * acota cuánto tarda otra instancia en ver el cambio.
+ */
+@Component
+@Slf4j
+public class UsuarioSnapshotCache {
+
+    /**
+     * Datos del usuario que se necesitan para autorizar y registrar acciones
+     */
+    public record UsuarioSnapshot(Long id, String email, String username, String nombre, String apellido,
+                                  String rol, boolean activo) {
+
+        public boolean esFuncionario() {
+            return Rol.FUNCIONARIO.equals(rol);
+        }
+    }
+
+    private final UsuarioRepository usuarioRepository;
+    private final long ttlMs;
+    private final CacheAcotado<String, UsuarioSnapshot> usuarios;
+
+    public UsuarioSnapshotCache(UsuarioRepository usuarioRepository,
+                                @Value("${app.usuarios.cache.ttl-segundos:60}") long ttlSegundos,
+                                @Value("${app.usuarios.cache.max-entradas:5000}") int maxEntradas) {
+        this.usuarioRepository = usuarioRepository;
+        this.ttlMs = ttlSegundos * 1000;
+        this.usuarios = new CacheAcotado<>(maxEntradas);
+    }
+
+    /**
+     * Snapshot del usuario con ese email; solo se consulta la base de datos si no
+     * está en cache o ya venció. Los emails inexistentes no se guardan.
+     */
+    public Optional<UsuarioSnapshot> obtener(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+
+        String clave = clave(email);
+        UsuarioSnapshot enCache = usuarios.obtener(clave);
+        if (enCache != null) {
+            return Optional.of(enCache);
+        }
+
+        // La generación se lee antes de ir a la base de datos
+        long generacion = usuarios.generacion();
+        Optional<UsuarioSnapshot> snapshot = usuarioRepository.findByEmail(email).map(this::aSnapshot);
+        snapshot.ifPresent(s -> usuarios.guardar(clave, s, System.currentTimeMillis() + ttlMs, generacion));
+        return snapshot;
+    }
+
+    /**
+     * Descartar el snapshot de un usuario (registro, desactivación)
+     */
+    public void invalidar(String email) {
+        if (email == null) {
+            return;
+        }
+        usuarios.invalidar(clave(email));
+        log.debug("♻️ Snapshot de usuario invalidado: {}", email);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUsuarioCambiado(UsuarioCambiadoEvent evento) {
+        invalidar(evento.email());
+    }
+
+    /**
+     * Entradas, aciertos, fallos y tasa de aciertos desde el arranque
+     */
+    public Map<String, Object> metricas() {
+        return usuarios.metricas();
+    }
+
+    // La columna email de MySQL no distingue mayúsculas: "Juan@x.cl" y "juan@x.cl" son
+    // el mismo usuario y deben compartir la entrada, si no invalidar una deja viva la otra
+    private String clave(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private UsuarioSnapshot aSnapshot(Usuario usuario) {
+        return new UsuarioSnapshot(usuario.getId(), usuario.getEmail(), usuario.getUsername(),
+                usuario.getNombre(), usuario.getApellido(), usuario.getRol().getNombre(),
+                Boolean.TRUE.equals(usuario.getActivo()));
+    }
+}
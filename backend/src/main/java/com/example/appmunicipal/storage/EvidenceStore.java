@@ -0,0 +1,93 @@
+package com.example.appmunicipal.storage;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Almacenamiento de los archivos de evidencia (blobs, miniaturas y archivos antiguos).
+ * Las claves son rutas relativas separadas por "/" (ab/cd/<sha256>,
+ * ab/cd/<sha256>-thumb.jpg, evidencia-123.jpg). Todas las operaciones son por
+ * streaming: ningún archivo se carga completo en memoria.
+ *
+ * Implementaciones (app.evidencias.almacen.tipo):
+ * - filesystem: directorio UPLOAD_PATH (por defecto)
+ * - s3: bucket compatible con la API de S3 (AWS, MinIO)
+ */
+public interface EvidenceStore {
+
+    /**
+     * Metadatos de un objeto guardado
+     */
+    record Objeto(String clave, long tamano, long ultimaModificacion) {
+    }
+
+    /**
+     * Guardar un objeto leyendo el stream hasta el final (no se cierra)
+     *
+     * @param clave       Clave del objeto
+     * @param contenido   Contenido
+     * @param tamano      Tamaño exacto en bytes
+     * @param contentType Tipo MIME (null si no se conoce)
+     */
+    void put(String clave, InputStream contenido, long tamano, String contentType) throws IOException;
+
+    /**
+     * Guardar un objeto desde una fuente que se puede volver a abrir (archivo
+     * subido, bytes en memoria). Un almacén remoto la reabre si debe reenviar el
+     * cuerpo (reintento o redirección del cliente HTTP).
+     */
+    default void put(String clave, InputStreamSource contenido, long tamano, String contentType) throws IOException {
+        try (InputStream entrada = contenido.getInputStream()) {
+            put(clave, entrada, tamano, contentType);
+        }
+    }
+
+    /**
+     * Guardar un archivo local terminado; el archivo deja de existir en su ruta original
+     */
+    default void putFile(String clave, Path archivo, String contentType) throws IOException {
+        try (InputStream entrada = Files.newInputStream(archivo)) {
+            put(clave, entrada, Files.size(archivo), contentType);
+        }
+        Files.deleteIfExists(archivo);
+    }
+
+    Optional<Objeto> stat(String clave) throws IOException;
+
+    InputStream get(String clave) throws IOException;
+
+    /**
+     * Leer el tramo [inicio, fin] (inclusive) de un objeto
+     */
+    InputStream getRange(String clave, long inicio, long fin) throws IOException;
+
+    boolean delete(String clave) throws IOException;
+
+    /**
+     * Recorrer los objetos cuya clave empieza con el prefijo ("" = todos)
+     */
+    void listar(String prefijo, Consumer<Objeto> consumidor) throws IOException;
+
+    /**
+     * Ruta en disco del objeto si el almacenamiento es local (permite sendfile)
+     */
+    default Optional<Path> rutaLocal(String clave) {
+        return Optional.empty();
+    }
+
+    /**
+     * URL firmada y temporal para descargar el objeto directamente del almacenamiento,
+     * sin pasar por la JVM. Vacío si la implementación no lo soporta.
+     */
+    default Optional<URI> urlFirmada(String clave, Duration vigencia, String contentType) {
+        return Optional.empty();
+    }
+}
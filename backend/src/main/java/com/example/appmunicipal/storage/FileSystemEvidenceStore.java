@@ -0,0 +1,181 @@
+package com.example.appmunicipal.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Evidencias en el directorio local UPLOAD_PATH.
+ * En desarrollo: backend/src/main/resources/static/uploads
+ * En producción (Docker): /app/uploads (volumen compartido con nginx)
+ */
+@Component
+@ConditionalOnProperty(name = "app.evidencias.almacen.tipo", havingValue = "filesystem", matchIfMissing = true)
+@Slf4j
+public class FileSystemEvidenceStore implements EvidenceStore {
+
+    private final Path raiz;
+    private final Path directorioTemporal;
+
+    public FileSystemEvidenceStore(@Value("${UPLOAD_PATH:backend/src/main/resources/static/uploads}") String uploadPath) {
+        this.raiz = Paths.get(uploadPath).toAbsolutePath().normalize();
+        this.directorioTemporal = raiz.resolve(".tmp");
+        log.info("📁 Evidencias en disco local: {}", raiz);
+    }
+
+    @Override
+    public void put(String clave, InputStream contenido, long tamano, String contentType) throws IOException {
+        // Temporal en el mismo disco + move atómico: nunca se ve un archivo a medio escribir
+        Files.createDirectories(directorioTemporal);
+        Path temporal = Files.createTempFile(directorioTemporal, "blob-", ".tmp");
+        try {
+            Files.copy(contenido, temporal, StandardCopyOption.REPLACE_EXISTING);
+            mover(temporal, ruta(clave));
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    @Override
+    public void putFile(String clave, Path archivo, String contentType) throws IOException {
+        mover(archivo, ruta(clave));
+    }
+
+    @Override
+    public Optional<Objeto> stat(String clave) throws IOException {
+        try {
+            BasicFileAttributes atributos = Files.readAttributes(ruta(clave), BasicFileAttributes.class);
+            if (!atributos.isRegularFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(new Objeto(clave, atributos.size(), atributos.lastModifiedTime().toMillis()));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public InputStream get(String clave) throws IOException {
+        return Files.newInputStream(ruta(clave));
+    }
+
+    @Override
+    public InputStream getRange(String clave, long inicio, long fin) throws IOException {
+        FileChannel canal = FileChannel.open(ruta(clave), StandardOpenOption.READ);
+        canal.position(inicio);
+        return new TramoInputStream(Channels.newInputStream(canal), fin - inicio + 1);
+    }
+
+    @Override
+    public boolean delete(String clave) throws IOException {
+        return Files.deleteIfExists(ruta(clave));
+    }
+
+    @Override
+    public void listar(String prefijo, Consumer<Objeto> consumidor) throws IOException {
+        // Se recorre solo el directorio del prefijo (ab/cd/<hash>- no recorre todo el árbol)
+        int barra = prefijo.lastIndexOf('/');
+        Path base = barra < 0 ? raiz : ruta(prefijo.substring(0, barra));
+        if (!Files.isDirectory(base)) {
+            return;
+        }
+
+        Files.walkFileTree(base, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path archivo, BasicFileAttributes atributos) {
+                if (atributos.isRegularFile()) {
+                    String clave = raiz.relativize(archivo).toString().replace('\\', '/');
+                    if (clave.startsWith(prefijo)) {
+                        consumidor.accept(new Objeto(clave, atributos.size(), atributos.lastModifiedTime().toMillis()));
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path archivo, IOException e) {
+                // Archivo borrado mientras se recorría
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public Optional<Path> rutaLocal(String clave) {
+        return Optional.of(ruta(clave));
+    }
+
+    private Path ruta(String clave) {
+        Path ruta = raiz.resolve(clave).normalize();
+        if (!ruta.startsWith(raiz)) {
+            throw new RuntimeException("Clave de evidencia inválida: " + clave);
+        }
+        return ruta;
+    }
+
+    private void mover(Path origen, Path destino) throws IOException {
+        Files.createDirectories(destino.getParent());
+        try {
+            // Si otra subida del mismo contenido ganó la carrera se reemplaza por bytes idénticos
+            Files.move(origen, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(origen, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Stream que entrega como máximo 'restante' bytes del stream envuelto
+     */
+    private static class TramoInputStream extends FilterInputStream {
+
+        private long restante;
+
+        TramoInputStream(InputStream entrada, long largo) {
+            super(entrada);
+            this.restante = largo;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (restante <= 0) {
+                return -1;
+            }
+            int leido = super.read();
+            if (leido >= 0) {
+                restante--;
+            }
+            return leido;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int largo) throws IOException {
+            if (restante <= 0) {
+                return -1;
+            }
+            int leidos = super.read(buffer, offset, (int) Math.min(largo, restante));
+            if (leidos > 0) {
+                restante -= leidos;
+            }
+            return leidos;
+        }
+    }
+}
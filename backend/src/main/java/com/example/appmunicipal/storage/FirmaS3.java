@@ -0,0 +1,178 @@
+package com.example.appmunicipal.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Firma AWS Signature Version 4 para la API de S3: cabecera Authorization y URLs
+ * prefirmadas (parámetros X-Amz-* en la query).
+ * https://docs.aws.amazon.com/AmazonS3/latest/API/sig-v4-authenticating-requests.html
+ */
+class FirmaS3 {
+
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    static final String PAYLOAD_VACIO = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    private static final String ALGORITMO = "AWS4-HMAC-SHA256";
+    private static final String SERVICIO = "s3";
+    private static final DateTimeFormatter FORMATO_FECHA =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+
+    FirmaS3(String accessKey, String secretKey, String region) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+    }
+
+    static String fechaAmz(Instant fecha) {
+        return FORMATO_FECHA.format(fecha);
+    }
+
+    /**
+     * Valor de la cabecera Authorization
+     *
+     * @param headers     Cabeceras a firmar (nombres en minúscula); debe incluir host y x-amz-date
+     * @param payloadHash SHA-256 del cuerpo, o UNSIGNED-PAYLOAD
+     */
+    String autorizacion(String metodo, URI uri, SortedMap<String, String> headers, String payloadHash, Instant fecha) {
+        String fechaAmz = fechaAmz(fecha);
+        String alcance = alcance(fechaAmz);
+        String headersFirmados = String.join(";", headers.keySet());
+
+        String solicitudCanonica = solicitudCanonica(metodo, uri.getRawPath(), queryCanonica(uri.getRawQuery()),
+                headers, headersFirmados, payloadHash);
+
+        return ALGORITMO + " Credential=" + accessKey + "/" + alcance
+                + ", SignedHeaders=" + headersFirmados
+                + ", Signature=" + firmar(fechaAmz, alcance, solicitudCanonica);
+    }
+
+    /**
+     * URL prefirmada: cualquiera que la tenga puede hacer la operación hasta que venza
+     */
+    URI urlFirmada(String metodo, URI uri, Duration vigencia, Instant fecha) {
+        String fechaAmz = fechaAmz(fecha);
+        String alcance = alcance(fechaAmz);
+
+        String query = (uri.getRawQuery() != null ? uri.getRawQuery() + "&" : "")
+                + "X-Amz-Algorithm=" + ALGORITMO
+                + "&X-Amz-Credential=" + codificar(accessKey + "/" + alcance, true)
+                + "&X-Amz-Date=" + fechaAmz
+                + "&X-Amz-Expires=" + vigencia.toSeconds()
+                + "&X-Amz-SignedHeaders=host";
+
+        SortedMap<String, String> headers = new TreeMap<>(Map.of("host", host(uri)));
+        String solicitudCanonica = solicitudCanonica(metodo, uri.getRawPath(), queryCanonica(query),
+                headers, "host", UNSIGNED_PAYLOAD);
+
+        String base = uri.getScheme() + "://" + uri.getRawAuthority() + uri.getRawPath();
+        return URI.create(base + "?" + query + "&X-Amz-Signature=" + firmar(fechaAmz, alcance, solicitudCanonica));
+    }
+
+    /**
+     * Cabecera Host tal como la envía el cliente HTTP (con puerto si no es el por defecto)
+     */
+    static String host(URI uri) {
+        return uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+    }
+
+    /**
+     * Codificación URI de SigV4: todo salvo A-Z a-z 0-9 - _ . ~ se escribe %XX;
+     * la "/" se conserva en las claves de objeto
+     */
+    static String codificar(String valor, boolean codificarBarra) {
+        StringBuilder resultado = new StringBuilder();
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (c == '/' && !codificarBarra)) {
+                resultado.append(c);
+            } else {
+                resultado.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return resultado.toString();
+    }
+
+    static String sha256Hex(byte[] datos) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String solicitudCanonica(String metodo, String ruta, String query, SortedMap<String, String> headers,
+                                     String headersFirmados, String payloadHash) {
+        String headersCanonicos = headers.entrySet().stream()
+                .map(h -> h.getKey() + ":" + h.getValue().trim() + "\n")
+                .collect(Collectors.joining());
+
+        return metodo + "\n"
+                + (ruta == null || ruta.isEmpty() ? "/" : ruta) + "\n"
+                + query + "\n"
+                + headersCanonicos + "\n"
+                + headersFirmados + "\n"
+                + payloadHash;
+    }
+
+    // Los parámetros ya vienen codificados: solo se ordenan por nombre y valor
+    private String queryCanonica(String query) {
+        if (query == null || query.isEmpty()) {
+            return "";
+        }
+        List<String> parametros = new ArrayList<>(Arrays.asList(query.split("&")));
+        parametros.replaceAll(p -> p.contains("=") ? p : p + "=");
+        parametros.sort(Comparator.<String, String>comparing(p -> p.substring(0, p.indexOf('=')))
+                .thenComparing(p -> p.substring(p.indexOf('=') + 1)));
+        return String.join("&", parametros);
+    }
+
+    private String alcance(String fechaAmz) {
+        return fechaAmz.substring(0, 8) + "/" + region + "/" + SERVICIO + "/aws4_request";
+    }
+
+    private String firmar(String fechaAmz, String alcance, String solicitudCanonica) {
+        String textoAFirmar = ALGORITMO + "\n"
+                + fechaAmz + "\n"
+                + alcance + "\n"
+                + sha256Hex(solicitudCanonica.getBytes(StandardCharsets.UTF_8));
+
+        byte[] clave = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), fechaAmz.substring(0, 8));
+        clave = hmac(clave, region);
+        clave = hmac(clave, SERVICIO);
+        clave = hmac(clave, "aws4_request");
+        return HexFormat.of().formatHex(hmac(clave, textoAFirmar));
+    }
+
+    private byte[] hmac(byte[] clave, String datos) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(clave, "HmacSHA256"));
+            return mac.doFinal(datos.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.appmunicipal.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Evidencias en un bucket compatible con la API de S3 (AWS S3, MinIO, Ceph).
+ * Las solicitudes se firman con SigV4 (FirmaS3) sobre el HttpClient del JDK, sin SDK.
+ * Los cuerpos viajan por streaming en ambos sentidos; las descargas grandes se
+ * pueden redirigir al bucket con una URL prefirmada (urlFirmada) para que no
+ * pasen por la JVM.
+ *
+ * Con MinIO se usa path-style (http://minio:9000/bucket/clave); con AWS se puede
+ * usar virtual-hosted (https://bucket.s3.region.amazonaws.com/clave).
+ */
+@Component
+@ConditionalOnProperty(name = "app.evidencias.almacen.tipo", havingValue = "s3")
+@Slf4j
+public class S3EvidenceStore implements EvidenceStore {
+
+    private static final int MAX_ERROR = 512;
+
+    private final HttpClient httpClient;
+    private final FirmaS3 firma;
+    private final URI endpoint;
+    private final String bucket;
+    private final boolean pathStyle;
+    private final Duration timeout;
+
+    public S3EvidenceStore(@Value("${app.evidencias.almacen.s3.endpoint}") String endpoint,
+                           @Value("${app.evidencias.almacen.s3.region:us-east-1}") String region,
+                           @Value("${app.evidencias.almacen.s3.bucket}") String bucket,
+                           @Value("${app.evidencias.almacen.s3.access-key}") String accessKey,
+                           @Value("${app.evidencias.almacen.s3.secret-key}") String secretKey,
+                           @Value("${app.evidencias.almacen.s3.path-style:true}") boolean pathStyle,
+                           @Value("${app.evidencias.almacen.s3.timeout-segundos:30}") int timeoutSegundos) {
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.bucket = bucket;
+        this.pathStyle = pathStyle;
+        this.timeout = Duration.ofSeconds(timeoutSegundos);
+        this.firma = new FirmaS3(accessKey, secretKey, region);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+        log.info("📁 Evidencias en bucket S3 '{}' ({})", bucket, this.endpoint);
+    }
+
+    /**
+     * El stream solo se puede enviar una vez: si el HttpClient vuelve a suscribirse
+     * al cuerpo (reintento, redirección) la subida falla en lugar de enviar un
+     * objeto vacío o truncado. Para cuerpos reenviables usar put(InputStreamSource)
+     * o putFile.
+     */
+    @Override
+    public void put(String clave, InputStream contenido, long tamano, String contentType) throws IOException {
+        AtomicBoolean entregado = new AtomicBoolean();
+        subir(clave, tamano, contentType, () -> {
+            if (entregado.getAndSet(true)) {
+                throw new IllegalStateException("El cuerpo de " + clave + " ya se envió y no se puede reenviar");
+            }
+            return contenido;
+        });
+    }
+
+    @Override
+    public void put(String clave, InputStreamSource contenido, long tamano, String contentType) throws IOException {
+        subir(clave, tamano, contentType, () -> abrir(contenido));
+    }
+
+    @Override
+    public void putFile(String clave, Path archivo, String contentType) throws IOException {
+        put(clave, new FileSystemResource(archivo), Files.size(archivo), contentType);
+        Files.deleteIfExists(archivo);
+    }
+
+    // Cada suscripción del HttpClient al cuerpo pide un stream al proveedor
+    private void subir(String clave, long tamano, String contentType, Supplier<InputStream> proveedor)
+            throws IOException {
+        // Content-Length explícito: S3 no acepta PUT con transfer-encoding chunked
+        HttpRequest.BodyPublisher cuerpo = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(proveedor), tamano);
+
+        HttpRequest.Builder solicitud = firmada("PUT", uri(clave, null), Map.of(), FirmaS3.UNSIGNED_PAYLOAD)
+                .PUT(cuerpo);
+        if (contentType != null) {
+            solicitud.header("Content-Type", contentType);
+        }
+
+        HttpResponse<InputStream> respuesta = enviar(solicitud.build());
+        verificar(respuesta, 200, "PUT " + clave);
+        respuesta.body().close();
+    }
+
+    @Override
+    public Optional<Objeto> stat(String clave) throws IOException {
+        HttpRequest solicitud = firmada("HEAD", uri(clave, null), Map.of(), FirmaS3.PAYLOAD_VACIO)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+
+        HttpResponse<InputStream> respuesta = enviar(solicitud);
+        respuesta.body().close();
+        if (respuesta.statusCode() == 404) {
+            return Optional.empty();
+        }
+        verificar(respuesta, 200, "HEAD " + clave);
+
+        long tamano = respuesta.headers().firstValueAsLong("Content-Length").orElse(0);
+        long ultimaModificacion = respuesta.headers().firstValue("Last-Modified")
+                .map(fecha -> ZonedDateTime.parse(fecha, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli())
+                .orElse(0L);
+        return Optional.of(new Objeto(clave, tamano, ultimaModificacion));
+    }
+
+    @Override
+    public InputStream get(String clave) throws IOException {
+        return leer(clave, Map.of(), 200);
+    }
+
+    @Override
+    public InputStream getRange(String clave, long inicio, long fin) throws IOException {
+        return leer(clave, Map.of("range", "bytes=" + inicio + "-" + fin), 206);
+    }
+
+    @Override
+    public boolean delete(String clave) throws IOException {
+        HttpRequest solicitud = firmada("DELETE", uri(clave, null), Map.of(), FirmaS3.PAYLOAD_VACIO)
+                .DELETE()
+                .build();
+
+        HttpResponse<InputStream> respuesta = enviar(solicitud);
+        verificar(respuesta, 204, "DELETE " + clave);
+        respuesta.body().close();
+        return true;
+    }
+
+    /**
+     * ListObjectsV2 paginado (1000 claves por página)
+     */
+    @Override
+    public void listar(String prefijo, Consumer<Objeto> consumidor) throws IOException {
+        String continuacion = null;
+        do {
+            String query = "list-type=2&prefix=" + FirmaS3.codificar(prefijo, true)
+                    + (continuacion != null ? "&continuation-token=" + FirmaS3.codificar(continuacion, true) : "");
+            HttpRequest solicitud = firmada("GET", uriBucket(query), Map.of(), FirmaS3.PAYLOAD_VACIO)
+                    .GET()
+                    .build();
+
+            HttpResponse<InputStream> respuesta = enviar(solicitud);
+            verificar(respuesta, 200, "LIST " + prefijo);
+
+            Document pagina;
+            try (InputStream cuerpo = respuesta.body()) {
+                pagina = parsear(cuerpo);
+            }
+
+            NodeList contenidos = pagina.getElementsByTagName("Contents");
+            for (int i = 0; i < contenidos.getLength(); i++) {
+                Element objeto = (Element) contenidos.item(i);
+                consumidor.accept(new Objeto(
+                        texto(objeto, "Key"),
+                        Long.parseLong(texto(objeto, "Size")),
+                        Instant.parse(texto(objeto, "LastModified")).toEpochMilli()));
+            }
+
+            continuacion = "true".equals(texto(pagina.getDocumentElement(), "IsTruncated"))
+                    ? texto(pagina.getDocumentElement(), "NextContinuationToken")
+                    : null;
+        } while (continuacion != null);
+    }
+
+    @Override
+    public Optional<URI> urlFirmada(String clave, Duration vigencia, String contentType) {
+        String query = contentType != null ? "response-content-type=" + FirmaS3.codificar(contentType, true) : null;
+        return Optional.of(firma.urlFirmada("GET", uri(clave, query), vigencia, Instant.now()));
+    }
+
+    private static InputStream abrir(InputStreamSource contenido) {
+        try {
+            return contenido.getInputStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private InputStream leer(String clave, Map<String, String> headers, int estadoEsperado) throws IOException {
+        HttpRequest solicitud = firmada("GET", uri(clave, null), headers, FirmaS3.PAYLOAD_VACIO)
+                .GET()
+                .build();
+
+        HttpResponse<InputStream> respuesta = enviar(solicitud);
+        if (respuesta.statusCode() == 404) {
+            respuesta.body().close();
+            throw new NoSuchFileException(clave);
+        }
+        verificar(respuesta, estadoEsperado, "GET " + clave);
+        return respuesta.body();
+    }
+
+    private HttpRequest.Builder firmada(String metodo, URI uri, Map<String, String> headersExtra, String payloadHash) {
+        Instant ahora = Instant.now();
+
+        SortedMap<String, String> headers = new TreeMap<>(headersExtra);
+        headers.put("host", FirmaS3.host(uri));
+        headers.put("x-amz-content-sha256", payloadHash);
+        headers.put("x-amz-date", FirmaS3.fechaAmz(ahora));
+
+        HttpRequest.Builder solicitud = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Authorization", firma.autorizacion(metodo, uri, headers, payloadHash, ahora));
+        // Host lo agrega el HttpClient (es una cabecera restringida)
+        headers.forEach((nombre, valor) -> {
+            if (!nombre.equals("host")) {
+                solicitud.header(nombre, valor);
+            }
+        });
+        return solicitud;
+    }
+
+    private URI uri(String clave, String query) {
+        String ruta = FirmaS3.codificar(clave, false);
+        String base = pathStyle
+                ? endpoint + "/" + bucket + "/" + ruta
+                : endpoint.getScheme() + "://" + bucket + "." + endpoint.getRawAuthority() + "/" + ruta;
+        return URI.create(query != null ? base + "?" + query : base);
+    }
+
+    private URI uriBucket(String query) {
+        String base = pathStyle
+                ? endpoint + "/" + bucket + "/"
+                : endpoint.getScheme() + "://" + bucket + "." + endpoint.getRawAuthority() + "/";
+        return URI.create(base + "?" + query);
+    }
+
+    private HttpResponse<InputStream> enviar(HttpRequest solicitud) throws IOException {
+        try {
+            return httpClient.send(solicitud, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Solicitud a S3 interrumpida", e);
+        }
+    }
+
+    private void verificar(HttpResponse<InputStream> respuesta, int estadoEsperado, String operacion) throws IOException {
+        if (respuesta.statusCode() == estadoEsperado) {
+            return;
+        }
+        String detalle;
+        try (InputStream cuerpo = respuesta.body()) {
+            detalle = new String(cuerpo.readNBytes(MAX_ERROR), StandardCharsets.UTF_8);
+        }
+        throw new IOException("S3 respondió " + respuesta.statusCode() + " a " + operacion + ": " + detalle);
+    }
+
+    private Document parsear(InputStream xml) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(xml);
+        } catch (Exception e) {
+            throw new IOException("Respuesta de S3 inválida: " + e.getMessage(), e);
+        }
+    }
+
+    private String texto(Element elemento, String etiqueta) {
+        NodeList nodos = elemento.getElementsByTagName(etiqueta);
+        return nodos.getLength() > 0 ? nodos.item(0).getTextContent() : null;
+    }
+}
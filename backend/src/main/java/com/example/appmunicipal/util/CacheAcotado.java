@@ -0,0 +1,176 @@
+package com.example.appmunicipal.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Cache en memoria acotado por cantidad de entradas, con vencimiento por entrada
+ * y sin lock global: las lecturas no se bloquean entre sí (ConcurrentHashMap).
+ * Al pasar el máximo se desaloja la entrada usada hace más tiempo dentro de una
+ * muestra tomada desde una posición al azar (LRU aproximado).
+ *
+ * Para no guardar un valor calculado antes de una invalidación, se lee
+ * generacion() antes de calcular y se guarda con guardar(clave, valor, venceEn,
+ * generacion): si hubo una invalidación entretanto el valor se descarta.
+ */
+public class CacheAcotado<K, V> {
+
+    // Entradas revisadas para elegir cuál desalojar
+    private static final int MUESTRA_DESALOJO = 16;
+
+    private static final class Entrada<V> {
+        private final V valor;
+        private final long venceEnMs;
+        private volatile long ultimoAcceso;
+
+        private Entrada(V valor, long venceEnMs) {
+            this.valor = valor;
+            this.venceEnMs = venceEnMs;
+            this.ultimoAcceso = System.nanoTime();
+        }
+    }
+
+    private final int maxEntradas;
+    private final Map<K, Entrada<V>> entradas = new ConcurrentHashMap<>();
+    private final AtomicLong generacion = new AtomicLong();
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong vencidos = new AtomicLong();
+    private final AtomicLong desalojados = new AtomicLong();
+
+    public CacheAcotado(int maxEntradas) {
+        this.maxEntradas = maxEntradas;
+    }
+
+    /**
+     * Valor vigente de la clave o null (no está o ya venció)
+     */
+    public V obtener(K clave) {
+        Entrada<V> entrada = entradas.get(clave);
+        if (entrada == null) {
+            fallos.incrementAndGet();
+            return null;
+        }
+        if (entrada.venceEnMs <= System.currentTimeMillis()) {
+            if (entradas.remove(clave, entrada)) {
+                vencidos.incrementAndGet();
+            }
+            fallos.incrementAndGet();
+            return null;
+        }
+        entrada.ultimoAcceso = System.nanoTime();
+        aciertos.incrementAndGet();
+        return entrada.valor;
+    }
+
+    /**
+     * Generación actual; cambia con cada invalidación
+     */
+    public long generacion() {
+        return generacion.get();
+    }
+
+    /**
+     * Guardar un valor hasta venceEnMs (epoch en milisegundos)
+     */
+    public void guardar(K clave, V valor, long venceEnMs) {
+        entradas.put(clave, new Entrada<>(valor, venceEnMs));
+        desalojarExcedente();
+    }
+
+    /**
+     * Guardar un valor solo si no hubo invalidaciones desde que se leyó la generación.
+     * La comparación se hace con la clave bloqueada, igual que invalidar(clave).
+     */
+    public void guardar(K clave, V valor, long venceEnMs, long generacionLeida) {
+        Entrada<V> nueva = new Entrada<>(valor, venceEnMs);
+        entradas.compute(clave, (k, actual) -> generacion.get() == generacionLeida ? nueva : actual);
+        desalojarExcedente();
+    }
+
+    public void invalidar(K clave) {
+        entradas.compute(clave, (k, actual) -> {
+            generacion.incrementAndGet();
+            return null;
+        });
+    }
+
+    public void invalidarSi(Predicate<K> condicion) {
+        generacion.incrementAndGet();
+        entradas.keySet().removeIf(condicion);
+    }
+
+    public void limpiar() {
+        generacion.incrementAndGet();
+        entradas.clear();
+    }
+
+    public int tamano() {
+        return entradas.size();
+    }
+
+    /**
+     * Entradas, aciertos, fallos y desalojos desde el arranque
+     */
+    public Map<String, Object> metricas() {
+        long totalAciertos = aciertos.get();
+        long consultas = totalAciertos + fallos.get();
+
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("entradas", entradas.size());
+        metricas.put("maxEntradas", maxEntradas);
+        metricas.put("aciertos", totalAciertos);
+        metricas.put("fallos", fallos.get());
+        metricas.put("tasaAciertos", consultas > 0 ? (double) totalAciertos / consultas : 0.0);
+        metricas.put("vencidos", vencidos.get());
+        metricas.put("desalojados", desalojados.get());
+        return metricas;
+    }
+
+    private void desalojarExcedente() {
+        while (entradas.size() > maxEntradas) {
+            K candidata = null;
+            Entrada<V> masAntigua = null;
+            long ahora = System.currentTimeMillis();
+
+            // La muestra empieza en una posición al azar: desde el principio siempre
+            // se revisarían los mismos primeros bins del ConcurrentHashMap
+            Iterator<Map.Entry<K, Entrada<V>>> iterador = entradas.entrySet().iterator();
+            int saltar = ThreadLocalRandom.current().nextInt(Math.max(1, entradas.size()));
+            for (int i = 0; i < saltar && iterador.hasNext(); i++) {
+                iterador.next();
+            }
+            for (int i = 0; i < MUESTRA_DESALOJO; i++) {
+                if (!iterador.hasNext()) {
+                    iterador = entradas.entrySet().iterator();
+                    if (!iterador.hasNext()) {
+                        break;
+                    }
+                }
+                Map.Entry<K, Entrada<V>> entrada = iterador.next();
+                // Una entrada vencida se desaloja primero
+                if (entrada.getValue().venceEnMs <= ahora) {
+                    candidata = entrada.getKey();
+                    masAntigua = entrada.getValue();
+                    break;
+                }
+                if (masAntigua == null || entrada.getValue().ultimoAcceso < masAntigua.ultimoAcceso) {
+                    candidata = entrada.getKey();
+                    masAntigua = entrada.getValue();
+                }
+            }
+            if (candidata == null) {
+                return;
+            }
+            if (entradas.remove(candidata, masAntigua)) {
+                desalojados.incrementAndGet();
+            }
+        }
+    }
+}
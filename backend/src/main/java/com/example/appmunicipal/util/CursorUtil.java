@@ -0,0 +1,57 @@
+package com.example.appmunicipal.util;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+@Component
+public class CursorUtil {
+
+    private static final String SEPARADOR = "|";
+
+    /**
+     * Posición de una fila dentro del orden (fechaDenuncia DESC, id DESC)
+     */
+    public record Posicion(LocalDateTime fechaDenuncia, Long id) {
+    }
+
+    /**
+     * Codificar la posición de la última fila entregada como cursor opaco
+     * Ejemplo: (2025-01-10T12:30, 42) -> "MjAyNS0wMS0xMFQxMjozMHw0Mg"
+     *
+     * @param fechaDenuncia Fecha de la última denuncia de la página
+     * @param id            ID de la última denuncia de la página
+     * @return Cursor en Base64 URL-safe
+     */
+    public String codificar(LocalDateTime fechaDenuncia, Long id) {
+        String valor = fechaDenuncia.toString() + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodificar un cursor generado por {@link #codificar(LocalDateTime, Long)}
+     *
+     * @param cursor Cursor opaco recibido del cliente
+     * @return Posición de la última fila vista
+     */
+    public Posicion decodificar(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf(SEPARADOR);
+            if (separador < 0) {
+                throw new IllegalArgumentException("Separador ausente");
+            }
+
+            LocalDateTime fecha = LocalDateTime.parse(valor.substring(0, separador));
+            Long id = Long.parseLong(valor.substring(separador + 1));
+
+            return new Posicion(fecha, id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Cursor de paginación inválido");
+        }
+    }
+}
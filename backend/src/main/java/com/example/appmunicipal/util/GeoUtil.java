@@ -0,0 +1,186 @@
+package com.example.appmunicipal.util;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+@Component
+public class GeoUtil {
+
+    // Precisión almacenada en denuncias.geohash (celdas de ~37 x 19 m)
+    public static final int PRECISION_GEOHASH = 8;
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double RADIO_TIERRA_METROS = 6_371_000;
+    public static final double METROS_POR_GRADO_LAT = 111_320;
+
+    // Máximo de celdas usadas para cubrir un rectángulo (cada una es un LIKE 'prefijo%')
+    private static final int MAX_CELDAS_COBERTURA = 16;
+
+    /**
+     * Rectángulo geográfico (grados decimales)
+     */
+    public record BoundingBox(double minLat, double maxLat, double minLon, double maxLon) {
+
+        public boolean contiene(double lat, double lon) {
+            return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+        }
+    }
+
+    /**
+     * Calcular el geohash de un punto
+     * Ejemplo: (-38.7359, -72.5904) con precisión 8 -> "62zvs2tq"
+     *
+     * @param lat       Latitud
+     * @param lon       Longitud
+     * @param precision Cantidad de caracteres
+     * @return Geohash en base32
+     */
+    public String geohash(double lat, double lon, int precision) {
+        double[] rangoLat = {-90.0, 90.0};
+        double[] rangoLon = {-180.0, 180.0};
+        StringBuilder hash = new StringBuilder(precision);
+
+        boolean esLon = true;
+        int bits = 0;
+        int caracter = 0;
+
+        while (hash.length() < precision) {
+            double[] rango = esLon ? rangoLon : rangoLat;
+            double valor = esLon ? lon : lat;
+            double medio = (rango[0] + rango[1]) / 2;
+
+            caracter <<= 1;
+            if (valor >= medio) {
+                caracter |= 1;
+                rango[0] = medio;
+            } else {
+                rango[1] = medio;
+            }
+
+            esLon = !esLon;
+            if (++bits == 5) {
+                hash.append(BASE32.charAt(caracter));
+                bits = 0;
+                caracter = 0;
+            }
+        }
+
+        return hash.toString();
+    }
+
+    public String geohash(double lat, double lon) {
+        return geohash(lat, lon, PRECISION_GEOHASH);
+    }
+
+    /**
+     * Rectángulo que ocupa una celda de geohash
+     * Ejemplo: "62zvs2" -> celda de ~1.2 x 0.6 km en Temuco
+     *
+     * @param geohash Geohash en base32 (cualquier precisión)
+     * @return Límites de la celda
+     */
+    public BoundingBox limites(String geohash) {
+        double[] rangoLat = {-90.0, 90.0};
+        double[] rangoLon = {-180.0, 180.0};
+        boolean esLon = true;
+
+        for (char c : geohash.toCharArray()) {
+            int valor = BASE32.indexOf(c);
+            if (valor < 0) {
+                throw new RuntimeException("Geohash inválido: " + geohash);
+            }
+            for (int bit = 4; bit >= 0; bit--) {
+                double[] rango = esLon ? rangoLon : rangoLat;
+                double medio = (rango[0] + rango[1]) / 2;
+                if ((valor >> bit & 1) == 1) {
+                    rango[0] = medio;
+                } else {
+                    rango[1] = medio;
+                }
+                esLon = !esLon;
+            }
+        }
+
+        return new BoundingBox(rangoLat[0], rangoLat[1], rangoLon[0], rangoLon[1]);
+    }
+
+    /**
+     * Prefijos de geohash que cubren completamente un rectángulo.
+     * Se elige la mayor precisión que no supere MAX_CELDAS_COBERTURA celdas, de modo
+     * que cada prefijo se resuelve como un rango sobre el índice de geohash.
+     *
+     * @param bbox Rectángulo a cubrir
+     * @return Conjunto de prefijos (puede contener celdas que exceden el rectángulo)
+     */
+    public Set<String> cobertura(BoundingBox bbox) {
+        int precision = 1;
+        for (int p = PRECISION_GEOHASH; p >= 1; p--) {
+            if (contarCeldas(bbox, p) <= MAX_CELDAS_COBERTURA) {
+                precision = p;
+                break;
+            }
+        }
+
+        double altoCelda = altoCelda(precision);
+        double anchoCelda = anchoCelda(precision);
+
+        long filaMin = (long) Math.floor((bbox.minLat() + 90) / altoCelda);
+        long filaMax = (long) Math.floor((bbox.maxLat() + 90) / altoCelda);
+        long colMin = (long) Math.floor((bbox.minLon() + 180) / anchoCelda);
+        long colMax = (long) Math.floor((bbox.maxLon() + 180) / anchoCelda);
+
+        Set<String> prefijos = new LinkedHashSet<>();
+        for (long fila = filaMin; fila <= filaMax; fila++) {
+            for (long col = colMin; col <= colMax; col++) {
+                // Centro de la celda
+                double lat = Math.min(-90 + (fila + 0.5) * altoCelda, 90);
+                double lon = Math.min(-180 + (col + 0.5) * anchoCelda, 180);
+                prefijos.add(geohash(lat, lon, precision));
+            }
+        }
+        return prefijos;
+    }
+
+    /**
+     * Rectángulo que contiene un círculo de radio dado alrededor de un punto
+     */
+    public BoundingBox rectanguloParaRadio(double lat, double lon, double radioMetros) {
+        double deltaLat = radioMetros / METROS_POR_GRADO_LAT;
+        double deltaLon = radioMetros / (METROS_POR_GRADO_LAT * Math.max(Math.cos(Math.toRadians(lat)), 0.01));
+        return new BoundingBox(
+                Math.max(lat - deltaLat, -90), Math.min(lat + deltaLat, 90),
+                Math.max(lon - deltaLon, -180), Math.min(lon + deltaLon, 180));
+    }
+
+    /**
+     * Distancia en metros entre dos puntos (fórmula de haversine)
+     */
+    public double distanciaMetros(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RADIO_TIERRA_METROS * Math.asin(Math.sqrt(a));
+    }
+
+    private long contarCeldas(BoundingBox bbox, int precision) {
+        double altoCelda = altoCelda(precision);
+        double anchoCelda = anchoCelda(precision);
+        long filas = (long) Math.floor((bbox.maxLat() + 90) / altoCelda) - (long) Math.floor((bbox.minLat() + 90) / altoCelda) + 1;
+        long columnas = (long) Math.floor((bbox.maxLon() + 180) / anchoCelda) - (long) Math.floor((bbox.minLon() + 180) / anchoCelda) + 1;
+        return filas * columnas;
+    }
+
+    private double altoCelda(int precision) {
+        int bitsLat = (5 * precision) / 2;
+        return 180.0 / (1L << bitsLat);
+    }
+
+    private double anchoCelda(int precision) {
+        int bitsLon = (5 * precision + 1) / 2;
+        return 360.0 / (1L << bitsLon);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.appmunicipal.util;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+@Component
+public class HashUtil {
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    /**
+     * Nuevo MessageDigest SHA-256 (para calcular el hash mientras se copia un stream)
+     */
+    public MessageDigest nuevoSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * SHA-256 en hexadecimal (64 caracteres) del contenido de un archivo
+     *
+     * @param archivo Ruta del archivo
+     * @return Hash en minúsculas
+     */
+    public String sha256(Path archivo) throws IOException {
+        MessageDigest digest = nuevoSha256();
+        try (InputStream entrada = Files.newInputStream(archivo)) {
+            byte[] buffer = new byte[TAMANO_BUFFER];
+            int leidos;
+            while ((leidos = entrada.read(buffer)) != -1) {
+                digest.update(buffer, 0, leidos);
+            }
+        }
+        return hex(digest);
+    }
+
+    /**
+     * SHA-256 en hexadecimal de un texto en UTF-8
+     */
+    public String sha256(String texto) {
+        MessageDigest digest = nuevoSha256();
+        digest.update(texto.getBytes(StandardCharsets.UTF_8));
+        return hex(digest);
+    }
+
+    public String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -1,29 +1,43 @@
 package com.example.appmunicipal.util;
 
+import com.example.appmunicipal.security.UsuarioAutenticado;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
 @Slf4j
 public class JwtUtil {
 
-    // Clave secreta para firmar el JWT (en producción debe estar en
-    // application.yml)
-    private static final String SECRET_KEY = "municipal-app-secret-key-2024-super-secure-change-in-production-12345";
-
     // Tiempo de expiración del token: 24 horas (en milisegundos)
     private static final long JWT_TOKEN_VALIDITY = 24 * 60 * 60 * 1000; // 24 horas
 
+    // La clave y el parser son inmutables y thread-safe: se construyen una sola vez
+    private final SecretKey key;
+    private final JwtParser parser;
+
+    // Clave secreta para firmar el JWT (app.seguridad.jwt.secret)
+    public JwtUtil(@Value("${app.seguridad.jwt.secret}") String secreto) {
+        this.key = Keys.hmacShaKeyFor(secreto.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
+    }
+
     /**
      * Generar token JWT para un usuario
      *
@@ -54,10 +68,9 @@ public class JwtUtil {
         Date ahora = new Date();
         Date expiracion = new Date(ahora.getTime() + JWT_TOKEN_VALIDITY);
 
-        SecretKey key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
-
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString()) // jti: permite revocar el token (logout)
                 .subject(subject)
                 .issuedAt(ahora)
                 .expiration(expiracion)
@@ -65,6 +78,35 @@ public class JwtUtil {
                 .compact();
     }
 
+    /**
+     * Validez de los tokens emitidos
+     */
+    public Duration getValidezToken() {
+        return Duration.ofMillis(JWT_TOKEN_VALIDITY);
+    }
+
+    /**
+     * Verificar el token (firma y expiración) una sola vez y extraer todos sus datos
+     *
+     * @param token Token JWT
+     * @return Usuario autenticado
+     * @throws io.jsonwebtoken.JwtException si el token es inválido o expiró
+     */
+    public UsuarioAutenticado verificar(String token) {
+        Claims claims = extraerTodosLosClaims(token);
+
+        return new UsuarioAutenticado(
+                claims.getId(),
+                aLong(claims.get("usuarioId")),
+                claims.getSubject(),
+                claims.get("username", String.class),
+                claims.get("nombre", String.class),
+                claims.get("apellido", String.class),
+                claims.get("rol", String.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+    }
+
     /**
      * Validar si el token es válido
      */
@@ -91,15 +133,17 @@ public class JwtUtil {
      */
     public Long extraerUsuarioId(String token) {
         Claims claims = extraerTodosLosClaims(token);
-        Object usuarioId = claims.get("usuarioId");
+        Long usuarioId = aLong(claims.get("usuarioId"));
 
-        if (usuarioId instanceof Integer) {
-            return ((Integer) usuarioId).longValue();
-        } else if (usuarioId instanceof Long) {
-            return (Long) usuarioId;
+        if (usuarioId == null) {
+            throw new RuntimeException("No se pudo extraer usuarioId del token");
         }
+        return usuarioId;
+    }
 
-        throw new RuntimeException("No se pudo extraer usuarioId del token");
+    // Jackson deserializa los números del payload como Integer o Long según su tamaño
+    private Long aLong(Object valor) {
+        return valor instanceof Number numero ? numero.longValue() : null;
     }
 
     /**
@@ -145,13 +189,7 @@ public class JwtUtil {
      * Extraer todos los claims del token
      */
     private Claims extraerTodosLosClaims(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
-
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     /**
@@ -169,23 +207,27 @@ public class JwtUtil {
      * Obtener información completa del token
      */
     public Map<String, Object> obtenerInfoToken(String token) {
-        Map<String, Object> info = new HashMap<>();
         try {
-            Claims claims = extraerTodosLosClaims(token);
-
-            info.put("usuarioId", claims.get("usuarioId"));
-            info.put("email", claims.getSubject());
-            info.put("username", claims.get("username"));
-            info.put("nombre", claims.get("nombre"));
-            info.put("rol", claims.get("rol"));
-            info.put("expiracion", claims.getExpiration());
-            info.put("emitido", claims.getIssuedAt());
-            info.put("valido", !isTokenExpirado(token));
-
+            return obtenerInfoToken(verificar(token));
         } catch (Exception e) {
             log.error("Error al obtener info del token: {}", e.getMessage());
+            return new HashMap<>();
         }
+    }
 
+    /**
+     * Información de un token ya verificado
+     */
+    public Map<String, Object> obtenerInfoToken(UsuarioAutenticado usuario) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("usuarioId", usuario.usuarioId());
+        info.put("email", usuario.email());
+        info.put("username", usuario.username());
+        info.put("nombre", usuario.nombre());
+        info.put("rol", usuario.rol());
+        info.put("expiracion", usuario.expiracion() != null ? Date.from(usuario.expiracion()) : null);
+        info.put("emitido", usuario.emitido() != null ? Date.from(usuario.emitido()) : null);
+        info.put("valido", usuario.expiracion() == null || usuario.expiracion().isAfter(Instant.now()));
         return info;
     }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.example.appmunicipal.security;
+
+import com.example.appmunicipal.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Costo por request de la autenticación JWT, antes y después de verificar el
+ * token una sola vez con clave y parser cacheados:
+ * - antes: clave y parser nuevos en cada llamada; el filtro verificaba la firma
+ *   3 veces (validarToken, extraerEmail, extraerRol) y RoleValidator.verificarRolFuncionario
+ *   otras 3 (rol, email y esFuncionario)
+ * - después: JwtUtil.verificar una vez en el filtro; RoleValidator reutiliza el principal
+ *
+ * Y el acierto de TokenVerificadoCache (clave = segmento de firma) contra verificar
+ * el token cada vez, también con varios hilos para ver la contención del cache.
+ *
+ * Microbenchmark con calentamiento (sin JMH); solo se ejecuta a pedido:
+ *
+ * mvn test -Dtest=JwtVerificacionBenchmarkTests -Dbenchmark=true
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class JwtVerificacionBenchmarkTests {
+
+    private static final int CALENTAMIENTO = 20_000;
+    private static final int ITERACIONES = 50_000;
+    private static final int RONDAS = 5;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TokenVerificadoCache tokenVerificadoCache;
+
+    // Misma clave que usa JwtUtil, para reproducir el código anterior
+    @Value("${app.seguridad.jwt.secret}")
+    private String secreto;
+
+    private String token;
+
+    private volatile Object sumidero;
+
+    @BeforeEach
+    void generarToken() {
+        token = jwtUtil.generarToken(2L, "funcionario@municipalidad.cl", "func",
+                "Funcionario", "Municipal", "FUNCIONARIO");
+    }
+
+    @Test
+    void verificarUnaVezPorRequestEsMasBarato() {
+        double antes = medir("antes (6 verificaciones, clave y parser por llamada)", t -> {
+            for (int i = 0; i < 6; i++) {
+                sumidero = parsearComoAntes(t);
+            }
+        });
+        double despues = medir("después (1 verificación, parser cacheado)", t -> sumidero = jwtUtil.verificar(t));
+
+        log.info("JWT por request: {} ns -> {} ns ({}x)", Math.round(antes), Math.round(despues),
+                String.format("%.1f", antes / despues));
+        assertThat(despues).isLessThan(antes);
+    }
+
+    @Test
+    void aciertoDelCacheEsMasBaratoQueVerificar() throws Exception {
+        double verificar = medir("verificar firma y claims", t -> sumidero = jwtUtil.verificar(t));
+        double cache = medir("acierto en TokenVerificadoCache", t -> sumidero = tokenVerificadoCache.verificar(t));
+        log.info("Token por request: {} ns -> {} ns con cache ({}x)", Math.round(verificar), Math.round(cache),
+                String.format("%.1f", verificar / cache));
+        assertThat(cache).isLessThan(verificar);
+
+        // Varios hilos con tokens distintos: sin lock global el costo por request no debe dispararse
+        int hilos = Math.max(2, Runtime.getRuntime().availableProcessors());
+        String[] tokens = new String[hilos];
+        for (int i = 0; i < hilos; i++) {
+            tokens[i] = jwtUtil.generarToken((long) i, "usuario" + i + "@municipalidad.cl", "u" + i,
+                    "Usuario", "Prueba", "CIUDADANO");
+        }
+        double concurrente = medirConcurrente(tokens, t -> sumidero = tokenVerificadoCache.verificar(t));
+        log.info("Acierto en cache con {} hilos: {} ns/request", hilos, Math.round(concurrente));
+        assertThat(concurrente).isLessThan(verificar);
+    }
+
+    private Claims parsearComoAntes(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(secreto.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    // Tiempo de pared por request de cada hilo (cada uno con su token), en nanosegundos
+    private double medirConcurrente(String[] tokens, Consumer<String> request) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tokens.length);
+        try {
+            List<Callable<Long>> tareas = new ArrayList<>();
+            for (String t : tokens) {
+                tareas.add(() -> {
+                    for (int i = 0; i < CALENTAMIENTO; i++) {
+                        request.accept(t);
+                    }
+                    long inicio = System.nanoTime();
+                    for (int i = 0; i < ITERACIONES; i++) {
+                        request.accept(t);
+                    }
+                    return System.nanoTime() - inicio;
+                });
+            }
+            long total = 0;
+            for (Future<Long> resultado : executor.invokeAll(tareas)) {
+                total += resultado.get();
+            }
+            return total / (double) (tokens.length * ITERACIONES);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Mediana de varias rondas, en nanosegundos por request
+    private double medir(String nombre, Consumer<String> request) {
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            request.accept(token);
+        }
+
+        double[] rondas = new double[RONDAS];
+        for (int r = 0; r < RONDAS; r++) {
+            long inicio = System.nanoTime();
+            for (int i = 0; i < ITERACIONES; i++) {
+                request.accept(token);
+            }
+            rondas[r] = (System.nanoTime() - inicio) / (double) ITERACIONES;
+        }
+        Arrays.sort(rondas);
+
+        log.info("{}: {} ns/request", nombre, Math.round(rondas[RONDAS / 2]));
+        return rondas[RONDAS / 2];
+    }
+}
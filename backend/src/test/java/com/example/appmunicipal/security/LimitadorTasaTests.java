@@ -0,0 +1,97 @@
+package com.example.appmunicipal.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Token bucket con un reloj controlado: recarga, redondeo de Retry-After y
+ * desalojo al pasar el máximo de cubetas
+ */
+class LimitadorTasaTests {
+
+    private long ahora = 1_000_000_000L;
+
+    // 2 fichas, una nueva cada 10 segundos
+    private LimitadorTasa limitador(int maxCubetas) {
+        return new LimitadorTasa("prueba", 2, 6, maxCubetas, () -> ahora);
+    }
+
+    private void avanzar(long milisegundos) {
+        ahora += TimeUnit.MILLISECONDS.toNanos(milisegundos);
+    }
+
+    @Test
+    void recargaAlRitmoConfiguradoSinPasarLaCapacidad() {
+        LimitadorTasa limitador = limitador(100);
+
+        assertThat(limitador.consumir("a").permitida()).isTrue();
+        assertThat(limitador.consumir("a").permitida()).isTrue();
+        assertThat(limitador.consumir("a").permitida()).isFalse();
+
+        avanzar(10_000);
+        assertThat(limitador.consumir("a").permitida()).isTrue();
+        assertThat(limitador.consumir("a").permitida()).isFalse();
+
+        // Una hora sin uso recarga solo hasta la capacidad
+        avanzar(3_600_000);
+        assertThat(limitador.consumir("a").permitida()).isTrue();
+        assertThat(limitador.consumir("a").permitida()).isTrue();
+        assertThat(limitador.consumir("a").permitida()).isFalse();
+    }
+
+    @Test
+    void reintentoSeRedondeaHaciaArribaConMinimoUnSegundo() {
+        LimitadorTasa limitador = limitador(100);
+        limitador.consumir("a");
+        limitador.consumir("a");
+
+        assertThat(limitador.consumir("a").reintentarEnSegundos()).isEqualTo(10);
+
+        avanzar(500);
+        assertThat(limitador.consumir("a").reintentarEnSegundos()).isEqualTo(10);
+
+        avanzar(9_000);
+        assertThat(limitador.consumir("a").reintentarEnSegundos()).isEqualTo(1);
+
+        avanzar(499);
+        assertThat(limitador.consumir("a").reintentarEnSegundos()).isEqualTo(1);
+
+        avanzar(1);
+        assertThat(limitador.consumir("a").permitida()).isTrue();
+    }
+
+    @Test
+    void clavesNuevasSobreElMaximoDesalojanSinCompartirCubeta() {
+        LimitadorTasa limitador = limitador(2);
+        limitador.consumir("agotada");
+        limitador.consumir("agotada");
+        limitador.consumir("con-ficha");
+
+        // Muchas claves nuevas: cada una tiene su propia cubeta llena
+        for (int i = 0; i < 50; i++) {
+            assertThat(limitador.consumir("nueva-" + i).permitida()).isTrue();
+        }
+
+        // Se desalojan las cubetas con más fichas; la agotada sigue limitada
+        assertThat(limitador.consumir("agotada").permitida()).isFalse();
+        assertThat(limitador.metricas())
+                .containsEntry("cubetas", 2)
+                .containsEntry("desalojadas", 50L);
+    }
+
+    @Test
+    void limpiarInactivasEliminaSoloCubetasRecargadas() {
+        LimitadorTasa limitador = limitador(100);
+        limitador.consumir("antigua");
+        avanzar(15_000);
+        limitador.consumir("reciente");
+
+        // La recarga completa toma 20 segundos desde el último consumo
+        avanzar(5_000);
+        assertThat(limitador.limpiarInactivas()).isEqualTo(1);
+        assertThat(limitador.metricas()).containsEntry("cubetas", 1);
+    }
+}
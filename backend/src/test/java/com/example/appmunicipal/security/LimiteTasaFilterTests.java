@@ -0,0 +1,92 @@
+package com.example.appmunicipal.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cuerpo del login: tope de tamaño (413) y relectura por el controller,
+ * también con lectura no bloqueante (ReadListener)
+ */
+class LimiteTasaFilterTests {
+
+    private final LimiteTasaFilter filtro = new LimiteTasaFilter(new ObjectMapper(), true, "X-Real-IP", 100,
+            20, 10, 10, 5, 5, 2, 10, 5, 30, 20);
+
+    private MockHttpServletRequest login(byte[] cuerpo) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/usuarios/login");
+        request.setContentType("application/json");
+        request.setContent(cuerpo);
+        return request;
+    }
+
+    @Test
+    void cuerpoDeLoginDemasiadoGrandeSeRechazaCon413() throws Exception {
+        byte[] cuerpo = ("{\"email\":\"a@b.cl\",\"relleno\":\"" + "x".repeat(8 * 1024) + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        MockFilterChain cadena = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filtro.doFilter(login(cuerpo), response, cadena);
+
+        assertThat(response.getStatus()).isEqualTo(413);
+        assertThat(response.getContentAsString()).contains("\"success\":false");
+        assertThat(cadena.getRequest()).isNull();
+
+        // Sin Content-Length (chunked) también se corta al pasar el tope
+        MockHttpServletRequest sinLargo = new MockHttpServletRequest("POST", "/api/usuarios/login") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        sinLargo.setContent(cuerpo);
+        MockHttpServletResponse otra = new MockHttpServletResponse();
+        filtro.doFilter(sinLargo, otra, new MockFilterChain());
+        assertThat(otra.getStatus()).isEqualTo(413);
+    }
+
+    @Test
+    void cuerpoDeLoginSeReentregaAlControllerConReadListener() throws Exception {
+        byte[] cuerpo = "{\"email\":\"a@b.cl\",\"password\":\"secreta\"}".getBytes(StandardCharsets.UTF_8);
+        MockFilterChain cadena = new MockFilterChain();
+
+        filtro.doFilter(login(cuerpo), new MockHttpServletResponse(), cadena);
+
+        ServletInputStream entrada = ((HttpServletRequest) cadena.getRequest()).getInputStream();
+        ByteArrayOutputStream leido = new ByteArrayOutputStream();
+        boolean[] terminado = {false};
+        entrada.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                while (entrada.isReady() && !entrada.isFinished()) {
+                    leido.write(entrada.read());
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                terminado[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new AssertionError(t);
+            }
+        });
+
+        assertThat(terminado[0]).isTrue();
+        assertThat(leido.toByteArray()).isEqualTo(cuerpo);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.appmunicipal.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pool de verificación: rechazo con Retry-After cuando la cola está llena y
+ * rehash solo cuando el hash guardado usa un costo anterior
+ */
+class VerificadorContrasenasTests {
+
+    private VerificadorContrasenas verificador;
+
+    @AfterEach
+    void tearDown() {
+        if (verificador != null) {
+            verificador.cerrar();
+        }
+    }
+
+    @Test
+    void colaLlenaRechazaConReintentoRazonable() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch ocupado = new CountDownLatch(1);
+        verificador = new VerificadorContrasenas(new EncoderBloqueado(ocupado, liberar), 1, 1);
+
+        // Uno ocupa el único hilo y otro la única posición de la cola
+        CompletableFuture<VerificadorContrasenas.Resultado> enCurso = verificador.verificar("clave", "hash");
+        ocupado.await();
+        CompletableFuture<VerificadorContrasenas.Resultado> enCola = verificador.verificar("clave", "hash");
+
+        assertThatThrownBy(() -> verificador.verificar("clave", "hash"))
+                .isInstanceOfSatisfying(VerificadorContrasenas.SaturadoException.class, e ->
+                        assertThat(e.getReintentarEnSegundos()).isBetween(1L, 5L));
+        assertThat(verificador.metricas()).containsEntry("rechazadas", 1L);
+
+        liberar.countDown();
+        assertThat(enCurso.get().valida()).isTrue();
+        assertThat(enCola.get().valida()).isTrue();
+    }
+
+    @Test
+    void rehashSoloConCostoAnterior() throws Exception {
+        BCryptPasswordEncoder actual = new BCryptPasswordEncoder(5);
+        verificador = new VerificadorContrasenas(actual, 1, 4);
+
+        String hashAnterior = new BCryptPasswordEncoder(4).encode("clave");
+        VerificadorContrasenas.Resultado conCostoAnterior = verificador.verificar("clave", hashAnterior).get();
+        assertThat(conCostoAnterior.valida()).isTrue();
+        assertThat(conCostoAnterior.nuevoHash()).isNotNull().isNotEqualTo(hashAnterior);
+        assertThat(actual.matches("clave", conCostoAnterior.nuevoHash())).isTrue();
+        assertThat(actual.upgradeEncoding(conCostoAnterior.nuevoHash())).isFalse();
+
+        VerificadorContrasenas.Resultado conCostoActual = verificador.verificar("clave", actual.encode("clave")).get();
+        assertThat(conCostoActual.valida()).isTrue();
+        assertThat(conCostoActual.nuevoHash()).isNull();
+
+        // Una contraseña incorrecta nunca genera un hash nuevo
+        VerificadorContrasenas.Resultado incorrecta = verificador.verificar("otra", hashAnterior).get();
+        assertThat(incorrecta.valida()).isFalse();
+        assertThat(incorrecta.nuevoHash()).isNull();
+        assertThat(verificador.metricas()).containsEntry("rehashes", 1L);
+    }
+
+    // Acepta cualquier contraseña, pero espera a que el test lo libere
+    private record EncoderBloqueado(CountDownLatch ocupado, CountDownLatch liberar) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence contrasena) {
+            return "hash";
+        }
+
+        @Override
+        public boolean matches(CharSequence contrasena, String hash) {
+            ocupado.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.DTO.BusquedaDenunciaRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark de /api/denuncias/buscar: carga N denuncias sintéticas (1M por defecto),
+ * verifica con EXPLAIN que cada filtro usa un índice (sin tableScan) y que la
+ * búsqueda real responde bajo benchmark.max-ms. Las filas se eliminan al terminar
+ * (ANALYZE hace commit, así que no se puede depender del rollback). Tarda varios
+ * minutos, por eso solo se ejecuta a pedido:
+ *
+ * mvn test -Dtest=DenunciaBusquedaBenchmarkTests -Dbenchmark=true -Dbenchmark.filas=1000000
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class DenunciaBusquedaBenchmarkTests {
+
+    private static final String ORDEN = " ORDER BY fecha_denuncia DESC, id DESC LIMIT 20";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DenunciaService denunciaService;
+
+    @Value("${benchmark.filas:1000000}")
+    private int filas;
+
+    @Value("${benchmark.max-ms:2000}")
+    private long maxMs;
+
+    private Long categoriaId;
+    private Long revisorId;
+
+    @BeforeAll
+    void cargarDatos() {
+        categoriaId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM categorias", Long.class);
+        revisorId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM usuarios", Long.class);
+
+        long inicio = System.currentTimeMillis();
+        jdbcTemplate.update("INSERT INTO denuncias (usuario_id, categoria_id, descripcion, patente, latitud, longitud, " +
+                        "sector, comuna, estado, fecha_denuncia, revisor_id) " +
+                        "SELECT ?, ?, 'Denuncia de prueba', CONCAT('BENCH', MOD(n, 50000)), -38.73, -72.59, " +
+                        "CONCAT('Sector ', MOD(n, 20)), CONCAT('Comuna ', MOD(n, 30)), " +
+                        "CASE WHEN MOD(n, 5) = 0 THEN 'PENDIENTE' ELSE 'VALIDADA' END, " +
+                        // Una denuncia por minuto hacia atrás desde el 2025-06-01
+                        "DATEADD('MINUTE', -n, TIMESTAMP '2025-06-01 00:00:00'), " +
+                        "CASE WHEN MOD(n, 100) = 0 THEN ? ELSE NULL END " +
+                        "FROM SYSTEM_RANGE(1, ?) r(n)",
+                revisorId, categoriaId, revisorId, filas);
+        jdbcTemplate.execute("ANALYZE");
+
+        log.info("Benchmark: {} denuncias cargadas en {} ms", filas, System.currentTimeMillis() - inicio);
+    }
+
+    @AfterAll
+    void eliminarDatos() {
+        jdbcTemplate.update("DELETE FROM denuncias WHERE patente LIKE 'BENCH%'");
+    }
+
+    @Test
+    void cadaFiltroUsaUnIndice() {
+        Map<String, String> filtros = new LinkedHashMap<>();
+        filtros.put("estado", "estado = 'PENDIENTE'");
+        filtros.put("categoria", "categoria_id = " + categoriaId);
+        filtros.put("comuna+sector", "comuna = 'Comuna 3' AND sector = 'Sector 3'");
+        filtros.put("patente", "patente = 'BENCH77'");
+        filtros.put("revisor", "revisor_id = " + revisorId);
+        filtros.put("rango fechas", "fecha_denuncia >= TIMESTAMP '2025-05-30 00:00:00' " +
+                "AND fecha_denuncia < TIMESTAMP '2025-05-31 00:00:00'");
+        filtros.put("estado+categoria+fecha", "estado = 'PENDIENTE' AND categoria_id = " + categoriaId +
+                " AND fecha_denuncia >= TIMESTAMP '2025-05-25 00:00:00'");
+
+        filtros.forEach((nombre, where) -> {
+            String plan = jdbcTemplate.queryForObject(
+                    "EXPLAIN SELECT * FROM denuncias WHERE " + where + ORDEN, String.class);
+            log.info("Benchmark [{}]: {}", nombre, plan.substring(plan.indexOf("/*")).replace('\n', ' '));
+
+            assertThat(plan).as(nombre).doesNotContain("tableScan");
+        });
+    }
+
+    @Test
+    void buscarDenunciasConFiltrosCombinados() {
+        medir("estado", busqueda(b -> b.setEstado("PENDIENTE")));
+        medir("categoria", busqueda(b -> b.setCategoriaId(categoriaId)));
+        medir("comuna+sector", busqueda(b -> {
+            b.setComuna("Comuna 3");
+            b.setSector("Sector 3");
+        }));
+        medir("patente", busqueda(b -> b.setPatente("bench77")));
+        medir("revisor", busqueda(b -> b.setRevisorId(revisorId)));
+        medir("estado+categoria+fecha", busqueda(b -> {
+            b.setEstado("PENDIENTE");
+            b.setCategoriaId(categoriaId);
+            b.setDesde(LocalDate.of(2025, 5, 25));
+            b.setHasta(LocalDate.of(2025, 5, 31));
+        }));
+    }
+
+    private BusquedaDenunciaRequest busqueda(Consumer<BusquedaDenunciaRequest> filtros) {
+        BusquedaDenunciaRequest request = new BusquedaDenunciaRequest();
+        filtros.accept(request);
+        return request;
+    }
+
+    private void medir(String nombre, BusquedaDenunciaRequest request) {
+        long inicio = System.nanoTime();
+        Map<String, Object> resultado = denunciaService.buscarDenuncias(request);
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+        log.info("Benchmark [{}]: {} resultados, página en {} ms", nombre, resultado.get("totalElements"), ms);
+
+        assertThat((Long) resultado.get("totalElements")).as(nombre).isPositive();
+        assertThat(ms).as(nombre + " (ms)").isLessThan(maxMs);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.DTO.DenunciaResponse;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica que los listados de denuncias no generan consultas N+1:
+ * 1 SELECT para denuncias (con usuario) + 1 SELECT para evidencias; la categoría
+ * sale de CategoriaRegistry
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class DenunciaListadoQueryCountTests {
+
+    @Autowired
+    private DenunciaService denunciaService;
+
+    @Autowired
+    private AdministracionDenunciaService adminService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private long contarSentencias(Supplier<List<DenunciaResponse>> listado, int minimoFilas) {
+        statistics.clear();
+        List<DenunciaResponse> denuncias = listado.get();
+        long sentencias = statistics.getPrepareStatementCount();
+
+        assertThat(denuncias).hasSizeGreaterThanOrEqualTo(minimoFilas);
+        assertThat(denuncias).allSatisfy(d -> {
+            assertThat(d.getEmailUsuario()).isNotNull();
+            assertThat(d.getCategoria().getNombre()).isNotNull();
+            assertThat(d.getCantidadEvidencias()).isEqualTo(d.getEvidenciasUrls().size());
+        });
+        return sentencias;
+    }
+
+    @Test
+    void listarTodasLasDenunciasUsaDosConsultas() {
+        assertThat(contarSentencias(denunciaService::listarTodasLasDenuncias, 5)).isEqualTo(2);
+    }
+
+    @Test
+    void listarDenunciasPorEstadoUsaDosConsultas() {
+        assertThat(contarSentencias(() -> denunciaService.listarDenunciasPorEstado("PENDIENTE"), 2)).isEqualTo(2);
+    }
+
+    @Test
+    void listarDenunciasPorSectorUsaDosConsultas() {
+        assertThat(contarSentencias(() -> denunciaService.listarDenunciasPorSector("Centro"), 2)).isEqualTo(2);
+    }
+
+    @Test
+    void listarDenunciasPorCategoriaUsaDosConsultas() {
+        // La existencia de la categoría se verifica en el registro: listado + evidencias
+        List<DenunciaResponse> todas = denunciaService.listarTodasLasDenuncias();
+        Long categoriaId = todas.get(0).getCategoria().getId();
+
+        assertThat(contarSentencias(() -> denunciaService.listarDenunciasPorCategoria(categoriaId), 1)).isEqualTo(2);
+    }
+
+    @Test
+    void listarDenunciasRevisadasUsaDosConsultas() {
+        // Con el snapshot del funcionario en cache: listado + evidencias
+        adminService.listarDenunciasRevisadas("funcionario@municipalidad.cl");
+
+        assertThat(contarSentencias(
+                () -> adminService.listarDenunciasRevisadas("funcionario@municipalidad.cl"), 1)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.appmunicipal.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Range sobre una evidencia de ejemplo del classpath: tramo válido (206),
+ * especificación inválida que se ignora (200) y tramo fuera del archivo (416)
+ */
+@SpringBootTest
+class DescargaEvidenciaServiceTests {
+
+    private static final String ARCHIVO = "evidencia-1.jpg";
+
+    @Autowired
+    private DescargaEvidenciaService descargaEvidenciaService;
+
+    private MockHttpServletResponse servir(String range) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/denuncias/evidencia/" + ARCHIVO);
+        request.addHeader(HttpHeaders.RANGE, range);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        descargaEvidenciaService.servir(ARCHIVO, null, request, response);
+        return response;
+    }
+
+    @Test
+    void tramoValidoResponde206() throws Exception {
+        long tamano = new ClassPathResource("static/uploads/" + ARCHIVO).contentLength();
+        MockHttpServletResponse response = servir("bytes=0-9");
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 0-9/" + tamano);
+        assertThat(response.getContentAsByteArray()).hasSize(10);
+    }
+
+    @Test
+    void finAntesDelInicioSeIgnoraYEntregaElArchivoCompleto() throws Exception {
+        long tamano = new ClassPathResource("static/uploads/" + ARCHIVO).contentLength();
+        MockHttpServletResponse response = servir("bytes=5-3");
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(response.getContentAsByteArray()).hasSize((int) tamano);
+    }
+
+    @Test
+    void inicioFueraDelArchivoResponde416() throws Exception {
+        long tamano = new ClassPathResource("static/uploads/" + ARCHIVO).contentLength();
+        MockHttpServletResponse response = servir("bytes=" + tamano + "-");
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */" + tamano);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.DTO.DenunciaRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * La reconstrucción del rollup aplica deltas en transacciones cortas: las
+ * denuncias creadas mientras corre no se bloquean ni se cuentan dos veces
+ */
+@SpringBootTest
+class EstadisticaDenunciaServiceTests {
+
+    private static final String DESCRIPCION = "Denuncia creada durante la reconstrucción del rollup";
+
+    @Autowired
+    private EstadisticaDenunciaService estadisticaDenunciaService;
+
+    @Autowired
+    private DenunciaService denunciaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void eliminarDenuncias() {
+        jdbcTemplate.update("DELETE FROM denuncias WHERE descripcion = ?", DESCRIPCION);
+        estadisticaDenunciaService.reconstruir();
+    }
+
+    @Test
+    void crearDuranteLaReconstruccionNoSeBloqueaNiDuplicaConteos() throws Exception {
+        Long categoriaId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM categorias WHERE activa = TRUE", Long.class);
+
+        // Desviación en un lote sin escrituras concurrentes: toda reconstrucción la corrige.
+        // El lote actual puede omitirse si cambia en cada lectura, pero nunca quedar mal
+        jdbcTemplate.update("INSERT INTO estadisticas_denuncias (dia, hora, categoria_id, comuna, sector, estado, cantidad) " +
+                "VALUES (DATEADD('DAY', -60, CURRENT_DATE), 10, ?, 'TEMUCO', 'CENTRO', 'RECHAZADA', 5)", categoriaId);
+
+        AtomicBoolean creando = new AtomicBoolean(true);
+        AtomicInteger reconstrucciones = new AtomicInteger();
+        CompletableFuture<Void> reconstruccion = CompletableFuture.runAsync(() -> {
+            while (creando.get()) {
+                estadisticaDenunciaService.reconstruir();
+                reconstrucciones.incrementAndGet();
+            }
+        });
+
+        List<CompletableFuture<?>> altas = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            altas.add(CompletableFuture.runAsync(() -> denunciaService.crearDenuncia(request(categoriaId))));
+        }
+        CompletableFuture.allOf(altas.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        creando.set(false);
+        reconstruccion.get(30, TimeUnit.SECONDS);
+
+        assertThat(reconstrucciones.get()).isPositive();
+        assertThat(sumar("SELECT estado, SUM(cantidad) FROM estadisticas_denuncias GROUP BY estado"))
+                .isEqualTo(sumar("SELECT estado, COUNT(*) FROM denuncias GROUP BY estado"));
+        assertThat(sumar("SELECT estado, SUM(cantidad) FROM celdas_mapa GROUP BY estado"))
+                .isEqualTo(sumar("SELECT estado, COUNT(*) FROM denuncias WHERE geohash IS NOT NULL GROUP BY estado"));
+    }
+
+    private List<String> sumar(String sql) {
+        return jdbcTemplate.query(sql + " ORDER BY 1", (fila, n) -> fila.getString(1) + "=" + fila.getLong(2));
+    }
+
+    private DenunciaRequest request(Long categoriaId) {
+        DenunciaRequest request = new DenunciaRequest();
+        request.setEmail("juan.perez@email.cl");
+        request.setCategoriaId(categoriaId);
+        request.setDescripcion(DESCRIPCION);
+        request.setLatitud(-38.7359);
+        request.setLongitud(-72.5904);
+        request.setSector("Centro");
+        request.setComuna("Temuco");
+        return request;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.security.UsuarioAutenticado;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Las conexiones al feed se cierran cuando el token del funcionario se revoca
+ * o vence, sin esperar a que el cliente se desconecte
+ */
+class StreamDenunciaServiceTests {
+
+    private final RevocacionTokenService revocacionTokenService = mock(RevocacionTokenService.class);
+    // Heartbeat de 1 segundo
+    private final StreamDenunciaService service = new StreamDenunciaService(revocacionTokenService,
+            60_000, 1, 10, 10);
+
+    @AfterEach
+    void tearDown() {
+        service.cerrarTodos();
+    }
+
+    @Test
+    void tokenRevocadoCierraLaSuscripcionEnElHeartbeat() throws InterruptedException {
+        service.suscribir(usuario(Instant.now().plus(1, ChronoUnit.HOURS)), null, null, null);
+        assertThat(service.metricas()).containsEntry("suscriptores", 1);
+
+        when(revocacionTokenService.estaRevocado(any())).thenReturn(true);
+
+        assertThat(esperarSinSuscriptores(5_000)).isTrue();
+    }
+
+    @Test
+    void tokenVencidoCierraLaSuscripcionAlVencer() throws InterruptedException {
+        service.suscribir(usuario(Instant.now().plusMillis(300)), null, null, null);
+        assertThat(service.metricas()).containsEntry("suscriptores", 1);
+
+        assertThat(esperarSinSuscriptores(5_000)).isTrue();
+    }
+
+    private boolean esperarSinSuscriptores(long maxMs) throws InterruptedException {
+        long limite = System.currentTimeMillis() + maxMs;
+        while (System.currentTimeMillis() < limite) {
+            if (Integer.valueOf(0).equals(service.metricas().get("suscriptores"))) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private UsuarioAutenticado usuario(Instant expiracion) {
+        return new UsuarioAutenticado("jti-1", 1L, "funcionario@municipalidad.cl", "funcionario", "Ana", "Soto",
+                "FUNCIONARIO", Instant.now(), expiracion);
+    }
+}
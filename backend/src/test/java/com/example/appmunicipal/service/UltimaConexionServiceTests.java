@@ -0,0 +1,66 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Escritura en lote de la última conexión: un UPDATE por segundo y reintento
+ * de los grupos que fallan
+ */
+class UltimaConexionServiceTests {
+
+    private static final LocalDateTime LAS_DIEZ = LocalDateTime.of(2025, 6, 1, 10, 0, 0);
+
+    private final UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+    private final UltimaConexionService service = new UltimaConexionService(usuarioRepository);
+
+    @Test
+    void agrupaPorSegundoYConservaLaConexionMasReciente() {
+        service.registrar(1L, LAS_DIEZ.plusNanos(300_000_000));
+        service.registrar(2L, LAS_DIEZ.plusNanos(900_000_000));
+        service.registrar(3L, LAS_DIEZ.plusSeconds(5));
+        // Un login anterior del mismo usuario no reemplaza al más reciente
+        service.registrar(3L, LAS_DIEZ);
+
+        service.escribirPendientes();
+
+        verify(usuarioRepository).actualizarUltimaConexion(
+                argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(1L, 2L))), eq(LAS_DIEZ));
+        verify(usuarioRepository).actualizarUltimaConexion(List.of(3L), LAS_DIEZ.plusSeconds(5));
+        verifyNoMoreInteractions(usuarioRepository);
+
+        // Ya no queda nada pendiente
+        service.escribirPendientes();
+        verifyNoMoreInteractions(usuarioRepository);
+    }
+
+    @Test
+    void grupoFallidoVuelveAPendientes() {
+        when(usuarioRepository.actualizarUltimaConexion(anyList(), any()))
+                .thenThrow(new RuntimeException("Base de datos no disponible"))
+                .thenReturn(1);
+        service.registrar(7L, LAS_DIEZ);
+
+        service.escribirPendientes();
+        service.escribirPendientes();
+
+        verify(usuarioRepository, times(2)).actualizarUltimaConexion(List.of(7L), LAS_DIEZ);
+
+        // Tras el reintento exitoso no se vuelve a escribir
+        service.escribirPendientes();
+        verify(usuarioRepository, times(2)).actualizarUltimaConexion(anyList(), any());
+    }
+}
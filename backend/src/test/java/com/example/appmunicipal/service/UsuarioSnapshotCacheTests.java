@@ -0,0 +1,54 @@
+package com.example.appmunicipal.service;
+
+import com.example.appmunicipal.domain.Rol;
+import com.example.appmunicipal.domain.Usuario;
+import com.example.appmunicipal.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Clave del cache por email sin distinguir mayúsculas: la misma cuenta escrita
+ * de otra forma comparte la entrada y la invalidación la alcanza
+ */
+class UsuarioSnapshotCacheTests {
+
+    private final UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+    private final UsuarioSnapshotCache cache = new UsuarioSnapshotCache(usuarioRepository, 60, 100);
+
+    @Test
+    void emailConOtrasMayusculasUsaLaMismaEntrada() {
+        when(usuarioRepository.findByEmail(anyString())).thenReturn(Optional.of(usuario(true)));
+
+        assertThat(cache.obtener("Juan.Perez@Email.cl")).get().extracting(UsuarioSnapshotCache.UsuarioSnapshot::activo)
+                .isEqualTo(true);
+        assertThat(cache.obtener(" juan.perez@email.cl ")).isPresent();
+        verify(usuarioRepository, times(1)).findByEmail(anyString());
+
+        // Desactivado: el evento trae el email como está guardado y aun así invalida
+        when(usuarioRepository.findByEmail(anyString())).thenReturn(Optional.of(usuario(false)));
+        cache.onUsuarioCambiado(new UsuarioCambiadoEvent("juan.perez@email.cl"));
+
+        assertThat(cache.obtener("JUAN.PEREZ@EMAIL.CL")).get().extracting(UsuarioSnapshotCache.UsuarioSnapshot::activo)
+                .isEqualTo(false);
+        verify(usuarioRepository, times(2)).findByEmail(anyString());
+    }
+
+    private Usuario usuario(boolean activo) {
+        Rol rol = new Rol();
+        rol.setNombre("CIUDADANO");
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        usuario.setEmail("juan.perez@email.cl");
+        usuario.setRol(rol);
+        usuario.setActivo(activo);
+        return usuario;
+    }
+}